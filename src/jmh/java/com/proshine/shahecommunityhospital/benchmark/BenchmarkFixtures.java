@@ -0,0 +1,153 @@
+package com.proshine.shahecommunityhospital.benchmark;
+
+import com.proshine.shahecommunityhospital.ShaHeCommunityHospitalApplication;
+import com.proshine.shahecommunityhospital.dto.ChargeButtonClickRequest;
+import com.proshine.shahecommunityhospital.dto.ConfirmPaymentRequest;
+import com.proshine.shahecommunityhospital.dto.ConfirmRefundRequest;
+import com.proshine.shahecommunityhospital.dto.RefundButtonClickRequest;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 基准测试公共数据与内嵌数据库上下文
+ *
+ * @author lenovo
+ */
+public final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * 启动不带Web容器的应用上下文，数据源替换为内存H2（MySQL兼容模式）
+     * 以命令行参数传入，优先级高于 application.properties；extraProperties 中出现的属性替换同名默认值
+     */
+    public static ConfigurableApplicationContext startContext(String... extraProperties) {
+        return start(WebApplicationType.NONE, extraProperties);
+    }
+
+    /**
+     * 启动带内嵌Tomcat的应用上下文，端口随机，经 local.server.port 获取；数据源同 {@link #startContext}
+     */
+    public static ConfigurableApplicationContext startWebContext(String... extraProperties) {
+        String[] properties = Arrays.copyOf(extraProperties, extraProperties.length + 1);
+        properties[extraProperties.length] = "server.port=0";
+        return start(WebApplicationType.SERVLET, properties);
+    }
+
+    private static ConfigurableApplicationContext start(WebApplicationType type, String... extraProperties) {
+        List<String> defaults = Arrays.asList(
+                "--spring.datasource.url=jdbc:h2:mem:bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.show-sql=false",
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--mqtt.outbox.relay-interval-millis=3600000",
+                "--logging.level.root=WARN");
+        List<String> args = new ArrayList<>();
+        for (String property : defaults) {
+            if (!overridden(property, extraProperties)) {
+                args.add(property);
+            }
+        }
+        for (String property : extraProperties) {
+            args.add("--" + property);
+        }
+        return new SpringApplicationBuilder(ShaHeCommunityHospitalApplication.class)
+                .web(type)
+                .run(args.toArray(new String[0]));
+    }
+
+    private static boolean overridden(String defaultArg, String[] extraProperties) {
+        String key = defaultArg.substring(2, defaultArg.indexOf('=') + 1);
+        for (String property : extraProperties) {
+            if (property.startsWith(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static ChargeButtonClickRequest chargeButtonClickRequest(String identityCardNumber) {
+        ChargeButtonClickRequest request = new ChargeButtonClickRequest();
+        request.setAddressId("A001");
+        request.setAddressName("沙河社区医院");
+        request.setWindowId("W01");
+        request.setWindowName("一号收费窗口");
+        request.setName("张三");
+        request.setAge("45");
+        request.setSex("男");
+        request.setReceivable(new BigDecimal("128.50"));
+        request.setPaidUp(new BigDecimal("150.00"));
+        request.setChange(new BigDecimal("21.50"));
+        request.setSocialSecurityNumber("SS" + identityCardNumber);
+        request.setIdentityCardNumber(identityCardNumber);
+        request.setOperator("cashier01");
+        request.setOperateTime("2024-05-20 10:15:30");
+        return request;
+    }
+
+    public static ConfirmPaymentRequest confirmPaymentRequest(String identityCardNumber) {
+        ConfirmPaymentRequest request = new ConfirmPaymentRequest();
+        request.setAddressId("A001");
+        request.setAddressName("沙河社区医院");
+        request.setWindowId("W01");
+        request.setWindowName("一号收费窗口");
+        request.setName("张三");
+        request.setAge("45");
+        request.setSex("男");
+        request.setReceivable(new BigDecimal("128.50"));
+        request.setPaidUp(new BigDecimal("150.00"));
+        request.setChange(new BigDecimal("21.50"));
+        request.setSocialSecurityNumber("SS" + identityCardNumber);
+        request.setIdentityCardNumber(identityCardNumber);
+        request.setOperator("cashier01");
+        request.setOperateTime("2024-05-20 10:16:02");
+        return request;
+    }
+
+    public static RefundButtonClickRequest refundButtonClickRequest(String identityCardNumber) {
+        RefundButtonClickRequest request = new RefundButtonClickRequest();
+        request.setAddressId("A001");
+        request.setAddressName("沙河社区医院");
+        request.setWindowId("W02");
+        request.setWindowName("二号退费窗口");
+        request.setName("李四");
+        request.setAge("62");
+        request.setSex("女");
+        request.setReceivable(new BigDecimal("80.00"));
+        request.setRealRefundAmount(new BigDecimal("35.00"));
+        request.setSocialSecurityNumber("SS" + identityCardNumber);
+        request.setIdentityCardNumber(identityCardNumber);
+        request.setOperator("cashier02");
+        request.setOperateTime("2024-05-20 11:02:10");
+        return request;
+    }
+
+    public static ConfirmRefundRequest confirmRefundRequest(String identityCardNumber) {
+        ConfirmRefundRequest request = new ConfirmRefundRequest();
+        request.setAddressId("A001");
+        request.setAddressName("沙河社区医院");
+        request.setWindowId("W02");
+        request.setWindowName("二号退费窗口");
+        request.setName("李四");
+        request.setAge("62");
+        request.setSex("女");
+        request.setReceivable(new BigDecimal("80.00"));
+        request.setRealRefundAmount(new BigDecimal("35.00"));
+        request.setSocialSecurityNumber("SS" + identityCardNumber);
+        request.setIdentityCardNumber(identityCardNumber);
+        request.setOperator("cashier02");
+        request.setOperateTime("2024-05-20 11:03:45");
+        return request;
+    }
+}
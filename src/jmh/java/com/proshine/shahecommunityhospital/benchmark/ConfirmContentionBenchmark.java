@@ -0,0 +1,112 @@
+package com.proshine.shahecommunityhospital.benchmark;
+
+import com.proshine.shahecommunityhospital.dto.ConfirmPaymentRequest;
+import com.proshine.shahecommunityhospital.service.MedicalService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 待确认收费并发确认基准（内嵌H2）
+ * 多个收银线程对少量患者反复"收费按钮点击 + 确认收费"，同一窗口同一患者的确认互相争抢同一条待确认记录。
+ * 每次确认的实收金额互不相同，结束时核对：已确认记录数、实收合计、按日汇总笔数
+ * 与成功返回的确认一致，存在丢失更新时抛出异常
+ *
+ * @author lenovo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class ConfirmContentionBenchmark {
+
+    /**
+     * 参与争抢的患者数，1 为所有线程争抢同一患者
+     */
+    @Param({"1", "64"})
+    private int patients;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final LongAdder confirmedCount = new LongAdder();
+
+    private final LongAdder confirmedCents = new LongAdder();
+
+    private final LongAdder failedCount = new LongAdder();
+
+    private ConfigurableApplicationContext context;
+
+    private MedicalService medicalService;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkFixtures.startContext("spring.datasource.hikari.maximum-pool-size=8");
+        medicalService = context.getBean(MedicalService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        try {
+            verify();
+        } finally {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public void clickAndConfirm() {
+        String identityCard = String.format("1101011980%08d", ThreadLocalRandom.current().nextInt(patients));
+        medicalService.handleChargeButtonClick(BenchmarkFixtures.chargeButtonClickRequest(identityCard));
+        long cents = sequence.incrementAndGet();
+        ConfirmPaymentRequest request = BenchmarkFixtures.confirmPaymentRequest(identityCard);
+        request.setPaidUp(BigDecimal.valueOf(cents, 2));
+        try {
+            medicalService.confirmPayment(request);
+            confirmedCount.increment();
+            confirmedCents.add(cents);
+        } catch (RuntimeException e) {
+            // 重试耗尽，调用方收到失败，不计入已确认
+            failedCount.increment();
+        }
+    }
+
+    private void verify() {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        Map<String, Object> confirmed = jdbcTemplate.queryForMap(
+                "SELECT COUNT(*) AS cnt, COALESCE(SUM(paid_up), 0) AS total FROM tb_charge_record WHERE status = 'CONFIRMED'");
+        long rows = ((Number) confirmed.get("cnt")).longValue();
+        long cents = ((BigDecimal) confirmed.get("total")).movePointRight(2).longValueExact();
+        Number rollup = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(charge_count), 0) FROM tb_medical_daily_rollup", Number.class);
+        MedicalService.Stats stats = medicalService.stats();
+        System.out.printf(" [patients=%d] confirmed=%d (rows=%d, rollup=%d), failed=%d, conflicts=%d, exhausted=%d%n",
+                patients, confirmedCount.sum(), rows, rollup.longValue(), failedCount.sum(),
+                stats.getConflictCount(), stats.getExhaustedCount());
+        if (rows != confirmedCount.sum() || cents != confirmedCents.sum() || rollup.longValue() != rows) {
+            throw new IllegalStateException("存在丢失更新：成功确认 " + confirmedCount.sum() + " 笔/" + confirmedCents.sum()
+                    + " 分，已确认记录 " + rows + " 笔/" + cents + " 分，汇总 " + rollup + " 笔");
+        }
+    }
+}
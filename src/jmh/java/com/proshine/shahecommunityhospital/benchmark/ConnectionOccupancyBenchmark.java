@@ -0,0 +1,123 @@
+package com.proshine.shahecommunityhospital.benchmark;
+
+import com.alibaba.fastjson.JSON;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 收费按钮点击接口的数据库连接占用（内嵌Tomcat + H2）
+ * 多个客户端经HTTP并发调用，每轮结束时按 hikaricp.connections.usage 输出
+ * 每次借出的平均持有时间，以及持有时间总和 / 墙钟时间 得到的平均活跃连接数
+ *
+ * @author lenovo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class ConnectionOccupancyBenchmark {
+
+    @Param({"true", "false"})
+    private String openInView;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+
+    private URL chargeButtonClick;
+
+    private Timer usage;
+
+    private long iterationStartNanos;
+
+    private double iterationStartUsageMillis;
+
+    private long iterationStartBorrows;
+
+    @Setup
+    public void setUp() throws IOException {
+        context = BenchmarkFixtures.startWebContext("spring.jpa.open-in-view=" + openInView,
+                "spring.datasource.hikari.maximum-pool-size=8",
+                "server.tomcat.threads.max=32");
+        String port = context.getEnvironment().getProperty("local.server.port");
+        chargeButtonClick = new URL("http://localhost:" + port + "/thirdpart/medical/chargeButtonClick");
+        usage = context.getBean(MeterRegistry.class).get("hikaricp.connections.usage").timer();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() {
+        iterationStartNanos = System.nanoTime();
+        iterationStartUsageMillis = usage.totalTime(TimeUnit.MILLISECONDS);
+        iterationStartBorrows = usage.count();
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportIteration() {
+        double elapsedMillis = (System.nanoTime() - iterationStartNanos) / 1e6;
+        double heldMillis = usage.totalTime(TimeUnit.MILLISECONDS) - iterationStartUsageMillis;
+        long borrows = usage.count() - iterationStartBorrows;
+        System.out.printf(" [openInView=%s] borrows=%d, held/borrow=%.3f ms, avg active=%.2f%n",
+                openInView, borrows, borrows == 0 ? 0 : heldMillis / borrows, heldMillis / elapsedMillis);
+    }
+
+    @Benchmark
+    public int chargeButtonClick() throws IOException {
+        String identityCard = String.format("1101011980%08d", sequence.incrementAndGet());
+        byte[] body = JSON.toJSONString(BenchmarkFixtures.chargeButtonClickRequest(identityCard))
+                .getBytes(StandardCharsets.UTF_8);
+        HttpURLConnection connection = (HttpURLConnection) chargeButtonClick.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+        int status = connection.getResponseCode();
+        try (InputStream in = connection.getInputStream()) {
+            drain(in);
+        }
+        return status;
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+        byte[] chunk = new byte[256];
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            buffer.write(chunk, 0, read);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.proshine.shahecommunityhospital.benchmark;
+
+import com.proshine.shahecommunityhospital.utils.PrimaryKeyUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 主键id生成基准：随机UUID（正则去中划线） vs 直接格式化 vs 有序UUID
+ *
+ * @author lenovo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+    @Benchmark
+    public String randomReplaceAll() {
+        return UUID.randomUUID().toString().replaceAll("-", "");
+    }
+
+    @Benchmark
+    public String randomReplaced() {
+        return PrimaryKeyUtil.generatePrimary(true);
+    }
+
+    @Benchmark
+    public String orderedReplaced() {
+        return PrimaryKeyUtil.generateOrderedPrimary(true);
+    }
+
+    @Benchmark
+    public String ordered() {
+        return PrimaryKeyUtil.generateOrderedPrimary(false);
+    }
+}
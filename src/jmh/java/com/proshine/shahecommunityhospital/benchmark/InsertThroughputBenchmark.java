@@ -0,0 +1,76 @@
+package com.proshine.shahecommunityhospital.benchmark;
+
+import com.proshine.shahecommunityhospital.entity.ChargeRecord;
+import com.proshine.shahecommunityhospital.mapper.MedicalRecordMapper;
+import com.proshine.shahecommunityhospital.repository.ChargeRecordRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 收费记录插入吞吐基准：随机主键 vs 有序主键
+ * 内嵌H2只能反映索引维护的相对差异，InnoDB上的差距需在MySQL上用同一基准复测
+ * （通过 -jvmArgs 或修改 BenchmarkFixtures 的数据源参数）
+ *
+ * @author lenovo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsertThroughputBenchmark {
+
+    private static final int BATCH = 100;
+
+    @Param({"random", "ordered"})
+    private String strategy;
+
+    private ConfigurableApplicationContext context;
+
+    private ChargeRecordRepository chargeRecordRepository;
+
+    private MedicalRecordMapper medicalRecordMapper;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkFixtures.startContext("spring.jpa.properties.medical.id.strategy=" + strategy);
+        chargeRecordRepository = context.getBean(ChargeRecordRepository.class);
+        medicalRecordMapper = context.getBean(MedicalRecordMapper.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * 每次调用插入 BATCH 条记录
+     */
+    @Benchmark
+    public int insertBatch() {
+        List<ChargeRecord> records = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            ChargeRecord record = medicalRecordMapper.toChargeRecord(
+                    BenchmarkFixtures.chargeButtonClickRequest("1101011980010" + (10000 + i)));
+            record.setStatus("PENDING");
+            records.add(record);
+        }
+        return chargeRecordRepository.saveAll(records).size();
+    }
+}
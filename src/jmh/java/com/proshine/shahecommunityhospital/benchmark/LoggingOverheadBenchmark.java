@@ -0,0 +1,71 @@
+package com.proshine.shahecommunityhospital.benchmark;
+
+import com.proshine.shahecommunityhospital.controller.MedicalController;
+import com.proshine.shahecommunityhospital.common.ResponseEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 日志配置对收费接口耗时的影响（内嵌H2）
+ * dev：SQL回显 + 同步控制台日志；prod：关闭SQL回显 + 异步文件日志
+ *
+ * @author lenovo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggingOverheadBenchmark {
+
+    @Param({"dev", "prod"})
+    private String profile;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+
+    private MedicalController medicalController;
+
+    @Setup
+    public void setUp() {
+        if ("prod".equals(profile)) {
+            context = BenchmarkFixtures.startContext("spring.profiles.active=prod",
+                    "spring.jpa.show-sql=false",
+                    "logging.file.name=target/benchmark-logs/medical.log",
+                    "logging.level.root=INFO");
+        } else {
+            context = BenchmarkFixtures.startContext("spring.jpa.show-sql=true",
+                    "spring.jpa.properties.hibernate.format_sql=true",
+                    "logging.level.root=INFO");
+        }
+        medicalController = context.getBean(MedicalController.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ResponseEntity<Void> chargeButtonClick() {
+        String identityCard = String.format("1101011980%08d", sequence.incrementAndGet());
+        return medicalController.chargeButtonClick(BenchmarkFixtures.chargeButtonClickRequest(identityCard), null)
+                .join();
+    }
+}
@@ -0,0 +1,83 @@
+package com.proshine.shahecommunityhospital.benchmark;
+
+import com.proshine.shahecommunityhospital.dto.ChargeButtonClickRequest;
+import com.proshine.shahecommunityhospital.dto.ConfirmRefundRequest;
+import com.proshine.shahecommunityhospital.entity.ChargeRecord;
+import com.proshine.shahecommunityhospital.entity.RefundRecord;
+import com.proshine.shahecommunityhospital.mapper.BeanUtilsMedicalRecordMapper;
+import com.proshine.shahecommunityhospital.mapper.DirectMedicalRecordMapper;
+import com.proshine.shahecommunityhospital.mapper.MedicalRecordMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.BeanUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求DTO到实体的属性拷贝基准：BeanUtils反射拷贝 vs 逐字段赋值
+ *
+ * @author lenovo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+    private final ChargeButtonClickRequest chargeRequest =
+            BenchmarkFixtures.chargeButtonClickRequest("110101198001010000");
+
+    private final ConfirmRefundRequest refundRequest =
+            BenchmarkFixtures.confirmRefundRequest("110101198001010000");
+
+    private final MedicalRecordMapper reflectionMapper = new BeanUtilsMedicalRecordMapper();
+
+    private final MedicalRecordMapper directMapper = new DirectMedicalRecordMapper();
+
+    @Benchmark
+    public ChargeRecord beanUtilsCharge() {
+        ChargeRecord record = new ChargeRecord();
+        BeanUtils.copyProperties(chargeRequest, record);
+        return record;
+    }
+
+    @Benchmark
+    public RefundRecord beanUtilsRefundIgnoring() {
+        RefundRecord record = new RefundRecord();
+        BeanUtils.copyProperties(refundRequest, record, "id", "createTime");
+        return record;
+    }
+
+    @Benchmark
+    public ChargeRecord reflectionMapperCharge() {
+        return reflectionMapper.toChargeRecord(chargeRequest);
+    }
+
+    @Benchmark
+    public ChargeRecord directMapperCharge() {
+        return directMapper.toChargeRecord(chargeRequest);
+    }
+
+    @Benchmark
+    public RefundRecord reflectionMapperRefundUpdate() {
+        RefundRecord record = new RefundRecord();
+        reflectionMapper.updateRefundRecord(refundRequest, record);
+        return record;
+    }
+
+    @Benchmark
+    public RefundRecord directMapperRefundUpdate() {
+        RefundRecord record = new RefundRecord();
+        directMapper.updateRefundRecord(refundRequest, record);
+        return record;
+    }
+}
@@ -0,0 +1,76 @@
+package com.proshine.shahecommunityhospital.benchmark;
+
+import com.proshine.shahecommunityhospital.dto.ChargeButtonClickRequest;
+import com.proshine.shahecommunityhospital.dto.ConfirmPaymentRequest;
+import com.proshine.shahecommunityhospital.service.MedicalService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MedicalService 收费写路径基准（内嵌H2）
+ *
+ * @author lenovo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MedicalServiceBenchmark {
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+
+    private MedicalService medicalService;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkFixtures.startContext();
+        medicalService = context.getBean(MedicalService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * 收费按钮点击：校验 + 映射 + 插入 + 写发件箱
+     */
+    @Benchmark
+    public void handleChargeButtonClick() {
+        ChargeButtonClickRequest request = BenchmarkFixtures.chargeButtonClickRequest(nextIdentityCard());
+        medicalService.handleChargeButtonClick(request);
+    }
+
+    /**
+     * 点击后确认收费：待确认记录查找 + 更新 + 汇总累加
+     */
+    @Benchmark
+    public void chargeThenConfirmPayment() {
+        String identityCardNumber = nextIdentityCard();
+        ChargeButtonClickRequest click = BenchmarkFixtures.chargeButtonClickRequest(identityCardNumber);
+        medicalService.handleChargeButtonClick(click);
+        ConfirmPaymentRequest confirm = BenchmarkFixtures.confirmPaymentRequest(identityCardNumber);
+        medicalService.confirmPayment(confirm);
+    }
+
+    private String nextIdentityCard() {
+        return String.format("11010119800101%04d", sequence.incrementAndGet() % 10000);
+    }
+}
@@ -0,0 +1,48 @@
+package com.proshine.shahecommunityhospital.benchmark;
+
+import com.proshine.shahecommunityhospital.utils.OperateTimeParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 操作时间解析基准
+ * 逐字符解析与 DateTimeFormatter 对比，gc.alloc.rate.norm 为每次解析的分配量
+ *
+ * @author lenovo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OperateTimeParserBenchmark {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final ZoneOffset OFFSET = ZoneOffset.ofHours(8);
+
+    private final String operateTime = "2024-05-20 10:15:30";
+
+    @Benchmark
+    public long scanner() {
+        return OperateTimeParser.parse(operateTime);
+    }
+
+    @Benchmark
+    public long dateTimeFormatter() {
+        return LocalDateTime.parse(operateTime, FORMATTER).toInstant(OFFSET).toEpochMilli();
+    }
+}
@@ -0,0 +1,149 @@
+package com.proshine.shahecommunityhospital.benchmark;
+
+import com.proshine.shahecommunityhospital.cache.PatientHistoryCache;
+import com.proshine.shahecommunityhospital.entity.ChargeRecord;
+import com.proshine.shahecommunityhospital.repository.ChargeRecordRepository;
+import com.proshine.shahecommunityhospital.service.MedicalQueryService;
+import com.proshine.shahecommunityhospital.service.MedicalService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Pageable;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 患者最近记录缓存基准（内嵌H2）
+ * 少量热点患者被反复查询，同时有收费写入；对比走缓存与直接查库的读吞吐。
+ * 结束时逐个患者比对缓存与数据库，不一致时抛出异常
+ *
+ * @author lenovo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PatientHistoryCacheBenchmark {
+
+    private static final int PATIENTS = 200;
+
+    /**
+     * 写入只落在前 HOT_PATIENTS 个患者，其余患者记录数保持不变
+     */
+    private static final int HOT_PATIENTS = 20;
+
+    private ConfigurableApplicationContext context;
+
+    private MedicalService medicalService;
+
+    private MedicalQueryService medicalQueryService;
+
+    private ChargeRecordRepository chargeRecordRepository;
+
+    private PatientHistoryCache patientHistoryCache;
+
+    @Setup
+    public void setUp() {
+        // 缓存条数放大到写入后仍能完整覆盖热点患者，便于校验
+        context = BenchmarkFixtures.startContext("medical.patient-cache.recent-size=1000");
+        medicalService = context.getBean(MedicalService.class);
+        medicalQueryService = context.getBean(MedicalQueryService.class);
+        chargeRecordRepository = context.getBean(ChargeRecordRepository.class);
+        patientHistoryCache = context.getBean(PatientHistoryCache.class);
+        for (int i = 0; i < PATIENTS; i++) {
+            for (int j = 0; j < 5; j++) {
+                medicalService.handleChargeButtonClick(BenchmarkFixtures.chargeButtonClickRequest(identityCard(i)));
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        try {
+            verifyConsistency();
+        } finally {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    @Group("cached")
+    @GroupThreads(3)
+    public List<ChargeRecord> cachedRead() {
+        return medicalQueryService.getChargeRecordsByIdentityCard(identityCard(randomPatient(PATIENTS)));
+    }
+
+    @Benchmark
+    @Group("cached")
+    @GroupThreads(1)
+    public void cachedWrite() {
+        medicalService.handleChargeButtonClick(BenchmarkFixtures.chargeButtonClickRequest(
+                identityCard(randomPatient(HOT_PATIENTS))));
+    }
+
+    @Benchmark
+    @Group("direct")
+    @GroupThreads(3)
+    public List<ChargeRecord> directRead() {
+        return chargeRecordRepository.findByIdentityCardNumberOrderByCreateTimeDesc(
+                identityCard(randomPatient(PATIENTS)), Pageable.unpaged());
+    }
+
+    @Benchmark
+    @Group("direct")
+    @GroupThreads(1)
+    public void directWrite() {
+        cachedWrite();
+    }
+
+    private void verifyConsistency() {
+        for (int i = 0; i < PATIENTS; i++) {
+            String identityCard = identityCard(i);
+            List<ChargeRecord> cached = patientHistoryCache.getChargeRecords(identityCard);
+            if (cached == null) {
+                continue;
+            }
+            // 同一毫秒创建的记录先后顺序不确定，按ID集合比对
+            Set<String> expected = ids(chargeRecordRepository.findByIdentityCardNumberOrderByCreateTimeDesc(
+                    identityCard, Pageable.unpaged()));
+            Set<String> actual = ids(cached);
+            if (!expected.equals(actual) || cached.size() != expected.size()) {
+                throw new IllegalStateException("缓存与数据库不一致 - 身份证号: " + identityCard
+                        + ", 缓存: " + actual.size() + ", 数据库: " + expected.size());
+            }
+        }
+    }
+
+    private static Set<String> ids(List<ChargeRecord> records) {
+        Set<String> ids = new HashSet<>();
+        for (ChargeRecord record : records) {
+            ids.add(record.getId());
+        }
+        return ids;
+    }
+
+    private static int randomPatient(int bound) {
+        return ThreadLocalRandom.current().nextInt(bound);
+    }
+
+    private static String identityCard(int patient) {
+        return String.format("1101011980%08d", patient);
+    }
+}
@@ -0,0 +1,78 @@
+package com.proshine.shahecommunityhospital.benchmark;
+
+import com.proshine.shahecommunityhospital.entity.ChargeRecord;
+import com.proshine.shahecommunityhospital.repository.ChargeRecordRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.BeanUtils;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 最新待确认记录查找基准
+ * 同一身份证号堆积的待确认记录越多，全量加载的耗时线性增长，索引+LIMIT 1 应保持不变
+ *
+ * @author lenovo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PendingLookupBenchmark {
+
+    private static final String IDENTITY_CARD = "110101198001010000";
+
+    @Param({"10", "1000", "10000"})
+    private int pendingRows;
+
+    private ConfigurableApplicationContext context;
+
+    private ChargeRecordRepository chargeRecordRepository;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkFixtures.startContext();
+        chargeRecordRepository = context.getBean(ChargeRecordRepository.class);
+        List<ChargeRecord> records = new ArrayList<>(pendingRows);
+        for (int i = 0; i < pendingRows; i++) {
+            ChargeRecord record = new ChargeRecord();
+            BeanUtils.copyProperties(BenchmarkFixtures.chargeButtonClickRequest(IDENTITY_CARD), record);
+            record.setStatus("PENDING");
+            records.add(record);
+        }
+        chargeRecordRepository.saveAll(records);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<ChargeRecord> latestPendingIndexed() {
+        return chargeRecordRepository.findFirstByIdentityCardNumberAndStatusAndWindowIdOrderByCreateTimeDesc(
+                IDENTITY_CARD, "PENDING", "W01");
+    }
+
+    @Benchmark
+    public ChargeRecord latestPendingFullList() {
+        List<ChargeRecord> records = chargeRecordRepository.findByIdentityCardNumberAndStatus(IDENTITY_CARD, "PENDING");
+        return records.get(records.size() - 1);
+    }
+}
@@ -0,0 +1,79 @@
+package com.proshine.shahecommunityhospital.benchmark;
+
+import com.proshine.shahecommunityhospital.dto.ChargeButtonClickRequest;
+import com.proshine.shahecommunityhospital.dto.ConfirmRefundRequest;
+import com.proshine.shahecommunityhospital.validation.MedicalRequestRules;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求参数校验基准
+ * 合法请求、缺少一个字段、全部字段缺失三种情况下每个请求的校验耗时，
+ * gc.alloc.rate.norm 为每次校验的分配量
+ *
+ * @author lenovo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+    private final ChargeButtonClickRequest chargeRequest =
+            BenchmarkFixtures.chargeButtonClickRequest("110101198001010000");
+
+    private final ConfirmRefundRequest refundRequest =
+            BenchmarkFixtures.confirmRefundRequest("110101198001010000");
+
+    private final ChargeButtonClickRequest missingOperator = missingOperator();
+
+    private final ChargeButtonClickRequest emptyRequest = new ChargeButtonClickRequest();
+
+    @Benchmark
+    public List<String> validCharge() {
+        return MedicalRequestRules.CHARGE.validate(chargeRequest);
+    }
+
+    @Benchmark
+    public List<String> validRefund() {
+        return MedicalRequestRules.REFUND.validate(refundRequest);
+    }
+
+    @Benchmark
+    public Object missingOneField() {
+        try {
+            MedicalRequestRules.CHARGE.check(missingOperator);
+            return null;
+        } catch (IllegalArgumentException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object missingAllFields() {
+        try {
+            MedicalRequestRules.CHARGE.check(emptyRequest);
+            return null;
+        } catch (IllegalArgumentException e) {
+            return e;
+        }
+    }
+
+    private static ChargeButtonClickRequest missingOperator() {
+        ChargeButtonClickRequest request = BenchmarkFixtures.chargeButtonClickRequest("110101198001010000");
+        request.setOperator(" ");
+        return request;
+    }
+}
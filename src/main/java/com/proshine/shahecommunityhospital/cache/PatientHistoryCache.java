@@ -0,0 +1,322 @@
+package com.proshine.shahecommunityhospital.cache;
+
+import com.proshine.shahecommunityhospital.entity.ChargeRecord;
+import com.proshine.shahecommunityhospital.entity.RefundRecord;
+import com.proshine.shahecommunityhospital.event.MedicalRecordChangedEvent;
+import com.proshine.shahecommunityhospital.repository.ChargeRecordRepository;
+import com.proshine.shahecommunityhospital.repository.RefundRecordRepository;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 患者最近收费/退费记录缓存
+ * 按身份证号缓存最近 N 条记录（按创建时间倒序），容量有上限，按LRU淘汰、按TTL过期；
+ * 记录保存的事务提交后写入缓存。患者记录不超过 N 条时缓存即完整历史，可直接返回，
+ * 超过 N 条时仍查库。加载期间有写入提交时不回填，避免缓存旧数据；
+ * 启用读副本时加载可能读到复制延迟前的数据，由TTL兜底。
+ * 缓存保存记录的副本，每次命中也返回副本，调用方和保存记录的事务修改实体都不会影响缓存
+ *
+ * @author lenovo
+ */
+@Component
+public class PatientHistoryCache {
+
+    private final int recentSize;
+
+    private final int maxSize;
+
+    private final long ttlMillis;
+
+    private final RecentRecords<ChargeRecord> charges;
+
+    private final RecentRecords<RefundRecord> refunds;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder bypassCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    public PatientHistoryCache(ChargeRecordRepository chargeRecordRepository,
+                               RefundRecordRepository refundRecordRepository,
+                               @Value("${medical.patient-cache.recent-size:20}") int recentSize,
+                               @Value("${medical.patient-cache.max-size:2000}") int maxSize,
+                               @Value("${medical.patient-cache.ttl-seconds:600}") long ttlSeconds) {
+        this.recentSize = recentSize;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000L;
+        this.charges = new RecentRecords<>(chargeRecordRepository::findByIdentityCardNumberOrderByCreateTimeDesc,
+                ChargeRecord::getId, ChargeRecord::getCreateTime, PatientHistoryCache::copy);
+        this.refunds = new RecentRecords<>(refundRecordRepository::findByIdentityCardNumberOrderByCreateTimeDesc,
+                RefundRecord::getId, RefundRecord::getCreateTime, PatientHistoryCache::copy);
+    }
+
+    /**
+     * 患者的全部收费记录，按创建时间倒序
+     *
+     * @return 记录不超过 N 条时返回缓存记录的副本，否则返回null，由调用方查库
+     */
+    public List<ChargeRecord> getChargeRecords(String identityCardNumber) {
+        return charges.get(identityCardNumber);
+    }
+
+    /**
+     * 患者的全部退费记录，按创建时间倒序
+     *
+     * @return 记录不超过 N 条时返回缓存记录的副本，否则返回null，由调用方查库
+     */
+    public List<RefundRecord> getRefundRecords(String identityCardNumber) {
+        return refunds.get(identityCardNumber);
+    }
+
+    /**
+     * 记录保存的事务提交后写入缓存
+     */
+    @TransactionalEventListener
+    public void onRecordChanged(MedicalRecordChangedEvent event) {
+        if (event.getChargeRecord() != null) {
+            charges.onSaved(event.getChargeRecord().getIdentityCardNumber(), event.getChargeRecord());
+        }
+        if (event.getRefundRecord() != null) {
+            refunds.onSaved(event.getRefundRecord().getIdentityCardNumber(), event.getRefundRecord());
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void invalidateAll() {
+        charges.clear();
+        refunds.clear();
+    }
+
+    /**
+     * 缓存统计快照
+     */
+    public Stats stats() {
+        return new Stats(charges.size() + refunds.size(), hitCount.sum(), missCount.sum(), bypassCount.sum(),
+                evictionCount.sum());
+    }
+
+    private final class RecentRecords<T> {
+
+        private final BiFunction<String, Pageable, List<T>> loader;
+
+        private final Function<T, String> idOf;
+
+        private final Function<T, Long> createTimeOf;
+
+        private final UnaryOperator<T> copyOf;
+
+        /**
+         * 访问顺序的LinkedHashMap，头部为最久未访问
+         */
+        private final LinkedHashMap<String, Entry<T>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        /**
+         * 写入代数，加载期间有写入提交时不回填
+         */
+        private long generation;
+
+        private RecentRecords(BiFunction<String, Pageable, List<T>> loader, Function<T, String> idOf,
+                              Function<T, Long> createTimeOf, UnaryOperator<T> copyOf) {
+            this.loader = loader;
+            this.idOf = idOf;
+            this.createTimeOf = createTimeOf;
+            this.copyOf = copyOf;
+        }
+
+        private List<T> get(String key) {
+            if (!StringUtils.hasText(key)) {
+                return Collections.emptyList();
+            }
+            long now = System.currentTimeMillis();
+            long gen;
+            synchronized (this) {
+                Entry<T> entry = entries.get(key);
+                if (entry != null && entry.expireAt > now) {
+                    if (entry.complete) {
+                        hitCount.increment();
+                        return copyAll(entry.records, entry.records.size());
+                    }
+                    bypassCount.increment();
+                    return null;
+                }
+                gen = generation;
+            }
+            missCount.increment();
+            List<T> loaded = loader.apply(key, PageRequest.of(0, recentSize + 1));
+            boolean complete = loaded.size() <= recentSize;
+            List<T> records = copyAll(loaded, complete ? loaded.size() : recentSize);
+            synchronized (this) {
+                if (generation == gen) {
+                    entries.put(key, new Entry<>(records, complete, now + ttlMillis));
+                    evict(now);
+                }
+            }
+            // 刚查出的实体只交给本次调用方，缓存保存的是副本
+            return complete ? Collections.unmodifiableList(loaded) : null;
+        }
+
+        private synchronized void onSaved(String key, T record) {
+            generation++;
+            Entry<T> entry = entries.get(key);
+            if (entry == null) {
+                return;
+            }
+            T saved = copyOf.apply(record);
+            String id = idOf.apply(saved);
+            Long createTime = createTimeOf.apply(saved);
+            List<T> records = new ArrayList<>(entry.records.size() + 1);
+            boolean inserted = false;
+            for (T existing : entry.records) {
+                if (id.equals(idOf.apply(existing))) {
+                    continue;
+                }
+                if (!inserted && compare(createTime, createTimeOf.apply(existing)) >= 0) {
+                    records.add(saved);
+                    inserted = true;
+                }
+                records.add(existing);
+            }
+            if (!inserted) {
+                records.add(saved);
+            }
+            boolean complete = entry.complete;
+            if (records.size() > recentSize) {
+                records.remove(records.size() - 1);
+                complete = false;
+            }
+            entries.put(key, new Entry<>(Collections.unmodifiableList(records), complete, entry.expireAt));
+        }
+
+        private List<T> copyAll(List<T> records, int size) {
+            List<T> copies = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                copies.add(copyOf.apply(records.get(i)));
+            }
+            return Collections.unmodifiableList(copies);
+        }
+
+        private synchronized void clear() {
+            generation++;
+            entries.clear();
+        }
+
+        private synchronized int size() {
+            return entries.size();
+        }
+
+        /**
+         * 先清理过期项，仍超出容量时淘汰最久未访问的项
+         */
+        private void evict(long now) {
+            if (entries.size() <= maxSize) {
+                return;
+            }
+            entries.values().removeIf(entry -> entry.expireAt <= now);
+            Iterator<Map.Entry<String, Entry<T>>> it = entries.entrySet().iterator();
+            while (entries.size() > maxSize && it.hasNext()) {
+                it.next();
+                it.remove();
+                evictionCount.increment();
+            }
+        }
+    }
+
+    private static ChargeRecord copy(ChargeRecord record) {
+        ChargeRecord copy = new ChargeRecord();
+        copy.setId(record.getId());
+        copy.setAddressId(record.getAddressId());
+        copy.setAddressName(record.getAddressName());
+        copy.setWindowId(record.getWindowId());
+        copy.setWindowName(record.getWindowName());
+        copy.setName(record.getName());
+        copy.setAge(record.getAge());
+        copy.setSex(record.getSex());
+        copy.setReceivable(record.getReceivable());
+        copy.setPaidUp(record.getPaidUp());
+        copy.setChange(record.getChange());
+        copy.setSocialSecurityNumber(record.getSocialSecurityNumber());
+        copy.setIdentityCardNumber(record.getIdentityCardNumber());
+        copy.setOperator(record.getOperator());
+        copy.setOperateTime(record.getOperateTime());
+        copy.setOperateTimestamp(record.getOperateTimestamp());
+        copy.setAgeYears(record.getAgeYears());
+        copy.setStatus(record.getStatus());
+        copy.setCreateTime(record.getCreateTime());
+        copy.setUpdateTime(record.getUpdateTime());
+        copy.setVersion(record.getVersion());
+        return copy;
+    }
+
+    private static RefundRecord copy(RefundRecord record) {
+        RefundRecord copy = new RefundRecord();
+        copy.setId(record.getId());
+        copy.setAddressId(record.getAddressId());
+        copy.setAddressName(record.getAddressName());
+        copy.setWindowId(record.getWindowId());
+        copy.setWindowName(record.getWindowName());
+        copy.setName(record.getName());
+        copy.setAge(record.getAge());
+        copy.setSex(record.getSex());
+        copy.setReceivable(record.getReceivable());
+        copy.setRealRefundAmount(record.getRealRefundAmount());
+        copy.setSocialSecurityNumber(record.getSocialSecurityNumber());
+        copy.setIdentityCardNumber(record.getIdentityCardNumber());
+        copy.setOperator(record.getOperator());
+        copy.setOperateTime(record.getOperateTime());
+        copy.setOperateTimestamp(record.getOperateTimestamp());
+        copy.setAgeYears(record.getAgeYears());
+        copy.setStatus(record.getStatus());
+        copy.setCreateTime(record.getCreateTime());
+        copy.setUpdateTime(record.getUpdateTime());
+        copy.setVersion(record.getVersion());
+        return copy;
+    }
+
+    private static int compare(Long a, Long b) {
+        return Long.compare(a != null ? a : 0L, b != null ? b : 0L);
+    }
+
+    @AllArgsConstructor
+    private static final class Entry<T> {
+        private final List<T> records;
+        private final boolean complete;
+        private final long expireAt;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Stats {
+        private int size;
+        private long hitCount;
+        private long missCount;
+        private long bypassCount;
+        private long evictionCount;
+
+        public double hitRatio() {
+            long total = hitCount + missCount + bypassCount;
+            return total == 0 ? 0D : (double) hitCount / total;
+        }
+    }
+}
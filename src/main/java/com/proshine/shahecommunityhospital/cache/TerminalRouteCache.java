@@ -0,0 +1,183 @@
+package com.proshine.shahecommunityhospital.cache;
+
+import com.proshine.shahecommunityhospital.repository.TbTerminalRepository;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 窗口 -> 终端ID 路由缓存
+ * 只缓存 windowId(extra_id2) 对应的 terminalId 列表，数量有上限，
+ * 按TTL过期，终端表变更时主动失效。
+ * 同一窗口未命中时只有一个线程查库，同一窗口的其余线程等待其结果，其他窗口不受影响：
+ * 映射项先放入未完成的加载结果，查库在映射操作之外进行。
+ * 加载期间到达的失效立即移除该项，加载结果只返回给已在等待的线程，不会留在缓存中
+ *
+ * @author lenovo
+ */
+@Slf4j
+@Component
+public class TerminalRouteCache {
+
+    private final TbTerminalRepository tbTerminalRepository;
+
+    private final int maxSize;
+
+    private final long ttlMillis;
+
+    private final Map<String, Route> routes = new ConcurrentHashMap<>();
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder loadCount = new LongAdder();
+
+    private final LongAdder loadNanos = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    public TerminalRouteCache(TbTerminalRepository tbTerminalRepository,
+                              @Value("${terminal.route-cache.max-size:1024}") int maxSize,
+                              @Value("${terminal.route-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.tbTerminalRepository = tbTerminalRepository;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000L;
+    }
+
+    /**
+     * 获取窗口绑定的终端ID
+     *
+     * @param windowId 窗口ID
+     * @return 终端ID列表，不可修改
+     */
+    public List<String> getTerminalIds(String windowId) {
+        if (!StringUtils.hasText(windowId)) {
+            return Collections.emptyList();
+        }
+        long now = System.currentTimeMillis();
+        Route route = routes.get(windowId);
+        if (route != null && route.expireAt > now) {
+            hitCount.increment();
+            return route.await();
+        }
+        if (route == null && routes.size() >= maxSize) {
+            evict(now);
+        }
+        Route created = new Route(new CompletableFuture<>(), now + ttlMillis);
+        Route current = routes.compute(windowId, (key, existing) ->
+                existing != null && existing.expireAt > System.currentTimeMillis() ? existing : created);
+        if (current != created) {
+            // 已由其他线程加载或正在加载
+            hitCount.increment();
+            return current.await();
+        }
+        missCount.increment();
+        try {
+            List<String> terminalIds = load(windowId);
+            created.terminalIds.complete(terminalIds);
+            return terminalIds;
+        } catch (RuntimeException e) {
+            routes.remove(windowId, created);
+            created.terminalIds.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 使指定窗口的路由失效
+     */
+    public void invalidate(String windowId) {
+        routes.remove(windowId);
+    }
+
+    /**
+     * 清空全部路由
+     */
+    public void invalidateAll() {
+        routes.clear();
+    }
+
+    /**
+     * 缓存统计快照
+     */
+    public Stats stats() {
+        return new Stats(routes.size(), hitCount.sum(), missCount.sum(), loadCount.sum(),
+                loadNanos.sum(), evictionCount.sum());
+    }
+
+    private List<String> load(String windowId) {
+        long start = System.nanoTime();
+        try {
+            List<String> ids = tbTerminalRepository.findTerminalIdsByExtraId2(windowId);
+            List<String> terminalIds = new ArrayList<>(ids.size());
+            for (String id : ids) {
+                if (StringUtils.hasText(id)) {
+                    terminalIds.add(id);
+                }
+            }
+            return terminalIds.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(terminalIds);
+        } finally {
+            loadCount.increment();
+            loadNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 容量已满时先清理过期项，仍然已满则随机淘汰一项
+     */
+    private void evict(long now) {
+        routes.entrySet().removeIf(e -> e.getValue().expireAt <= now);
+        Iterator<String> it = routes.keySet().iterator();
+        while (routes.size() >= maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictionCount.increment();
+        }
+    }
+
+    @AllArgsConstructor
+    private static final class Route {
+        private final CompletableFuture<List<String>> terminalIds;
+        private final long expireAt;
+
+        /**
+         * 等待加载完成，加载失败时抛出原异常
+         */
+        private List<String> await() {
+            try {
+                return terminalIds.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Stats {
+        private int size;
+        private long hitCount;
+        private long missCount;
+        private long loadCount;
+        private long totalLoadNanos;
+        private long evictionCount;
+
+        public double averageLoadMillis() {
+            return loadCount == 0 ? 0D : totalLoadNanos / 1_000_000D / loadCount;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.proshine.shahecommunityhospital.cache;
+
+import com.proshine.shahecommunityhospital.entity.TbTerminal;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * 终端表变更监听，事务提交后使路由缓存失效
+ * 由Hibernate通过SpringBeanContainer创建，缓存延迟获取避免与EntityManagerFactory循环依赖
+ *
+ * @author lenovo
+ */
+public class TerminalRouteInvalidationListener {
+
+    private final ObjectProvider<TerminalRouteCache> terminalRouteCache;
+
+    public TerminalRouteInvalidationListener(ObjectProvider<TerminalRouteCache> terminalRouteCache) {
+        this.terminalRouteCache = terminalRouteCache;
+    }
+
+    @PostPersist
+    public void onPersist(TbTerminal terminal) {
+        afterCommit(terminal.getExtraId2());
+    }
+
+    /**
+     * 更新和删除时无法得知旧的窗口ID，直接清空全部路由
+     */
+    @PostUpdate
+    @PostRemove
+    public void onChange(TbTerminal terminal) {
+        afterCommit(null);
+    }
+
+    private void afterCommit(String windowId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(windowId);
+                }
+            });
+        } else {
+            invalidate(windowId);
+        }
+    }
+
+    private void invalidate(String windowId) {
+        TerminalRouteCache cache = terminalRouteCache.getIfAvailable();
+        if (cache == null) {
+            return;
+        }
+        if (windowId == null) {
+            cache.invalidateAll();
+        } else {
+            cache.invalidate(windowId);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.proshine.shahecommunityhospital.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 游标分页结果
+ * 按 (createTime, id) 倒序，下一页以 nextCreateTime/nextId 作为游标
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class KeysetPage<T> {
+
+    /**
+     * 当前页数据
+     */
+    private List<T> records;
+
+    /**
+     * 是否还有下一页
+     */
+    private boolean hasMore;
+
+    /**
+     * 下一页游标：本页最后一条记录的创建时间戳
+     */
+    private Long nextCreateTime;
+
+    /**
+     * 下一页游标：本页最后一条记录的ID
+     */
+    private String nextId;
+
+}
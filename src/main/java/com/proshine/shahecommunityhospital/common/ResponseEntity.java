@@ -25,10 +25,11 @@ public class ResponseEntity<T> implements Serializable {
         int FAILURE = 500;
         int UNAUTHORIZED = 401;
         int FORBIDDEN = 403;
+        int CONFLICT = 409;
     }
 
     /**
-     * 接口返回值状态码，200 代表成功 500 代表失败
+     * 接口返回值状态码，200 代表成功 500 代表失败 409 代表并发冲突、可稍后重试
      * @mock 200
      */
     private int code;
@@ -0,0 +1,24 @@
+package com.proshine.shahecommunityhospital.config;
+
+import com.proshine.shahecommunityhospital.utils.OperateTimeParser;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.ZoneId;
+
+/**
+ * 操作时间解析时区
+ * 实体在写入时解析操作时间，无法注入配置，启动时把配置的时区设置到 OperateTimeParser
+ *
+ * @author lenovo
+ */
+@Slf4j
+@Configuration
+public class OperateTimeConfig {
+
+    public OperateTimeConfig(@Value("${medical.operate-time.zone-id:GMT+8}") ZoneId zoneId) {
+        OperateTimeParser.setZone(zoneId);
+        log.info("操作时间解析时区：{}", zoneId);
+    }
+}
@@ -0,0 +1,44 @@
+package com.proshine.shahecommunityhospital.config;
+
+import com.proshine.shahecommunityhospital.utils.OrderedUuid;
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Properties;
+import java.util.UUID;
+
+/**
+ * 36位字符串主键生成器
+ * 默认生成按时间有序的UUID，新行追加在聚簇索引末尾；
+ * spring.jpa.properties.medical.id.strategy=random 时回退为随机UUID（与uuid2一致）
+ *
+ * @author lenovo
+ */
+public class OrderedUuidGenerator implements IdentifierGenerator {
+
+    public static final String STRATEGY = "com.proshine.shahecommunityhospital.config.OrderedUuidGenerator";
+
+    /**
+     * Hibernate配置项，对应 spring.jpa.properties.medical.id.strategy
+     */
+    public static final String STRATEGY_SETTING = "medical.id.strategy";
+
+    private boolean ordered = true;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        String strategy = serviceRegistry.getService(ConfigurationService.class)
+                .getSetting(STRATEGY_SETTING, String.class, "ordered");
+        ordered = !"random".equalsIgnoreCase(strategy);
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        return OrderedUuid.toString(ordered ? OrderedUuid.next() : UUID.randomUUID(), false);
+    }
+}
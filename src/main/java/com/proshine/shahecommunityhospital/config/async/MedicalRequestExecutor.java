@@ -0,0 +1,170 @@
+package com.proshine.shahecommunityhospital.config.async;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 收费/退费接口的请求执行器
+ * 关闭异步模式时在请求线程内直接执行；开启后提交到独立的有界执行器，
+ * Tomcat 工作线程立即归还，数据库写入和终端查询在执行器线程中完成。
+ * 执行器类型为 virtual 且运行在支持虚拟线程的JDK上时每个请求一个虚拟线程，
+ * 否则使用固定大小的平台线程池；两种模式并发执行的请求数都不超过 max-concurrency，
+ * 超出时拒绝并由调用方返回失败
+ *
+ * @author lenovo
+ */
+@Slf4j
+@Component
+public class MedicalRequestExecutor {
+
+    /**
+     * 执行器类型
+     */
+    public enum Mode {
+        /**
+         * 固定大小的平台线程池
+         */
+        PLATFORM,
+        /**
+         * 每个请求一个虚拟线程，JDK不支持时退回平台线程池
+         */
+        VIRTUAL
+    }
+
+    private final boolean enabled;
+
+    private final Mode mode;
+
+    private final int poolSize;
+
+    private final int queueCapacity;
+
+    private final int maxConcurrency;
+
+    private final Semaphore permits;
+
+    private ExecutorService executor;
+
+    private final LongAdder submittedCount = new LongAdder();
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    public MedicalRequestExecutor(@Value("${medical.async.enabled:false}") boolean enabled,
+                                  @Value("${medical.async.executor:PLATFORM}") Mode mode,
+                                  @Value("${medical.async.pool-size:32}") int poolSize,
+                                  @Value("${medical.async.queue-capacity:1000}") int queueCapacity,
+                                  @Value("${medical.async.max-concurrency:1000}") int maxConcurrency) {
+        this.enabled = enabled;
+        this.mode = mode;
+        this.poolSize = poolSize;
+        this.queueCapacity = queueCapacity;
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        if (mode == Mode.VIRTUAL) {
+            executor = newVirtualThreadExecutor();
+        }
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("medical-async-"),
+                    new ThreadPoolExecutor.AbortPolicy());
+            log.info("收费接口异步执行已启用，平台线程池：{}，队列容量：{}，最大并发：{}",
+                    poolSize, queueCapacity, maxConcurrency);
+        } else {
+            log.info("收费接口异步执行已启用，虚拟线程，最大并发：{}", maxConcurrency);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 执行请求
+     *
+     * @param task 请求处理
+     * @return 处理结果；未启用异步模式时在调用线程内执行，返回已完成的结果
+     * @throws RejectedExecutionException 并发请求数或队列已满
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        if (executor == null) {
+            return CompletableFuture.completedFuture(task.get());
+        }
+        if (!permits.tryAcquire()) {
+            rejectedCount.increment();
+            throw new RejectedExecutionException("并发请求数已达上限");
+        }
+        try {
+            CompletableFuture<T> future = CompletableFuture.supplyAsync(task, executor);
+            future.whenComplete((result, error) -> permits.release());
+            submittedCount.increment();
+            return future;
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            rejectedCount.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * 执行统计快照
+     */
+    public Stats stats() {
+        int queued = executor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) executor).getQueue().size() : 0;
+        return new Stats(executor != null, maxConcurrency - permits.availablePermits(), queued,
+                submittedCount.sum(), rejectedCount.sum());
+    }
+
+    /**
+     * JDK 21 起提供 Executors.newVirtualThreadPerTaskExecutor，项目按 Java 8 编译，通过反射获取
+     */
+    private ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.warn("当前JDK({})不支持虚拟线程，收费接口异步执行退回平台线程池",
+                    System.getProperty("java.version"));
+            return null;
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Stats {
+        private boolean enabled;
+        private int inFlight;
+        private int queueDepth;
+        private long submittedCount;
+        private long rejectedCount;
+    }
+}
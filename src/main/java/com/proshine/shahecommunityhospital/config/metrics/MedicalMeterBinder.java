@@ -0,0 +1,138 @@
+package com.proshine.shahecommunityhospital.config.metrics;
+
+import com.proshine.shahecommunityhospital.cache.PatientHistoryCache;
+import com.proshine.shahecommunityhospital.cache.TerminalRouteCache;
+import com.proshine.shahecommunityhospital.config.async.MedicalRequestExecutor;
+import com.proshine.shahecommunityhospital.config.mqtt.MqttNotificationDispatcher;
+import com.proshine.shahecommunityhospital.idempotency.IdempotencyGuard;
+import com.proshine.shahecommunityhospital.service.MedicalService;
+import com.proshine.shahecommunityhospital.service.PendingFeedService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 把路由缓存、患者记录缓存、请求执行器、待确认推送、MQTT通知分发器和重复请求拦截的统计注册为指标
+ * 不实现 MeterBinder：MQTT发布依赖注册表，由注册表反向绑定会形成循环依赖
+ *
+ * @author lenovo
+ */
+@Component
+public class MedicalMeterBinder {
+
+    private final TerminalRouteCache terminalRouteCache;
+
+    private final PatientHistoryCache patientHistoryCache;
+
+    private final MedicalRequestExecutor medicalRequestExecutor;
+
+    private final PendingFeedService pendingFeedService;
+
+    private final MqttNotificationDispatcher mqttNotificationDispatcher;
+
+    private final IdempotencyGuard idempotencyGuard;
+
+    private final MedicalService medicalService;
+
+    private final MeterRegistry registry;
+
+    public MedicalMeterBinder(MeterRegistry registry,
+                              TerminalRouteCache terminalRouteCache,
+                              PatientHistoryCache patientHistoryCache,
+                              MedicalRequestExecutor medicalRequestExecutor,
+                              PendingFeedService pendingFeedService,
+                              MqttNotificationDispatcher mqttNotificationDispatcher,
+                              IdempotencyGuard idempotencyGuard,
+                              MedicalService medicalService) {
+        this.terminalRouteCache = terminalRouteCache;
+        this.patientHistoryCache = patientHistoryCache;
+        this.medicalRequestExecutor = medicalRequestExecutor;
+        this.pendingFeedService = pendingFeedService;
+        this.mqttNotificationDispatcher = mqttNotificationDispatcher;
+        this.idempotencyGuard = idempotencyGuard;
+        this.medicalService = medicalService;
+        this.registry = registry;
+    }
+
+    @PostConstruct
+    public void bind() {
+        Gauge.builder("terminal.route.cache.size", terminalRouteCache, c -> c.stats().getSize())
+                .register(registry);
+        FunctionCounter.builder("terminal.route.cache.gets", terminalRouteCache, c -> c.stats().getHitCount())
+                .tag("result", "hit").register(registry);
+        FunctionCounter.builder("terminal.route.cache.gets", terminalRouteCache, c -> c.stats().getMissCount())
+                .tag("result", "miss").register(registry);
+        FunctionCounter.builder("terminal.route.cache.evictions", terminalRouteCache, c -> c.stats().getEvictionCount())
+                .register(registry);
+
+        Gauge.builder("patient.history.cache.size", patientHistoryCache, c -> c.stats().getSize())
+                .register(registry);
+        Gauge.builder("patient.history.cache.hit.ratio", patientHistoryCache, c -> c.stats().hitRatio())
+                .register(registry);
+        patientCounter("hit", c -> c.stats().getHitCount());
+        patientCounter("miss", c -> c.stats().getMissCount());
+        patientCounter("bypass", c -> c.stats().getBypassCount());
+        FunctionCounter.builder("patient.history.cache.evictions", patientHistoryCache, c -> c.stats().getEvictionCount())
+                .register(registry);
+
+        Gauge.builder("medical.async.inflight", medicalRequestExecutor, e -> e.stats().getInFlight())
+                .register(registry);
+        Gauge.builder("medical.async.queue.depth", medicalRequestExecutor, e -> e.stats().getQueueDepth())
+                .register(registry);
+        FunctionCounter.builder("medical.async.requests", medicalRequestExecutor, e -> e.stats().getSubmittedCount())
+                .tag("result", "submitted").register(registry);
+        FunctionCounter.builder("medical.async.requests", medicalRequestExecutor, e -> e.stats().getRejectedCount())
+                .tag("result", "rejected").register(registry);
+
+        Gauge.builder("pending.feed.subscribers", pendingFeedService, f -> f.stats().getSubscriberCount())
+                .register(registry);
+        Gauge.builder("pending.feed.records", pendingFeedService, f -> f.stats().getPendingChargeCount())
+                .tag("type", "charge").register(registry);
+        Gauge.builder("pending.feed.records", pendingFeedService, f -> f.stats().getPendingRefundCount())
+                .tag("type", "refund").register(registry);
+        Gauge.builder("pending.feed.addresses", pendingFeedService, f -> f.stats().getFeedCount())
+                .register(registry);
+        FunctionCounter.builder("pending.feed.dropped", pendingFeedService, f -> f.stats().getDroppedCount())
+                .register(registry);
+
+        Gauge.builder("mqtt.notify.queue.depth", mqttNotificationDispatcher, d -> d.stats().getQueueDepth())
+                .register(registry);
+        notifyCounter("submitted", d -> d.stats().getSubmittedCount());
+        notifyCounter("published", d -> d.stats().getPublishedCount());
+        notifyCounter("failed", d -> d.stats().getFailedCount());
+        notifyCounter("dropped", d -> d.stats().getDroppedCount());
+        notifyCounter("rejected", d -> d.stats().getRejectedCount());
+
+        Gauge.builder("medical.idempotency.keys", idempotencyGuard, g -> g.stats().getSize())
+                .register(registry);
+        FunctionCounter.builder("medical.idempotency.requests", idempotencyGuard, g -> g.stats().getAcceptedCount())
+                .tag("result", "accepted").register(registry);
+        FunctionCounter.builder("medical.idempotency.requests", idempotencyGuard, g -> g.stats().getSuppressedCount())
+                .tag("result", "suppressed").register(registry);
+
+        // conflict：待确认记录已被并发确认后重试；exhausted：重试耗尽返回失败
+        FunctionCounter.builder("medical.confirm.conflicts", medicalService, m -> m.stats().getConflictCount())
+                .tag("result", "conflict").register(registry);
+        FunctionCounter.builder("medical.confirm.conflicts", medicalService, m -> m.stats().getExhaustedCount())
+                .tag("result", "exhausted").register(registry);
+    }
+
+    /**
+     * bypass：缓存命中但患者记录超过缓存条数，仍需查库
+     */
+    private void patientCounter(String result, ToDoubleFunction<PatientHistoryCache> count) {
+        FunctionCounter.builder("patient.history.cache.gets", patientHistoryCache, count)
+                .tag("result", result).register(registry);
+    }
+
+    private void notifyCounter(String result,
+                               ToDoubleFunction<MqttNotificationDispatcher> count) {
+        FunctionCounter.builder("mqtt.notify.notifications", mqttNotificationDispatcher, count)
+                .tag("result", result).register(registry);
+    }
+}
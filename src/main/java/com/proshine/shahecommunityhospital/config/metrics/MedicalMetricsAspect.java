@@ -0,0 +1,145 @@
+package com.proshine.shahecommunityhospital.config.metrics;
+
+import com.proshine.shahecommunityhospital.common.ResponseEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 收费/退费接口与服务方法计时
+ * medical.endpoint 记录控制器接口耗时，medical.service 记录服务方法耗时，
+ * 均按 operation(方法名)、addressId(请求参数中的医院ID) 和 outcome 打标签。
+ * 医院ID来自客户端请求，标签值只取配置的已知医院；未配置时按先到先得最多保留 max-address-ids 个，
+ * 其余归入 other，避免任意取值使时间序列(含直方图)无限增长
+ *
+ * @author lenovo
+ */
+@Aspect
+@Component
+public class MedicalMetricsAspect {
+
+    private static final String NONE = "none";
+
+    static final String OTHER = "other";
+
+    private static final int MAX_ADDRESS_ID_LENGTH = 50;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 参数类型 -> getAddressId 方法，没有该方法的类型缓存为空
+     */
+    private final Map<Class<?>, Optional<Method>> addressIdGetters = new ConcurrentHashMap<>();
+
+    /**
+     * 可作为标签值的医院ID；配置了已知医院时固定不变
+     */
+    private final Set<String> addressTags = ConcurrentHashMap.newKeySet();
+
+    private final boolean addressTagsFixed;
+
+    private final int maxAddressTags;
+
+    public MedicalMetricsAspect(MeterRegistry meterRegistry,
+                                @Value("${medical.metrics.address-ids:}") String[] addressIds,
+                                @Value("${medical.metrics.max-address-ids:50}") int maxAddressTags) {
+        this.meterRegistry = meterRegistry;
+        for (String addressId : addressIds) {
+            if (StringUtils.hasText(addressId)) {
+                addressTags.add(addressId.trim());
+            }
+        }
+        this.addressTagsFixed = !addressTags.isEmpty();
+        this.maxAddressTags = maxAddressTags;
+    }
+
+    @Around("execution(public * com.proshine.shahecommunityhospital.controller.MedicalController.*(..))")
+    public Object timeEndpoint(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("medical.endpoint", joinPoint);
+    }
+
+    @Around("execution(public * com.proshine.shahecommunityhospital.service.MedicalService.*(..))"
+            + " || execution(public * com.proshine.shahecommunityhospital.service.MedicalBatchService.*(..))"
+            + " || execution(public * com.proshine.shahecommunityhospital.service.MedicalQueryService.*(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("medical.service", joinPoint);
+    }
+
+    private Object time(String name, ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            stop(sample, name, joinPoint, e.getClass().getSimpleName());
+            throw e;
+        }
+        if (result instanceof CompletableFuture) {
+            // 异步接口计到处理完成为止
+            ((CompletableFuture<?>) result).whenComplete((value, error) -> stop(sample, name, joinPoint,
+                    error != null ? error.getClass().getSimpleName() : outcome(value)));
+        } else {
+            stop(sample, name, joinPoint, outcome(result));
+        }
+        return result;
+    }
+
+    private void stop(Timer.Sample sample, String name, ProceedingJoinPoint joinPoint, String outcome) {
+        sample.stop(Timer.builder(name)
+                .tag("operation", joinPoint.getSignature().getName())
+                .tag("addressId", addressId(joinPoint.getArgs()))
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+    }
+
+    private static String outcome(Object result) {
+        if (result instanceof ResponseEntity
+                && ((ResponseEntity<?>) result).getCode() != ResponseEntity.StatusCode.SUCCESS) {
+            return "FAIL";
+        }
+        return "SUCCESS";
+    }
+
+    private String addressId(Object[] args) {
+        for (Object arg : args) {
+            if (arg == null) {
+                continue;
+            }
+            Optional<Method> getter = addressIdGetters.computeIfAbsent(arg.getClass(),
+                    type -> Optional.ofNullable(ReflectionUtils.findMethod(type, "getAddressId")));
+            if (getter.isPresent()) {
+                Object addressId = ReflectionUtils.invokeMethod(getter.get(), arg);
+                return addressId != null ? addressTag(addressId.toString()) : NONE;
+            }
+        }
+        return NONE;
+    }
+
+    String addressTag(String addressId) {
+        if (addressTags.contains(addressId)) {
+            return addressId;
+        }
+        if (addressTagsFixed) {
+            return OTHER;
+        }
+        // 并发时可能略超上限，数量仍有界
+        if (addressTags.size() < maxAddressTags && addressId.length() <= MAX_ADDRESS_ID_LENGTH) {
+            addressTags.add(addressId);
+            return addressId;
+        }
+        return OTHER;
+    }
+}
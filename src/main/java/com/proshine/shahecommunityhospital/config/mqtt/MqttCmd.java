@@ -28,9 +28,17 @@ public class MqttCmd {
      */
     private String operation    = "";
 
+    /**
+     * 指令序号，同一窗口内递增，终端据此丢弃过期指令
+     */
+    private Long seq    = null;
 
     public static MqttCmd create(String service, String operation) {
-        return new MqttCmd(PrimaryKeyUtil.generatePrimary(true), service, operation, null);
+        return new MqttCmd(PrimaryKeyUtil.generatePrimary(true), service, operation, null, null);
+    }
+
+    public static MqttCmd create(String service, String operation, long seq) {
+        return new MqttCmd(PrimaryKeyUtil.generatePrimary(true), service, operation, seq, null);
     }
 
     /**
@@ -42,7 +50,7 @@ public class MqttCmd {
     
     @SuppressWarnings("rawtypes")
     public static MqttCmd create(String service, String operation, Map params) {
-        return new MqttCmd(PrimaryKeyUtil.generatePrimary(true), service, operation, params);
+        return new MqttCmd(PrimaryKeyUtil.generatePrimary(true), service, operation, null, params);
     }
     
 }
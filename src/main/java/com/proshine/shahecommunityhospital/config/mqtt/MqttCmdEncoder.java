@@ -0,0 +1,137 @@
+package com.proshine.shahecommunityhospital.config.mqtt;
+
+import com.alibaba.fastjson.JSON;
+import com.proshine.shahecommunityhospital.utils.OrderedUuid;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * MQTT指令编码
+ * 按 (service, operation) 缓存指令的静态字节模板，发布时只写入消息ID和序号，
+ * 直接生成UTF-8字节，不再逐次构建 MqttCmd、序列化成字符串再转字节。
+ * 输出与 fastjson 序列化 MqttCmd 的结果一致：字段按字母顺序，params 为空时省略
+ *
+ * @author lenovo
+ */
+@Component
+public class MqttCmdEncoder {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] ID_PREFIX = "{\"id\":\"".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] SEQ_PREFIX = ",\"seq\":".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int ID_LENGTH = 32;
+
+    /**
+     * 模板数量上限，指令种类固定，超出说明调用方传入了动态内容，不再缓存
+     */
+    private static final int MAX_TEMPLATES = 256;
+
+    private final Map<String, Template> templates = new ConcurrentHashMap<>();
+
+    /**
+     * 编码不带参数的指令
+     *
+     * @param service 服务类型
+     * @param operation 操作类型
+     * @param seq 指令序号
+     * @return UTF-8编码的JSON
+     */
+    public byte[] encode(String service, String operation, long seq) {
+        Template template = template(service, operation);
+        int seqLength = digits(seq);
+        byte[] bytes = new byte[ID_PREFIX.length + ID_LENGTH + template.operation.length
+                + SEQ_PREFIX.length + seqLength + template.service.length];
+        int pos = 0;
+        System.arraycopy(ID_PREFIX, 0, bytes, pos, ID_PREFIX.length);
+        pos += ID_PREFIX.length;
+        pos = writeId(bytes, pos, OrderedUuid.next());
+        System.arraycopy(template.operation, 0, bytes, pos, template.operation.length);
+        pos += template.operation.length;
+        System.arraycopy(SEQ_PREFIX, 0, bytes, pos, SEQ_PREFIX.length);
+        pos += SEQ_PREFIX.length;
+        writeDigits(bytes, pos, seqLength, seq);
+        pos += seqLength;
+        System.arraycopy(template.service, 0, bytes, pos, template.service.length);
+        return bytes;
+    }
+
+    private Template template(String service, String operation) {
+        String key = service + '|' + operation;
+        Template template = templates.get(key);
+        if (template == null) {
+            template = new Template(service, operation);
+            if (templates.size() < MAX_TEMPLATES) {
+                templates.putIfAbsent(key, template);
+            }
+        }
+        return template;
+    }
+
+    private static int digits(long value) {
+        if (value < 0) {
+            return Long.toString(value).length();
+        }
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private static void writeDigits(byte[] bytes, int pos, int length, long value) {
+        if (value < 0) {
+            byte[] digits = Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(digits, 0, bytes, pos, length);
+            return;
+        }
+        for (int i = pos + length - 1; i >= pos; i--) {
+            bytes[i] = (byte) ('0' + (int) (value % 10));
+            value /= 10;
+        }
+    }
+
+    /**
+     * 写入32位无中划线的消息ID
+     */
+    private static int writeId(byte[] bytes, int pos, UUID id) {
+        pos = writeHex(bytes, pos, id.getMostSignificantBits());
+        return writeHex(bytes, pos, id.getLeastSignificantBits());
+    }
+
+    private static int writeHex(byte[] bytes, int pos, long value) {
+        for (int i = 15; i >= 0; i--) {
+            bytes[pos + i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+        return pos + 16;
+    }
+
+    /**
+     * 指令的静态部分，字符串转义交给 fastjson，与整体序列化的结果保持一致
+     */
+    private static final class Template {
+
+        /**
+         * ","operation":"..."
+         */
+        private final byte[] operation;
+
+        /**
+         * ,"service":"..."}
+         */
+        private final byte[] service;
+
+        private Template(String service, String operation) {
+            this.operation = ("\",\"operation\":" + JSON.toJSONString(operation)).getBytes(StandardCharsets.UTF_8);
+            this.service = (",\"service\":" + JSON.toJSONString(service) + "}").getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
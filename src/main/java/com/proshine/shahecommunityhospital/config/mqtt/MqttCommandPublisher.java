@@ -0,0 +1,75 @@
+package com.proshine.shahecommunityhospital.config.mqtt;
+
+import com.proshine.shahecommunityhospital.service.ITbTerminalService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 窗口指令发布
+ * 解析窗口绑定的终端，序列化一次指令后发布到每个终端的主题
+ *
+ * @author lenovo
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MqttCommandPublisher {
+
+    public static final String SERVICE_MEDICAL = "ServiceMedical";
+
+    private static final String TOPIC_PREFIX = "bt_client/";
+
+    private final MqttGateway mqttGateway;
+
+    private final ITbTerminalService tbTerminalService;
+
+    private final MeterRegistry meterRegistry;
+
+    private final MqttCmdEncoder mqttCmdEncoder;
+
+    /**
+     * 向窗口绑定的全部终端发布指令
+     *
+     * @param windowId 窗口id
+     * @param operation 指令
+     * @param seq 指令序号
+     * @return 成功发布的终端数
+     * @throws IllegalStateException 任一终端发布失败时抛出（其余终端仍会尝试发布）
+     */
+    public int publish(String windowId, String operation, long seq) {
+        List<String> terminalIds = tbTerminalService.findTerminalIdsByExtraId2(windowId);
+        if (terminalIds.isEmpty()) {
+            return 0;
+        }
+        // 同一次通知的所有终端共用一份编码好的指令
+        byte[] payload = mqttCmdEncoder.encode(SERVICE_MEDICAL, operation, seq);
+        int published = 0;
+        String lastError = null;
+        for (String terminalId : terminalIds) {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            String outcome = "SUCCESS";
+            try {
+                mqttGateway.sendToMqtt(TOPIC_PREFIX + terminalId, 1, payload);
+                published++;
+            } catch (Exception e) {
+                outcome = "FAIL";
+                lastError = e.getMessage();
+                log.error("MQTT指令发送失败 - 终端: {}, 指令: {}, 错误: {}", terminalId, operation, lastError);
+            } finally {
+                sample.stop(Timer.builder("mqtt.publish")
+                        .tag("operation", String.valueOf(operation))
+                        .tag("outcome", outcome)
+                        .register(meterRegistry));
+            }
+        }
+        if (published < terminalIds.size()) {
+            throw new IllegalStateException("MQTT指令发送失败(" + published + "/" + terminalIds.size() + "): " + lastError);
+        }
+        return published;
+    }
+}
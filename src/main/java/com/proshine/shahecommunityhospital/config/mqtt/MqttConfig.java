@@ -1,14 +1,14 @@
 package com.proshine.shahecommunityhospital.config.mqtt;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.integration.annotation.ServiceActivator;
 import org.springframework.integration.channel.DirectChannel;
 import org.springframework.integration.mqtt.core.DefaultMqttPahoClientFactory;
 import org.springframework.integration.mqtt.core.MqttPahoClientFactory;
-import org.springframework.integration.mqtt.outbound.MqttPahoMessageHandler;
-import org.springframework.integration.mqtt.support.DefaultPahoMessageConverter;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.MessageHandler;
 
@@ -17,6 +17,13 @@ import org.springframework.messaging.MessageHandler;
  */
 @Configuration
 public class MqttConfig {
+
+	/**
+	 * 代理端的URL地址，可以是多个，逗号分隔
+	 */
+	@Value("${mqtt.url:tcp://127.0.0.1:18880}")
+	private String[] serverUris;
+
 	/**
      * 先创建连接
 	 * 创建MqttPahoClientFactory，设置MQTT Broker连接属性，如果使用SSL验证，也在这里设置。
@@ -27,7 +34,7 @@ public class MqttConfig {
 		DefaultMqttPahoClientFactory factory = new DefaultMqttPahoClientFactory();
 		MqttConnectOptions options = new MqttConnectOptions();
 		// 设置代理端的URL地址，可以是多个
-		options.setServerURIs(new String[]{"tcp://127.0.0.1:18880"});
+		options.setServerURIs(serverUris);
 		factory.setConnectionOptions(options);
 		return factory;
 	}
@@ -42,22 +49,20 @@ public class MqttConfig {
 
 	/**
 	 * 出站
+	 * 多个Paho异步客户端组成连接池，按主题哈希选择连接，发送消息时不阻塞
 	 */
     @Bean
 	@ServiceActivator(inputChannel = "mqttOutboundChannel")
-	public MessageHandler outbound() {
-		// 发送消息和消费消息Channel可以使用相同MqttPahoClientFactory
-		MqttPahoMessageHandler messageHandler = new MqttPahoMessageHandler("publishClient", mqttClientFactory());
-		// 如果设置成true，即异步，发送消息时将不会阻塞。
-		messageHandler.setAsync(true);
-		messageHandler.setDefaultTopic("command");
-		// 设置默认QoS
-		messageHandler.setDefaultQos(1);
-		// Paho消息转换器
-		DefaultPahoMessageConverter defaultPahoMessageConverter = new DefaultPahoMessageConverter();
-		messageHandler.setConverter(defaultPahoMessageConverter);
-		return messageHandler;
+	public MessageHandler outbound(MeterRegistry meterRegistry,
+								   @Value("${mqtt.publisher.client-id-prefix:publishClient}") String clientIdPrefix,
+								   @Value("${mqtt.publisher.pool-size:4}") int poolSize,
+								   @Value("${mqtt.publisher.max-inflight:1000}") int maxInflight,
+								   @Value("${mqtt.publisher.keep-alive-seconds:30}") int keepAliveSeconds,
+								   @Value("${mqtt.publisher.reconnect-max-delay-millis:30000}") long reconnectMaxDelayMillis,
+								   @Value("${mqtt.publisher.publish-timeout-millis:1000}") long publishTimeoutMillis) {
+		// 默认主题和QoS与原 MqttPahoMessageHandler 配置保持一致
+		return new PooledMqttPublisher(serverUris, clientIdPrefix, poolSize, maxInflight, keepAliveSeconds,
+				reconnectMaxDelayMillis, publishTimeoutMillis, "command", 1, meterRegistry);
 	}
 
 }
-
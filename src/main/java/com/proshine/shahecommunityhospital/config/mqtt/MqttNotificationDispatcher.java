@@ -0,0 +1,265 @@
+package com.proshine.shahecommunityhospital.config.mqtt;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 窗口消息通知分发器
+ * 请求线程只负责入队，由独立的工作线程解析终端、序列化指令并发布到MQTT，
+ * 接口耗时不再包含Broker的网络I/O；发布失败或被丢弃的通知由发件箱中继补发。
+ * 通知按 windowId 哈希分到固定的通道，每个通道一个队列、一个工作线程：
+ * 同一窗口的指令严格按入队顺序发布，不同窗口的指令在各通道间并行
+ *
+ * @author lenovo
+ */
+@Slf4j
+@Component
+public class MqttNotificationDispatcher {
+
+    /**
+     * 队列已满时的处理策略
+     */
+    public enum OverflowPolicy {
+        /**
+         * 阻塞等待，超时后拒绝
+         */
+        BLOCK,
+        /**
+         * 丢弃最早入队的通知
+         */
+        DROP_OLDEST,
+        /**
+         * 直接拒绝新通知
+         */
+        REJECT
+    }
+
+    private final MqttCommandPublisher mqttCommandPublisher;
+
+    private final BlockingQueue<Notification>[] lanes;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final long blockTimeoutMillis;
+
+    private final MqttSequencer mqttSequencer;
+
+    private ExecutorService executor;
+
+    private volatile boolean running;
+
+    private final LongAdder submittedCount = new LongAdder();
+
+    private final LongAdder publishedCount = new LongAdder();
+
+    private final LongAdder failedCount = new LongAdder();
+
+    private final LongAdder droppedCount = new LongAdder();
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    private final LongAdder publishNanos = new LongAdder();
+
+    private final AtomicLong maxPublishNanos = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    public MqttNotificationDispatcher(MqttCommandPublisher mqttCommandPublisher,
+                                      MqttSequencer mqttSequencer,
+                                      @Value("${mqtt.notify.queue-capacity:2048}") int queueCapacity,
+                                      @Value("${mqtt.notify.workers:4}") int workers,
+                                      @Value("${mqtt.notify.overflow-policy:DROP_OLDEST}") OverflowPolicy overflowPolicy,
+                                      @Value("${mqtt.notify.block-timeout-millis:500}") long blockTimeoutMillis) {
+        this.mqttCommandPublisher = mqttCommandPublisher;
+        this.mqttSequencer = mqttSequencer;
+        // 总容量平均分到各通道
+        this.lanes = new BlockingQueue[workers];
+        for (int i = 0; i < workers; i++) {
+            lanes[i] = new ArrayBlockingQueue<>(Math.max(1, queueCapacity / workers));
+        }
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutMillis = blockTimeoutMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        executor = Executors.newFixedThreadPool(lanes.length, new CustomizableThreadFactory("mqtt-notify-"));
+        for (BlockingQueue<Notification> lane : lanes) {
+            executor.execute(() -> work(lane));
+        }
+        log.info("MQTT通知分发器已启动，通道：{}，单通道容量：{}，溢出策略：{}",
+                lanes.length, lanes[0].remainingCapacity(), overflowPolicy);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        executor.shutdown();
+        if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+        int remaining = queueDepth();
+        if (remaining > 0) {
+            log.warn("MQTT通知分发器关闭，丢弃未发送通知：{}", remaining);
+        }
+    }
+
+    /**
+     * 提交窗口通知
+     *
+     * @param windowId 窗口id
+     * @param operation 指令
+     * @return 是否已入队
+     */
+    public boolean dispatch(String windowId, String operation) {
+        return dispatch(windowId, operation, mqttSequencer.next(), null);
+    }
+
+    /**
+     * 提交窗口通知
+     *
+     * @param windowId 窗口id
+     * @param operation 指令
+     * @param seq 指令序号，由 MqttSequencer 生成
+     * @param onPublished 全部终端发布成功后的回调，可为空
+     * @return 是否已入队
+     */
+    public boolean dispatch(String windowId, String operation, long seq, Runnable onPublished) {
+        if (!StringUtils.hasText(windowId)) {
+            return false;
+        }
+        Notification notification = new Notification(windowId, operation, seq, onPublished);
+        BlockingQueue<Notification> lane = lanes[laneOf(windowId)];
+        boolean accepted;
+        switch (overflowPolicy) {
+            case BLOCK:
+                accepted = offerBlocking(lane, notification);
+                break;
+            case DROP_OLDEST:
+                accepted = offerDropOldest(lane, notification);
+                break;
+            default:
+                accepted = lane.offer(notification);
+                break;
+        }
+        if (accepted) {
+            submittedCount.increment();
+        } else {
+            rejectedCount.increment();
+            log.warn("MQTT通知队列已满，拒绝通知 - 窗口: {}, 指令: {}", windowId, operation);
+        }
+        return accepted;
+    }
+
+    /**
+     * 分发统计快照
+     */
+    public Stats stats() {
+        return new Stats(queueDepth(), submittedCount.sum(), publishedCount.sum(), failedCount.sum(),
+                droppedCount.sum(), rejectedCount.sum(), publishNanos.sum(), maxPublishNanos.get());
+    }
+
+    private int laneOf(String windowId) {
+        int h = windowId.hashCode();
+        return ((h ^ (h >>> 16)) & Integer.MAX_VALUE) % lanes.length;
+    }
+
+    private int queueDepth() {
+        int depth = 0;
+        for (BlockingQueue<Notification> lane : lanes) {
+            depth += lane.size();
+        }
+        return depth;
+    }
+
+    private boolean offerBlocking(BlockingQueue<Notification> lane, Notification notification) {
+        try {
+            return lane.offer(notification, blockTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private boolean offerDropOldest(BlockingQueue<Notification> lane, Notification notification) {
+        while (!lane.offer(notification)) {
+            Notification dropped = lane.poll();
+            if (dropped != null) {
+                droppedCount.increment();
+                log.warn("MQTT通知队列已满，丢弃最早通知 - 窗口: {}, 指令: {}", dropped.windowId, dropped.operation);
+            }
+        }
+        return true;
+    }
+
+    private void work(BlockingQueue<Notification> lane) {
+        while (running || !lane.isEmpty()) {
+            try {
+                Notification notification = lane.poll(200, TimeUnit.MILLISECONDS);
+                if (notification != null) {
+                    publish(notification);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("MQTT通知处理异常", e);
+            }
+        }
+    }
+
+    private void publish(Notification notification) {
+        long start = System.nanoTime();
+        try {
+            publishedCount.add(mqttCommandPublisher.publish(notification.windowId, notification.operation,
+                    notification.seq));
+            if (notification.onPublished != null) {
+                notification.onPublished.run();
+            }
+        } catch (Exception e) {
+            failedCount.increment();
+            log.warn("MQTT通知发布失败，等待中继补发 - 窗口: {}, 指令: {}, 错误: {}",
+                    notification.windowId, notification.operation, e.getMessage());
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            publishNanos.add(elapsed);
+            maxPublishNanos.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+
+    @AllArgsConstructor
+    private static final class Notification {
+        private final String windowId;
+        private final String operation;
+        private final long seq;
+        private final Runnable onPublished;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Stats {
+        private int queueDepth;
+        private long submittedCount;
+        private long publishedCount;
+        private long failedCount;
+        private long droppedCount;
+        private long rejectedCount;
+        private long totalPublishNanos;
+        private long maxPublishNanos;
+    }
+}
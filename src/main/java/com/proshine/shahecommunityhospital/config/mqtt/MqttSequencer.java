@@ -0,0 +1,26 @@
+package com.proshine.shahecommunityhospital.config.mqtt;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MQTT指令序号
+ * 取 max(上一个序号 + 1, 当前毫秒时间戳)，进程内严格递增，重启后也不会回退；
+ * 全局递增同时保证了每个窗口内递增，终端收到序号小于已处理序号的指令时直接丢弃
+ *
+ * @author lenovo
+ */
+@Component
+public class MqttSequencer {
+
+    private final AtomicLong last = new AtomicLong();
+
+    /**
+     * 下一个序号
+     */
+    public long next() {
+        long now = System.currentTimeMillis();
+        return last.updateAndGet(prev -> Math.max(prev + 1, now));
+    }
+}
@@ -0,0 +1,275 @@
+package com.proshine.shahecommunityhospital.config.mqtt;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttCallbackExtended;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.springframework.integration.mqtt.support.MqttHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessagingException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 多连接MQTT出站处理器
+ * 维护 N 个Paho异步客户端，按主题哈希固定到其中一个连接（同一终端的消息保持顺序），
+ * 不同终端的消息分散到多个连接并行发送。首次连接失败按指数退避重试，
+ * 连接建立后由Paho自动重连；连接状态通过指标暴露。
+ * 连接使用 cleanSession 与内存持久化，断线时在途消息会丢失，因此发布须等到Broker确认送达才返回，
+ * 调用方（分发器、发件箱中继）据此判断是否标记已发送，未确认的由发件箱补发
+ *
+ * @author lenovo
+ */
+@Slf4j
+public class PooledMqttPublisher implements MessageHandler {
+
+    private final String[] serverUris;
+
+    private final MqttConnectOptions options;
+
+    private final Connection[] connections;
+
+    private final long reconnectMaxDelayMillis;
+
+    private final long publishTimeoutMillis;
+
+    private final String defaultTopic;
+
+    private final int defaultQos;
+
+    private final ScheduledExecutorService reconnectScheduler =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("mqtt-reconnect-"));
+
+    private final LongAdder connectionLostCount = new LongAdder();
+
+    private final LongAdder reconnectCount = new LongAdder();
+
+    private final LongAdder inflightFullCount = new LongAdder();
+
+    private volatile boolean running;
+
+    public PooledMqttPublisher(String[] serverUris, String clientIdPrefix, int poolSize, int maxInflight,
+                               int keepAliveSeconds, long reconnectMaxDelayMillis, long publishTimeoutMillis,
+                               String defaultTopic, int defaultQos, MeterRegistry meterRegistry) {
+        this.serverUris = serverUris;
+        this.reconnectMaxDelayMillis = reconnectMaxDelayMillis;
+        this.publishTimeoutMillis = publishTimeoutMillis;
+        this.defaultTopic = defaultTopic;
+        this.defaultQos = defaultQos;
+        this.options = new MqttConnectOptions();
+        options.setServerURIs(serverUris);
+        options.setCleanSession(true);
+        options.setAutomaticReconnect(true);
+        options.setMaxReconnectDelay((int) reconnectMaxDelayMillis);
+        options.setMaxInflight(maxInflight);
+        options.setKeepAliveInterval(keepAliveSeconds);
+
+        // 同一进程内客户端id唯一，避免多节点部署时相互踢下线
+        String instance = UUID.randomUUID().toString().substring(0, 8);
+        this.connections = new Connection[poolSize];
+        for (int i = 0; i < poolSize; i++) {
+            connections[i] = new Connection(clientIdPrefix + "-" + instance + "-" + i);
+        }
+
+        Gauge.builder("mqtt.publisher.connections", this, PooledMqttPublisher::connectedCount)
+                .tag("state", "connected").register(meterRegistry);
+        Gauge.builder("mqtt.publisher.connections", this, p -> p.connections.length - p.connectedCount())
+                .tag("state", "disconnected").register(meterRegistry);
+        FunctionCounter.builder("mqtt.publisher.connection.lost", connectionLostCount, LongAdder::sum)
+                .register(meterRegistry);
+        FunctionCounter.builder("mqtt.publisher.reconnects", reconnectCount, LongAdder::sum)
+                .register(meterRegistry);
+        FunctionCounter.builder("mqtt.publisher.inflight.full", inflightFullCount, LongAdder::sum)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        for (Connection connection : connections) {
+            connection.connect(0);
+        }
+        log.info("MQTT出站连接池已启动，连接数：{}，maxInflight：{}，Broker：{}",
+                connections.length, options.getMaxInflight(), String.join(",", serverUris));
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        reconnectScheduler.shutdownNow();
+        for (Connection connection : connections) {
+            connection.close();
+        }
+    }
+
+    @Override
+    public void handleMessage(Message<?> message) throws MessagingException {
+        String topic = message.getHeaders().get(MqttHeaders.TOPIC, String.class);
+        if (topic == null) {
+            topic = defaultTopic;
+        }
+        Integer qos = message.getHeaders().get(MqttHeaders.QOS, Integer.class);
+        Object payload = message.getPayload();
+        byte[] bytes = payload instanceof byte[]
+                ? (byte[]) payload
+                : payload.toString().getBytes(StandardCharsets.UTF_8);
+        MqttMessage mqttMessage = new MqttMessage(bytes);
+        mqttMessage.setQos(qos != null ? qos : defaultQos);
+
+        Connection connection = connections[(topic.hashCode() & Integer.MAX_VALUE) % connections.length];
+        try {
+            connection.publish(topic, mqttMessage);
+        } catch (MqttException e) {
+            throw new MessagingException(message, "MQTT发布失败 - 连接: " + connection.clientId + ", 主题: " + topic, e);
+        }
+    }
+
+    /**
+     * 当前已连接的客户端数
+     */
+    public int connectedCount() {
+        int connected = 0;
+        for (Connection connection : connections) {
+            if (connection.client != null && connection.client.isConnected()) {
+                connected++;
+            }
+        }
+        return connected;
+    }
+
+    private final class Connection implements MqttCallbackExtended {
+
+        private final String clientId;
+
+        private volatile MqttAsyncClient client;
+
+        private Connection(String clientId) {
+            this.clientId = clientId;
+        }
+
+        /**
+         * 首次连接，失败后按指数退避重试；连接成功后由Paho自动重连
+         */
+        private void connect(int attempt) {
+            if (!running) {
+                return;
+            }
+            try {
+                if (client == null) {
+                    client = new MqttAsyncClient(serverUris[0], clientId, new MemoryPersistence());
+                    client.setCallback(this);
+                }
+                client.connect(options, null, new IMqttActionListener() {
+                    @Override
+                    public void onSuccess(IMqttToken token) {
+                    }
+
+                    @Override
+                    public void onFailure(IMqttToken token, Throwable e) {
+                        scheduleConnect(attempt, e);
+                    }
+                });
+            } catch (MqttException e) {
+                scheduleConnect(attempt, e);
+            }
+        }
+
+        private void scheduleConnect(int attempt, Throwable e) {
+            if (!running) {
+                return;
+            }
+            long delay = Math.min(1000L << Math.min(attempt, 20), reconnectMaxDelayMillis);
+            log.warn("MQTT连接失败，{}ms后重试 - 连接: {}, 错误: {}", delay, clientId, e.getMessage());
+            reconnectScheduler.schedule(() -> connect(attempt + 1), delay, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * 发布消息并等待送达确认（QoS1 收到 PUBACK）；在途窗口已满时短暂等待，
+         * 超过发布超时仍未确认则抛出异常，由调用方按未送达处理
+         */
+        private void publish(String topic, MqttMessage message) throws MqttException {
+            MqttAsyncClient current = client;
+            if (current == null || !current.isConnected()) {
+                throw new MqttException(MqttException.REASON_CODE_CLIENT_NOT_CONNECTED);
+            }
+            long deadline = System.currentTimeMillis() + publishTimeoutMillis;
+            while (true) {
+                IMqttDeliveryToken token;
+                try {
+                    token = current.publish(topic, message);
+                } catch (MqttException e) {
+                    if (e.getReasonCode() != MqttException.REASON_CODE_MAX_INFLIGHT
+                            || System.currentTimeMillis() >= deadline) {
+                        throw e;
+                    }
+                    inflightFullCount.increment();
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        throw e;
+                    }
+                    continue;
+                }
+                token.waitForCompletion(Math.max(1, deadline - System.currentTimeMillis()));
+                return;
+            }
+        }
+
+        private void close() {
+            MqttAsyncClient current = client;
+            if (current == null) {
+                return;
+            }
+            try {
+                if (current.isConnected()) {
+                    current.disconnect().waitForCompletion(1000);
+                }
+                current.close();
+            } catch (MqttException e) {
+                log.warn("MQTT连接关闭失败 - 连接: {}, 错误: {}", clientId, e.getMessage());
+            }
+        }
+
+        @Override
+        public void connectComplete(boolean reconnect, String serverURI) {
+            if (reconnect) {
+                reconnectCount.increment();
+            }
+            log.info("MQTT连接已建立 - 连接: {}, Broker: {}, 重连: {}", clientId, serverURI, reconnect);
+        }
+
+        @Override
+        public void connectionLost(Throwable cause) {
+            connectionLostCount.increment();
+            log.warn("MQTT连接断开，等待自动重连 - 连接: {}, 原因: {}", clientId,
+                    cause != null ? cause.getMessage() : null);
+        }
+
+        @Override
+        public void messageArrived(String topic, MqttMessage message) {
+        }
+
+        @Override
+        public void deliveryComplete(IMqttDeliveryToken token) {
+        }
+    }
+}
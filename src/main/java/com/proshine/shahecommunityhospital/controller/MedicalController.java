@@ -1,21 +1,37 @@
 package com.proshine.shahecommunityhospital.controller;
 
 import com.alibaba.fastjson.JSON;
+import com.proshine.shahecommunityhospital.common.KeysetPage;
 import com.proshine.shahecommunityhospital.common.ResponseEntity;
-import com.proshine.shahecommunityhospital.config.mqtt.MqttCmd;
-import com.proshine.shahecommunityhospital.config.mqtt.MqttGateway;
+import com.proshine.shahecommunityhospital.config.async.MedicalRequestExecutor;
 import com.proshine.shahecommunityhospital.dto.*;
-import com.proshine.shahecommunityhospital.entity.TbTerminal;
-import com.proshine.shahecommunityhospital.service.ITbTerminalService;
+import com.proshine.shahecommunityhospital.entity.ChargeRecord;
+import com.proshine.shahecommunityhospital.entity.RefundRecord;
+import com.proshine.shahecommunityhospital.idempotency.IdempotencyGuard;
+import com.proshine.shahecommunityhospital.service.MedicalBatchService;
+import com.proshine.shahecommunityhospital.service.MedicalQueryService;
+import com.proshine.shahecommunityhospital.service.MedicalRollupService;
 import com.proshine.shahecommunityhospital.service.MedicalService;
+import com.proshine.shahecommunityhospital.service.OperateTimeBackfillService;
+import com.proshine.shahecommunityhospital.service.PendingFeedService;
+import com.proshine.shahecommunityhospital.utils.LogMask;
+import com.proshine.shahecommunityhospital.utils.MedicalRequestLog;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.util.CollectionUtils;
-import org.springframework.util.StringUtils;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import javax.validation.Valid;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * 医疗收费系统控制器
@@ -27,43 +43,84 @@ import java.util.List;
 @RequestMapping("/thirdpart/medical")
 @Slf4j
 public class MedicalController {
+
+    private static final String OUTCOME_SUCCESS = "SUCCESS";
+
+    private static final String OUTCOME_DUPLICATE = "DUPLICATE";
+
+    private static final String OUTCOME_INVALID = "INVALID";
+
+    private static final String OUTCOME_FAIL = "FAIL";
+
+    private static final String OUTCOME_REJECTED = "REJECTED";
+
+    private static final String OUTCOME_CONFLICT = "CONFLICT";
     
     @Autowired
     private MedicalService medicalService;
 
     @Autowired
-    private MqttGateway mqttGateway;
+    private MedicalQueryService medicalQueryService;
+
+    @Autowired
+    private MedicalRollupService medicalRollupService;
+
+    @Autowired
+    private MedicalBatchService medicalBatchService;
+
+    @Autowired
+    private OperateTimeBackfillService operateTimeBackfillService;
+
+    @Autowired
+    private PendingFeedService pendingFeedService;
+
+    @Autowired
+    private IdempotencyGuard idempotencyGuard;
 
     @Autowired
-    private ITbTerminalService tbTerminalService;
+    private MedicalRequestExecutor medicalRequestExecutor;
 
     /**
      * 收费按钮点击接口
      * 当点击收费按钮时接收所传参数
      * 
      * @param request 收费按钮点击请求参数
-     * @return 统一返回结果
+     * @return 统一返回结果；启用异步执行时在请求执行器中完成
      */
     @PostMapping("/chargeButtonClick")
-    public ResponseEntity<Void> chargeButtonClick(@RequestBody @Valid ChargeButtonClickRequest request) {
+    public CompletableFuture<ResponseEntity<Void>> chargeButtonClick(@RequestBody ChargeButtonClickRequest request,
+            @RequestHeader(value = IdempotencyGuard.HEADER, required = false) String requestId) {
+        long start = System.nanoTime();
+        String key = IdempotencyGuard.key(MedicalBatchService.CHARGE_BUTTON_CLICK, requestId, request.getWindowId(),
+                request.getIdentityCardNumber(), request.getOperateTime());
         try {
-            log.info("收费按钮点击 - 患者: {}, 身份证号: {}, 应收: {}, 实收: {}", 
-                    request.getName(), 
-                    request.getIdentityCardNumber(),
-                    request.getReceivable(),
-                    request.getPaidUp());
-            medicalService.handleChargeButtonClick(request);
-            // 发送消息指令
-            sendToMqtt(request.getWindowId(),"CHARGE_BUTTON_CLICK");
-            log.info("收费按钮点击处理成功 - 患者: {}", request.getName());
-            return ResponseEntity.success(null);
-        } catch (IllegalArgumentException e) {
-            log.warn("收费按钮点击参数错误 - 患者: {}, 错误: {}", request.getName(), e.getMessage());
-            return ResponseEntity.fail(e.getMessage());
+            if (!idempotencyGuard.tryAcquire(key)) {
+                logRequest(MedicalBatchService.CHARGE_BUTTON_CLICK, OUTCOME_DUPLICATE, request, start);
+                return CompletableFuture.completedFuture(ResponseEntity.success(null));
+            }
         } catch (Exception e) {
-            log.error("收费按钮点击处理失败 - 患者: {}", request.getName(), e);
-            return ResponseEntity.fail("收费按钮点击处理失败: " + e.getMessage());
+            logRequest(MedicalBatchService.CHARGE_BUTTON_CLICK, OUTCOME_FAIL, request, start);
+            log.error("收费按钮点击幂等校验失败 - 患者: {}", LogMask.name(request.getName()), e);
+            return CompletableFuture.completedFuture(ResponseEntity.fail("收费按钮点击处理失败: " + e.getMessage()));
         }
+        Runnable logRejected = () -> logRequest(MedicalBatchService.CHARGE_BUTTON_CLICK, OUTCOME_REJECTED, request, start);
+        return execute(key, logRejected, () -> {
+            try {
+                medicalService.handleChargeButtonClick(request);
+                logRequest(MedicalBatchService.CHARGE_BUTTON_CLICK, OUTCOME_SUCCESS, request, start);
+                return ResponseEntity.success(null);
+            } catch (IllegalArgumentException e) {
+                idempotencyGuard.release(key);
+                logRequest(MedicalBatchService.CHARGE_BUTTON_CLICK, OUTCOME_INVALID, request, start);
+                log.warn("收费按钮点击参数错误 - 患者: {}, 错误: {}", LogMask.name(request.getName()), e.getMessage());
+                return ResponseEntity.fail(e.getMessage());
+            } catch (Exception e) {
+                idempotencyGuard.release(key);
+                logRequest(MedicalBatchService.CHARGE_BUTTON_CLICK, OUTCOME_FAIL, request, start);
+                log.error("收费按钮点击处理失败 - 患者: {}", LogMask.name(request.getName()), e);
+                return ResponseEntity.fail("收费按钮点击处理失败: " + e.getMessage());
+            }
+        });
     }
 
 
@@ -73,28 +130,47 @@ public class MedicalController {
      * 当点击收费的确认按钮时接收所传参数
      * 
      * @param request 确认收费请求参数
-     * @return 统一返回结果
+     * @return 统一返回结果，并发确认冲突重试耗尽时 code 为 409(可重试)；启用异步执行时在请求执行器中完成
      */
     @PostMapping("/confirmPayment")
-    public ResponseEntity<Void> confirmPayment(@RequestBody @Valid ConfirmPaymentRequest request) {
+    public CompletableFuture<ResponseEntity<Void>> confirmPayment(@RequestBody ConfirmPaymentRequest request,
+            @RequestHeader(value = IdempotencyGuard.HEADER, required = false) String requestId) {
+        long start = System.nanoTime();
+        String key = IdempotencyGuard.key(MedicalBatchService.CONFIRM_PAYMENT, requestId, request.getWindowId(),
+                request.getIdentityCardNumber(), request.getOperateTime());
         try {
-            log.info("确认收费 - 患者: {}, 身份证号: {}, 应收: {}, 实收: {}", 
-                    request.getName(), 
-                    request.getIdentityCardNumber(),
-                    request.getReceivable(),
-                    request.getPaidUp());
-            medicalService.confirmPayment(request);
-            // 发送消息指令
-            sendToMqtt(request.getWindowId(),"CONFIRM_PAYMENT");
-            log.info("确认收费处理成功 - 患者: {}", request.getName());
-            return ResponseEntity.success(null);
-        } catch (IllegalArgumentException e) {
-            log.warn("确认收费参数错误 - 患者: {}, 错误: {}", request.getName(), e.getMessage());
-            return ResponseEntity.fail(e.getMessage());
+            if (!idempotencyGuard.tryAcquire(key)) {
+                logRequest(MedicalBatchService.CONFIRM_PAYMENT, OUTCOME_DUPLICATE, request, start);
+                return CompletableFuture.completedFuture(ResponseEntity.success(null));
+            }
         } catch (Exception e) {
-            log.error("确认收费处理失败 - 患者: {}", request.getName(), e);
-            return ResponseEntity.fail("确认收费处理失败: " + e.getMessage());
+            logRequest(MedicalBatchService.CONFIRM_PAYMENT, OUTCOME_FAIL, request, start);
+            log.error("确认收费幂等校验失败 - 患者: {}", LogMask.name(request.getName()), e);
+            return CompletableFuture.completedFuture(ResponseEntity.fail("确认收费处理失败: " + e.getMessage()));
         }
+        Runnable logRejected = () -> logRequest(MedicalBatchService.CONFIRM_PAYMENT, OUTCOME_REJECTED, request, start);
+        return execute(key, logRejected, () -> {
+            try {
+                medicalService.confirmPayment(request);
+                logRequest(MedicalBatchService.CONFIRM_PAYMENT, OUTCOME_SUCCESS, request, start);
+                return ResponseEntity.success(null);
+            } catch (IllegalArgumentException e) {
+                idempotencyGuard.release(key);
+                logRequest(MedicalBatchService.CONFIRM_PAYMENT, OUTCOME_INVALID, request, start);
+                log.warn("确认收费参数错误 - 患者: {}, 错误: {}", LogMask.name(request.getName()), e.getMessage());
+                return ResponseEntity.fail(e.getMessage());
+            } catch (ConcurrencyFailureException e) {
+                idempotencyGuard.release(key);
+                logRequest(MedicalBatchService.CONFIRM_PAYMENT, OUTCOME_CONFLICT, request, start);
+                log.warn("确认收费并发冲突 - 患者: {}, 错误: {}", LogMask.name(request.getName()), e.getMessage());
+                return ResponseEntity.fail(ResponseEntity.StatusCode.CONFLICT, e.getMessage());
+            } catch (Exception e) {
+                idempotencyGuard.release(key);
+                logRequest(MedicalBatchService.CONFIRM_PAYMENT, OUTCOME_FAIL, request, start);
+                log.error("确认收费处理失败 - 患者: {}", LogMask.name(request.getName()), e);
+                return ResponseEntity.fail("确认收费处理失败: " + e.getMessage());
+            }
+        });
     }
     
     /**
@@ -102,28 +178,42 @@ public class MedicalController {
      * 当点击退费按钮时接收所传参数
      * 
      * @param request 退费按钮点击请求参数
-     * @return 统一返回结果
+     * @return 统一返回结果；启用异步执行时在请求执行器中完成
      */
     @PostMapping("/refundButtonClick")
-    public ResponseEntity<Void> refundButtonClick(@RequestBody @Valid RefundButtonClickRequest request) {
+    public CompletableFuture<ResponseEntity<Void>> refundButtonClick(@RequestBody RefundButtonClickRequest request,
+            @RequestHeader(value = IdempotencyGuard.HEADER, required = false) String requestId) {
+        long start = System.nanoTime();
+        String key = IdempotencyGuard.key(MedicalBatchService.REFUND_BUTTON_CLICK, requestId, request.getWindowId(),
+                request.getIdentityCardNumber(), request.getOperateTime());
         try {
-            log.info("退费按钮点击 - 患者: {}, 身份证号: {}, 应收: {}, 实退: {}", 
-                    request.getName(), 
-                    request.getIdentityCardNumber(),
-                    request.getReceivable(),
-                    request.getRealRefundAmount());
-            medicalService.handleRefundButtonClick(request);
-            // 发送消息指令
-            sendToMqtt(request.getWindowId(),"REFUND_BUTTON_CLICK");
-            log.info("退费按钮点击处理成功 - 患者: {}", request.getName());
-            return ResponseEntity.success(null);
-        } catch (IllegalArgumentException e) {
-            log.warn("退费按钮点击参数错误 - 患者: {}, 错误: {}", request.getName(), e.getMessage());
-            return ResponseEntity.fail(e.getMessage());
+            if (!idempotencyGuard.tryAcquire(key)) {
+                logRequest(MedicalBatchService.REFUND_BUTTON_CLICK, OUTCOME_DUPLICATE, request, start);
+                return CompletableFuture.completedFuture(ResponseEntity.success(null));
+            }
         } catch (Exception e) {
-            log.error("退费按钮点击处理失败 - 患者: {}", request.getName(), e);
-            return ResponseEntity.fail("退费按钮点击处理失败: " + e.getMessage());
+            logRequest(MedicalBatchService.REFUND_BUTTON_CLICK, OUTCOME_FAIL, request, start);
+            log.error("退费按钮点击幂等校验失败 - 患者: {}", LogMask.name(request.getName()), e);
+            return CompletableFuture.completedFuture(ResponseEntity.fail("退费按钮点击处理失败: " + e.getMessage()));
         }
+        Runnable logRejected = () -> logRequest(MedicalBatchService.REFUND_BUTTON_CLICK, OUTCOME_REJECTED, request, start);
+        return execute(key, logRejected, () -> {
+            try {
+                medicalService.handleRefundButtonClick(request);
+                logRequest(MedicalBatchService.REFUND_BUTTON_CLICK, OUTCOME_SUCCESS, request, start);
+                return ResponseEntity.success(null);
+            } catch (IllegalArgumentException e) {
+                idempotencyGuard.release(key);
+                logRequest(MedicalBatchService.REFUND_BUTTON_CLICK, OUTCOME_INVALID, request, start);
+                log.warn("退费按钮点击参数错误 - 患者: {}, 错误: {}", LogMask.name(request.getName()), e.getMessage());
+                return ResponseEntity.fail(e.getMessage());
+            } catch (Exception e) {
+                idempotencyGuard.release(key);
+                logRequest(MedicalBatchService.REFUND_BUTTON_CLICK, OUTCOME_FAIL, request, start);
+                log.error("退费按钮点击处理失败 - 患者: {}", LogMask.name(request.getName()), e);
+                return ResponseEntity.fail("退费按钮点击处理失败: " + e.getMessage());
+            }
+        });
     }
     
     /**
@@ -131,49 +221,290 @@ public class MedicalController {
      * 当点击退费的确认按钮时接收所传参数
      * 
      * @param request 确认退费请求参数
-     * @return 统一返回结果
+     * @return 统一返回结果，并发确认冲突重试耗尽时 code 为 409(可重试)；启用异步执行时在请求执行器中完成
      */
     @PostMapping("/confirmRefund")
-    public ResponseEntity<Void> confirmRefund(@RequestBody @Valid ConfirmRefundRequest request) {
+    public CompletableFuture<ResponseEntity<Void>> confirmRefund(@RequestBody ConfirmRefundRequest request,
+            @RequestHeader(value = IdempotencyGuard.HEADER, required = false) String requestId) {
+        long start = System.nanoTime();
+        String key = IdempotencyGuard.key(MedicalBatchService.CONFIRM_REFUND, requestId, request.getWindowId(),
+                request.getIdentityCardNumber(), request.getOperateTime());
         try {
-            log.info("确认退费 - 患者: {}, 身份证号: {}, 应收: {}, 实退: {}", 
-                    request.getName(), 
-                    request.getIdentityCardNumber(),
-                    request.getReceivable(),
-                    request.getRealRefundAmount());
-            medicalService.confirmRefund(request);
-            // 发送消息指令
-            sendToMqtt(request.getWindowId(),"CONFIRM_REFUND");
-            log.info("确认退费处理成功 - 患者: {}", request.getName());
-            return ResponseEntity.success(null);
+            if (!idempotencyGuard.tryAcquire(key)) {
+                logRequest(MedicalBatchService.CONFIRM_REFUND, OUTCOME_DUPLICATE, request, start);
+                return CompletableFuture.completedFuture(ResponseEntity.success(null));
+            }
+        } catch (Exception e) {
+            logRequest(MedicalBatchService.CONFIRM_REFUND, OUTCOME_FAIL, request, start);
+            log.error("确认退费幂等校验失败 - 患者: {}", LogMask.name(request.getName()), e);
+            return CompletableFuture.completedFuture(ResponseEntity.fail("确认退费处理失败: " + e.getMessage()));
+        }
+        Runnable logRejected = () -> logRequest(MedicalBatchService.CONFIRM_REFUND, OUTCOME_REJECTED, request, start);
+        return execute(key, logRejected, () -> {
+            try {
+                medicalService.confirmRefund(request);
+                logRequest(MedicalBatchService.CONFIRM_REFUND, OUTCOME_SUCCESS, request, start);
+                return ResponseEntity.success(null);
+            } catch (IllegalArgumentException e) {
+                idempotencyGuard.release(key);
+                logRequest(MedicalBatchService.CONFIRM_REFUND, OUTCOME_INVALID, request, start);
+                log.warn("确认退费参数错误 - 患者: {}, 错误: {}", LogMask.name(request.getName()), e.getMessage());
+                return ResponseEntity.fail(e.getMessage());
+            } catch (ConcurrencyFailureException e) {
+                idempotencyGuard.release(key);
+                logRequest(MedicalBatchService.CONFIRM_REFUND, OUTCOME_CONFLICT, request, start);
+                log.warn("确认退费并发冲突 - 患者: {}, 错误: {}", LogMask.name(request.getName()), e.getMessage());
+                return ResponseEntity.fail(ResponseEntity.StatusCode.CONFLICT, e.getMessage());
+            } catch (Exception e) {
+                idempotencyGuard.release(key);
+                logRequest(MedicalBatchService.CONFIRM_REFUND, OUTCOME_FAIL, request, start);
+                log.error("确认退费处理失败 - 患者: {}", LogMask.name(request.getName()), e);
+                return ResponseEntity.fail("确认退费处理失败: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 批量上报接口
+     * 离线窗口恢复后按顺序补报收费/退费事件，整批在一个事务内处理，
+     * 每个窗口在批次结束时只通知一次
+     *
+     * @param request 批量上报请求参数
+     * @return 统一返回结果，data为按请求顺序排列的单条结果
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<List<MedicalBatchItemResult>> batch(@RequestBody MedicalBatchRequest request) {
+        int size = request.getEvents() != null ? request.getEvents().size() : 0;
+        try {
+            log.info("批量上报 - 事件数: {}", size);
+            return ResponseEntity.success(medicalBatchService.process(request));
         } catch (IllegalArgumentException e) {
-            log.warn("确认退费参数错误 - 患者: {}, 错误: {}", request.getName(), e.getMessage());
+            log.warn("批量上报参数错误 - 事件数: {}, 错误: {}", size, e.getMessage());
             return ResponseEntity.fail(e.getMessage());
+        } catch (ConcurrencyFailureException e) {
+            // 整批已回滚，幂等键已释放，可重新上报
+            log.warn("批量上报并发冲突 - 事件数: {}, 错误: {}", size, e.getMessage());
+            return ResponseEntity.fail(ResponseEntity.StatusCode.CONFLICT, "待确认记录正被其他请求确认，请重新上报");
+        } catch (Exception e) {
+            log.error("批量上报处理失败 - 事件数: {}", size, e);
+            return ResponseEntity.fail("批量上报处理失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 收费记录游标分页查询接口
+     * 首页不传游标，之后以返回的 nextCreateTime/nextId 作为 lastCreateTime/lastId 翻页
+     *
+     * @param query 分页查询参数
+     * @return 统一返回结果
+     */
+    @GetMapping("/chargeRecords/page")
+    public ResponseEntity<KeysetPage<ChargeRecord>> pageChargeRecords(RecordPageQuery query) {
+        try {
+            return ResponseEntity.success(medicalQueryService.pageChargeRecords(query));
+        } catch (Exception e) {
+            log.error("收费记录分页查询失败 - 医院: {}", query.getAddressId(), e);
+            return ResponseEntity.fail("收费记录分页查询失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 退费记录游标分页查询接口
+     * 首页不传游标，之后以返回的 nextCreateTime/nextId 作为 lastCreateTime/lastId 翻页
+     *
+     * @param query 分页查询参数
+     * @return 统一返回结果
+     */
+    @GetMapping("/refundRecords/page")
+    public ResponseEntity<KeysetPage<RefundRecord>> pageRefundRecords(RecordPageQuery query) {
+        try {
+            return ResponseEntity.success(medicalQueryService.pageRefundRecords(query));
         } catch (Exception e) {
-            log.error("确认退费处理失败 - 患者: {}", request.getName(), e);
-            return ResponseEntity.fail("确认退费处理失败: " + e.getMessage());
+            log.error("退费记录分页查询失败 - 医院: {}", query.getAddressId(), e);
+            return ResponseEntity.fail("退费记录分页查询失败: " + e.getMessage());
         }
     }
 
     /**
-     * 发送消息指令
+     * 收费记录导出接口
+     * 以 NDJSON（每行一条JSON）流式输出，分页参数不生效
      *
+     * @param query 查询参数
+     * @param response 响应
+     */
+    @GetMapping("/chargeRecords/export")
+    public void exportChargeRecords(RecordPageQuery query, HttpServletResponse response) throws IOException {
+        export("收费", query, response,
+                writer -> medicalQueryService.exportChargeRecords(query, record -> writeLine(writer, record)));
+    }
+
+    /**
+     * 退费记录导出接口
+     * 以 NDJSON（每行一条JSON）流式输出，分页参数不生效
+     *
+     * @param query 查询参数
+     * @param response 响应
+     */
+    @GetMapping("/refundRecords/export")
+    public void exportRefundRecords(RecordPageQuery query, HttpServletResponse response) throws IOException {
+        export("退费", query, response,
+                writer -> medicalQueryService.exportRefundRecords(query, record -> writeLine(writer, record)));
+    }
+
+    /**
+     * 待确认记录实时推送接口(SSE)
+     * 订阅后先推送 snapshot 事件(该医院全部待确认记录)，之后推送 change 事件(新增待确认/已确认/过期)，记录已脱敏，
+     * 看板订阅一次即可，无需轮询待确认列表
+     *
+     * @param addressId 医院/店名ID
+     * @return 事件流，订阅失败时推送 error 事件后关闭
+     */
+    @GetMapping(value = "/pending/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter pendingStream(@RequestParam(required = false) String addressId) {
+        try {
+            return pendingFeedService.subscribe(addressId);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            log.warn("待确认记录订阅失败 - 医院: {}, 错误: {}", addressId, e.getMessage());
+            SseEmitter emitter = new SseEmitter();
+            try {
+                emitter.send(SseEmitter.event().name("error").data(ResponseEntity.fail(e.getMessage()),
+                        MediaType.APPLICATION_JSON));
+                emitter.complete();
+            } catch (IOException ex) {
+                emitter.completeWithError(ex);
+            }
+            return emitter;
+        }
+    }
+
+    /**
+     * 收费/退费汇总查询接口
+     * 由按日汇总表计算，只统计已确认的记录；指定窗口时按窗口汇总，否则按医院汇总
+     *
+     * @param addressId 医院/店名ID
      * @param windowId 窗口id
-     * @param message 指令
-     */
-    private void sendToMqtt(String windowId, String message) {
-        List<TbTerminal> terminalList = tbTerminalService.findByExtraId2(windowId);
-        if(!CollectionUtils.isEmpty(terminalList)){
-            for (TbTerminal tbTerminal : terminalList) {
-                if (StringUtils.hasText(tbTerminal.getTerminalId())) {
-                    try {
-                        mqttGateway.sendToMqtt("bt_client/" + tbTerminal.getTerminalId(),
-                                1, JSON.toJSONString(MqttCmd.create("ServiceMedical", message)));
-                    }catch (Exception e){
-                        log.error(e.getMessage());
-                    }
-                }
+     * @param startDay 开始日期(yyyyMMdd)
+     * @param endDay 结束日期(yyyyMMdd)
+     * @return 统一返回结果
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<MedicalRollupSummary> summary(@RequestParam(required = false) String addressId,
+                                                       @RequestParam(required = false) String windowId,
+                                                       @RequestParam(required = false) Integer startDay,
+                                                       @RequestParam(required = false) Integer endDay) {
+        try {
+            return ResponseEntity.success(medicalRollupService.summarize(addressId, windowId, startDay, endDay));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.fail(e.getMessage());
+        } catch (Exception e) {
+            log.error("汇总查询失败 - 医院: {}, 窗口: {}", addressId, windowId, e);
+            return ResponseEntity.fail("汇总查询失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 重建按日汇总接口
+     * 根据已确认的收费/退费记录回填汇总表，应在低峰期调用
+     *
+     * @return 统一返回结果，data为汇总行数
+     */
+    @PostMapping("/rollup/rebuild")
+    public ResponseEntity<Integer> rebuildRollup() {
+        try {
+            return ResponseEntity.success(medicalRollupService.rebuild());
+        } catch (Exception e) {
+            log.error("汇总重建失败", e);
+            return ResponseEntity.fail("汇总重建失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 回填操作时间戳接口
+     * 解析历史记录的操作时间/年龄字符串写入数值列，可重复调用
+     *
+     * @return 统一返回结果，data为回填记录数
+     */
+    @PostMapping("/operateTime/backfill")
+    public ResponseEntity<Integer> backfillOperateTime() {
+        try {
+            return ResponseEntity.success(operateTimeBackfillService.backfill());
+        } catch (Exception e) {
+            log.error("操作时间戳回填失败", e);
+            return ResponseEntity.fail("操作时间戳回填失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 重复请求拦截统计接口
+     *
+     * @return 统一返回结果，data为幂等键数量、放行数和拦截数
+     */
+    @GetMapping("/idempotency/stats")
+    public ResponseEntity<IdempotencyGuard.Stats> idempotencyStats() {
+        return ResponseEntity.success(idempotencyGuard.stats());
+    }
+
+    /**
+     * 交给请求执行器处理：未启用异步执行时在请求线程内执行，返回已完成的结果；
+     * 执行器已满时释放幂等键、记录 REJECTED 请求日志并直接返回失败
+     */
+    private CompletableFuture<ResponseEntity<Void>> execute(String key, Runnable logRejected,
+                                                           Supplier<ResponseEntity<Void>> task) {
+        try {
+            return medicalRequestExecutor.submit(task);
+        } catch (RejectedExecutionException e) {
+            idempotencyGuard.release(key);
+            logRejected.run();
+            log.warn("收费接口请求被拒绝: {}", e.getMessage());
+            return CompletableFuture.completedFuture(ResponseEntity.fail("系统繁忙，请稍后重试"));
+        }
+    }
+
+    private static void logRequest(String operation, String outcome, ChargeRequest request, long start) {
+        MedicalRequestLog.log(operation, outcome, request.getAddressId(), request.getWindowId(), request.getName(),
+                request.getIdentityCardNumber(), request.getSocialSecurityNumber(), request.getPaidUp(), start);
+    }
+
+    private static void logRequest(String operation, String outcome, RefundRequest request, long start) {
+        MedicalRequestLog.log(operation, outcome, request.getAddressId(), request.getWindowId(), request.getName(),
+                request.getIdentityCardNumber(), request.getSocialSecurityNumber(), request.getRealRefundAmount(),
+                start);
+    }
+
+    /**
+     * 以 NDJSON 输出导出结果
+     * 客户端中途断开时记录日志后结束；尚未开始输出就失败时改为返回失败结果，已输出部分数据时只能记录日志
+     */
+    private static void export(String kind, RecordPageQuery query, HttpServletResponse response,
+                               Consumer<PrintWriter> exporter) throws IOException {
+        PrintWriter writer = ndjsonWriter(response);
+        try {
+            exporter.accept(writer);
+            writer.flush();
+        } catch (UncheckedIOException e) {
+            log.warn("{}记录导出中止 - 医院: {}, 原因: {}", kind, query.getAddressId(), e.getMessage());
+        } catch (Exception e) {
+            log.error("{}记录导出失败 - 医院: {}", kind, query.getAddressId(), e);
+            if (!response.isCommitted()) {
+                response.resetBuffer();
+                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                writer.write(JSON.toJSONString(ResponseEntity.fail(kind + "记录导出失败: " + e.getMessage())));
+                writer.flush();
             }
         }
     }
+
+    private static PrintWriter ndjsonWriter(HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        return response.getWriter();
+    }
+
+    private static void writeLine(PrintWriter writer, Object record) {
+        writer.write(JSON.toJSONString(record));
+        writer.write('\n');
+        if (writer.checkError()) {
+            throw new UncheckedIOException(new IOException("客户端已断开导出连接"));
+        }
+    }
 }
\ No newline at end of file
@@ -8,7 +8,7 @@ import java.math.BigDecimal;
  * 对应接口：/thirdpart/medical/chargeButtonClick
  */
 @Data
-public class ChargeButtonClickRequest {
+public class ChargeButtonClickRequest implements ChargeRequest {
     
     /**
      * 医院/店名ID
@@ -0,0 +1,15 @@
+package com.proshine.shahecommunityhospital.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * 收费请求（收费按钮点击、确认收费）
+ *
+ * @author lenovo
+ */
+public interface ChargeRequest extends MedicalRequest {
+
+    BigDecimal getPaidUp();
+
+    BigDecimal getChange();
+}
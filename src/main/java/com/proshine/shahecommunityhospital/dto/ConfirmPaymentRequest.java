@@ -8,7 +8,7 @@ import java.math.BigDecimal;
  * 对应接口：/thirdpart/medical/confirmPayment
  */
 @Data
-public class ConfirmPaymentRequest {
+public class ConfirmPaymentRequest implements ChargeRequest {
     
     /**
      * 医院/店名ID
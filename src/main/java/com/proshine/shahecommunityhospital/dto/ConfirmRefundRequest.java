@@ -8,7 +8,7 @@ import java.math.BigDecimal;
  * 对应接口：/thirdpart/medical/confirmRefund
  */
 @Data
-public class ConfirmRefundRequest {
+public class ConfirmRefundRequest implements RefundRequest {
     
     /**
      * 医院/店名ID
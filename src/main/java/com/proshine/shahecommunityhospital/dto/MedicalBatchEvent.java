@@ -0,0 +1,98 @@
+package com.proshine.shahecommunityhospital.dto;
+
+import lombok.Data;
+import java.math.BigDecimal;
+
+/**
+ * 批量上报事件DTO
+ * 按 operation 对应单条接口的请求参数，各接口的字段取并集
+ */
+@Data
+public class MedicalBatchEvent implements ChargeRequest, RefundRequest {
+
+    /**
+     * 事件类型：CHARGE_BUTTON_CLICK / CONFIRM_PAYMENT / REFUND_BUTTON_CLICK / CONFIRM_REFUND
+     */
+    private String operation;
+
+    /**
+     * 客户端请求id，作用同单条接口的 Idempotency-Key 请求头，可为空；
+     * 为空时按 (指令, 窗口, 身份证号, 操作时间) 判重
+     */
+    private String requestId;
+
+    /**
+     * 医院/店名ID
+     */
+    private String addressId;
+
+    /**
+     * 医院/店名
+     */
+    private String addressName;
+
+    /**
+     * 窗口id
+     */
+    private String windowId;
+
+    /**
+     * 窗口名
+     */
+    private String windowName;
+
+    /**
+     * 姓名
+     */
+    private String name;
+
+    /**
+     * 年龄
+     */
+    private String age;
+
+    /**
+     * 性别
+     */
+    private String sex;
+
+    /**
+     * 应收
+     */
+    private BigDecimal receivable;
+
+    /**
+     * 实收（收费事件）
+     */
+    private BigDecimal paidUp;
+
+    /**
+     * 找零（收费事件）
+     */
+    private BigDecimal change;
+
+    /**
+     * 实退（退费事件）
+     */
+    private BigDecimal realRefundAmount;
+
+    /**
+     * 社保号
+     */
+    private String socialSecurityNumber;
+
+    /**
+     * 身份证号
+     */
+    private String identityCardNumber;
+
+    /**
+     * 操作人
+     */
+    private String operator;
+
+    /**
+     * 操作时间
+     */
+    private String operateTime;
+}
@@ -0,0 +1,34 @@
+package com.proshine.shahecommunityhospital.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量上报单条事件的处理结果
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MedicalBatchItemResult {
+
+    /**
+     * 事件在请求中的下标
+     */
+    private int index;
+
+    /**
+     * 事件类型
+     */
+    private String operation;
+
+    /**
+     * 是否处理成功
+     */
+    private boolean success;
+
+    /**
+     * 失败原因
+     */
+    private String message;
+}
@@ -0,0 +1,17 @@
+package com.proshine.shahecommunityhospital.dto;
+
+import lombok.Data;
+import java.util.List;
+
+/**
+ * 批量上报请求DTO
+ * 对应接口：/thirdpart/medical/batch
+ */
+@Data
+public class MedicalBatchRequest {
+
+    /**
+     * 事件列表，按发生顺序排列
+     */
+    private List<MedicalBatchEvent> events;
+}
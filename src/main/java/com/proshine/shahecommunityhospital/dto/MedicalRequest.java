@@ -0,0 +1,37 @@
+package com.proshine.shahecommunityhospital.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * 收费/退费请求的公共字段
+ * 四个接口的请求DTO及批量上报事件均实现该接口，由 Lombok 生成的 getter 提供实现，
+ * 校验规则和请求日志按接口访问字段
+ *
+ * @author lenovo
+ */
+public interface MedicalRequest {
+
+    String getAddressId();
+
+    String getAddressName();
+
+    String getWindowId();
+
+    String getWindowName();
+
+    String getName();
+
+    String getAge();
+
+    String getSex();
+
+    BigDecimal getReceivable();
+
+    String getSocialSecurityNumber();
+
+    String getIdentityCardNumber();
+
+    String getOperator();
+
+    String getOperateTime();
+}
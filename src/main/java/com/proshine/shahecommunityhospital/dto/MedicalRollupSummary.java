@@ -0,0 +1,63 @@
+package com.proshine.shahecommunityhospital.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 收费/退费汇总结果DTO
+ * 对应接口：/thirdpart/medical/summary
+ */
+@Data
+public class MedicalRollupSummary {
+
+    /**
+     * 医院/店名ID
+     */
+    private String addressId;
+
+    /**
+     * 窗口id
+     */
+    private String windowId;
+
+    /**
+     * 统计开始日期(yyyyMMdd)，包含
+     */
+    private Integer startDay;
+
+    /**
+     * 统计结束日期(yyyyMMdd)，包含
+     */
+    private Integer endDay;
+
+    /**
+     * 已确认收费笔数
+     */
+    private long chargeCount;
+
+    /**
+     * 应收合计
+     */
+    private BigDecimal receivable = BigDecimal.ZERO;
+
+    /**
+     * 实收合计
+     */
+    private BigDecimal paidUp = BigDecimal.ZERO;
+
+    /**
+     * 找零合计
+     */
+    private BigDecimal change = BigDecimal.ZERO;
+
+    /**
+     * 已确认退费笔数
+     */
+    private long refundCount;
+
+    /**
+     * 实退合计
+     */
+    private BigDecimal realRefundAmount = BigDecimal.ZERO;
+}
@@ -0,0 +1,32 @@
+package com.proshine.shahecommunityhospital.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 待确认记录推送的增量变更
+ * status 为 PENDING 表示新增待确认记录，CONFIRMED 表示记录已确认、EXPIRED 表示记录长时间未确认已不再跟踪，
+ * 后两者都应从待确认列表移除；
+ * chargeRecord 和 refundRecord 只有一个不为空
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PendingFeedChange {
+
+    /**
+     * 记录状态
+     */
+    private String status;
+
+    /**
+     * 收费记录
+     */
+    private PendingFeedRecord chargeRecord;
+
+    /**
+     * 退费记录
+     */
+    private PendingFeedRecord refundRecord;
+}
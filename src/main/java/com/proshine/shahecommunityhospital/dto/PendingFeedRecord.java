@@ -0,0 +1,126 @@
+package com.proshine.shahecommunityhospital.dto;
+
+import com.proshine.shahecommunityhospital.entity.ChargeRecord;
+import com.proshine.shahecommunityhospital.entity.RefundRecord;
+import com.proshine.shahecommunityhospital.utils.LogMask;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 待确认记录推送的单条记录
+ * 只包含看板展示所需字段，姓名、身份证号、社保号均已脱敏
+ */
+@Data
+@NoArgsConstructor
+public class PendingFeedRecord {
+
+    /**
+     * 记录ID
+     */
+    private String id;
+
+    /**
+     * 窗口id
+     */
+    private String windowId;
+
+    /**
+     * 窗口名称
+     */
+    private String windowName;
+
+    /**
+     * 姓名(脱敏)
+     */
+    private String name;
+
+    /**
+     * 年龄
+     */
+    private String age;
+
+    /**
+     * 性别
+     */
+    private String sex;
+
+    /**
+     * 社保号(脱敏)
+     */
+    private String socialSecurityNumber;
+
+    /**
+     * 身份证号(脱敏)
+     */
+    private String identityCardNumber;
+
+    /**
+     * 应收金额
+     */
+    private BigDecimal receivable;
+
+    /**
+     * 实收金额(收费)或实退金额(退费)
+     */
+    private BigDecimal amount;
+
+    /**
+     * 操作员
+     */
+    private String operator;
+
+    /**
+     * 操作时间
+     */
+    private String operateTime;
+
+    /**
+     * 记录状态
+     */
+    private String status;
+
+    /**
+     * 创建时间戳(毫秒)
+     */
+    private Long createTime;
+
+    public static PendingFeedRecord of(ChargeRecord record) {
+        PendingFeedRecord feedRecord = new PendingFeedRecord();
+        feedRecord.setId(record.getId());
+        feedRecord.setWindowId(record.getWindowId());
+        feedRecord.setWindowName(record.getWindowName());
+        feedRecord.setName(LogMask.name(record.getName()));
+        feedRecord.setAge(record.getAge());
+        feedRecord.setSex(record.getSex());
+        feedRecord.setSocialSecurityNumber(LogMask.socialSecurity(record.getSocialSecurityNumber()));
+        feedRecord.setIdentityCardNumber(LogMask.identityCard(record.getIdentityCardNumber()));
+        feedRecord.setReceivable(record.getReceivable());
+        feedRecord.setAmount(record.getPaidUp());
+        feedRecord.setOperator(record.getOperator());
+        feedRecord.setOperateTime(record.getOperateTime());
+        feedRecord.setStatus(record.getStatus());
+        feedRecord.setCreateTime(record.getCreateTime());
+        return feedRecord;
+    }
+
+    public static PendingFeedRecord of(RefundRecord record) {
+        PendingFeedRecord feedRecord = new PendingFeedRecord();
+        feedRecord.setId(record.getId());
+        feedRecord.setWindowId(record.getWindowId());
+        feedRecord.setWindowName(record.getWindowName());
+        feedRecord.setName(LogMask.name(record.getName()));
+        feedRecord.setAge(record.getAge());
+        feedRecord.setSex(record.getSex());
+        feedRecord.setSocialSecurityNumber(LogMask.socialSecurity(record.getSocialSecurityNumber()));
+        feedRecord.setIdentityCardNumber(LogMask.identityCard(record.getIdentityCardNumber()));
+        feedRecord.setReceivable(record.getReceivable());
+        feedRecord.setAmount(record.getRealRefundAmount());
+        feedRecord.setOperator(record.getOperator());
+        feedRecord.setOperateTime(record.getOperateTime());
+        feedRecord.setStatus(record.getStatus());
+        feedRecord.setCreateTime(record.getCreateTime());
+        return feedRecord;
+    }
+}
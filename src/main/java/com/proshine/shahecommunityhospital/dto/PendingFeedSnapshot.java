@@ -0,0 +1,31 @@
+package com.proshine.shahecommunityhospital.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 待确认记录推送订阅时的全量快照，均按创建时间倒序
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PendingFeedSnapshot {
+
+    /**
+     * 医院/店名ID
+     */
+    private String addressId;
+
+    /**
+     * 待确认收费记录
+     */
+    private List<PendingFeedRecord> chargeRecords;
+
+    /**
+     * 待确认退费记录
+     */
+    private List<PendingFeedRecord> refundRecords;
+}
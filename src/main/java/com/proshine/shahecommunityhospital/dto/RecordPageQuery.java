@@ -0,0 +1,40 @@
+package com.proshine.shahecommunityhospital.dto;
+
+import com.proshine.shahecommunityhospital.common.SearchBaseDTO;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 收费/退费记录游标分页查询DTO
+ * 对应接口：/thirdpart/medical/chargeRecords/page、/thirdpart/medical/refundRecords/page
+ * 使用 lastCreateTime/lastId 游标翻页，pageNumber 不生效
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class RecordPageQuery extends SearchBaseDTO {
+
+    /**
+     * 医院/店名ID，为空时查询全部医院
+     */
+    private String addressId;
+
+    /**
+     * 创建时间戳起始(毫秒)，包含
+     */
+    private Long startTime;
+
+    /**
+     * 创建时间戳截止(毫秒)，包含
+     */
+    private Long endTime;
+
+    /**
+     * 上一页最后一条记录的创建时间戳，首页为空
+     */
+    private Long lastCreateTime;
+
+    /**
+     * 上一页最后一条记录的ID，首页为空
+     */
+    private String lastId;
+}
@@ -8,7 +8,7 @@ import java.math.BigDecimal;
  * 对应接口：/thirdpart/medical/refundButtonClick
  */
 @Data
-public class RefundButtonClickRequest {
+public class RefundButtonClickRequest implements RefundRequest {
     
     /**
      * 医院/店名ID
@@ -0,0 +1,13 @@
+package com.proshine.shahecommunityhospital.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * 退费请求（退费按钮点击、确认退费）
+ *
+ * @author lenovo
+ */
+public interface RefundRequest extends MedicalRequest {
+
+    BigDecimal getRealRefundAmount();
+}
@@ -0,0 +1,24 @@
+package com.proshine.shahecommunityhospital.entity;
+
+import lombok.Data;
+
+import javax.persistence.*;
+
+/**
+ * 幂等键实体类
+ * 多节点部署时共享已处理请求，由 JdbcIdempotencyStore 读写，此处仅用于建表
+ */
+@Entity
+@Table(name = "tb_idempotency_key", indexes = {
+        @Index(name = "idx_idempotency_expire_time", columnList = "expire_time")
+})
+@Data
+public class IdempotencyKey {
+
+    @Id
+    @Column(name = "id", length = 128)
+    private String id; // 幂等键的 SHA-256 摘要(十六进制)，不保存含身份证号的原文
+
+    @Column(name = "expire_time", nullable = false)
+    private Long expireTime; // 过期时间戳(毫秒)
+}
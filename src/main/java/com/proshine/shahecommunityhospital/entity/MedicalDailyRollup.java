@@ -0,0 +1,63 @@
+package com.proshine.shahecommunityhospital.entity;
+
+import lombok.Data;
+import org.hibernate.annotations.GenericGenerator;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+
+/**
+ * 收费/退费按日汇总实体类
+ * 每个 (医院, 窗口, 日期) 一行，在记录确认时增量累加
+ */
+@Entity
+@Table(name = "tb_medical_daily_rollup", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_rollup_address_window_day", columnNames = {"address_id", "window_id", "stat_day"})
+}, indexes = {
+        @Index(name = "idx_rollup_window_day", columnList = "window_id, stat_day")
+})
+@Data
+public class MedicalDailyRollup {
+
+    @Id
+    @GeneratedValue(generator = "uuid")
+    @GenericGenerator(name = "uuid", strategy = "uuid2")
+    @Column(name = "id", length = 36)
+    private String id;
+
+    @Column(name = "address_id", nullable = false, length = 50)
+    private String addressId;
+
+    @Column(name = "window_id", nullable = false, length = 50)
+    private String windowId;
+
+    @Column(name = "stat_day", nullable = false)
+    private Integer statDay; // 统计日期，格式yyyyMMdd，按操作时间归属
+
+    @Column(name = "charge_count", nullable = false)
+    private Long chargeCount = 0L; // 已确认收费笔数
+
+    @Column(name = "receivable", nullable = false, precision = 14, scale = 2)
+    private BigDecimal receivable = BigDecimal.ZERO; // 应收合计
+
+    @Column(name = "paid_up", nullable = false, precision = 14, scale = 2)
+    private BigDecimal paidUp = BigDecimal.ZERO; // 实收合计
+
+    @Column(name = "change_amount", nullable = false, precision = 14, scale = 2)
+    private BigDecimal change = BigDecimal.ZERO; // 找零合计
+
+    @Column(name = "refund_count", nullable = false)
+    private Long refundCount = 0L; // 已确认退费笔数
+
+    @Column(name = "real_refund_amount", nullable = false, precision = 14, scale = 2)
+    private BigDecimal realRefundAmount = BigDecimal.ZERO; // 实退合计
+
+    @Column(name = "update_time")
+    private Long updateTime; // 更新时间戳(毫秒)
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updateTime = System.currentTimeMillis();
+    }
+}
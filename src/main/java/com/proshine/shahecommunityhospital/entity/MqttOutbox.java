@@ -0,0 +1,67 @@
+package com.proshine.shahecommunityhospital.entity;
+
+import lombok.Data;
+import org.hibernate.annotations.GenericGenerator;
+
+import javax.persistence.*;
+
+/**
+ * MQTT指令发件箱实体类
+ * 与收费/退费记录在同一事务中写入，由中继负责发布和重试
+ */
+@Entity
+@Table(name = "tb_mqtt_outbox", indexes = {
+        @Index(name = "idx_outbox_status_next_attempt", columnList = "status, next_attempt_time"),
+        @Index(name = "idx_outbox_claim_token", columnList = "claim_token")
+})
+@Data
+public class MqttOutbox {
+
+    @Id
+    @GeneratedValue(generator = "uuid")
+    @GenericGenerator(name = "uuid", strategy = "uuid2")
+    @Column(name = "id", length = 36)
+    private String id;
+
+    @Column(name = "window_id", nullable = false, length = 50)
+    private String windowId;
+
+    @Column(name = "operation", nullable = false, length = 50)
+    private String operation;
+
+    @Column(name = "seq")
+    private Long seq; // 指令序号，补发时沿用，终端据此丢弃过期指令
+
+    @Column(name = "status", nullable = false, length = 20)
+    private String status; // 状态：PENDING(待发送), SENT(已发送), FAILED(重试耗尽)
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0; // 已重试次数
+
+    @Column(name = "next_attempt_time", nullable = false)
+    private Long nextAttemptTime; // 下次发送时间戳(毫秒)
+
+    @Column(name = "claim_token", length = 36)
+    private String claimToken; // 最近一次认领该指令的中继批次，防止多个节点重复补发
+
+    @Column(name = "last_error", length = 255)
+    private String lastError;
+
+    @Column(name = "create_time")
+    private Long createTime; // 创建时间戳(毫秒)
+
+    @Column(name = "update_time")
+    private Long updateTime; // 更新时间戳(毫秒)
+
+    @PrePersist
+    protected void onCreate() {
+        long currentTime = System.currentTimeMillis();
+        createTime = currentTime;
+        updateTime = currentTime;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updateTime = System.currentTimeMillis();
+    }
+}
@@ -1,5 +1,7 @@
 package com.proshine.shahecommunityhospital.entity;
 
+import com.proshine.shahecommunityhospital.config.OrderedUuidGenerator;
+import com.proshine.shahecommunityhospital.utils.OperateTimeParser;
 import lombok.Data;
 import org.hibernate.annotations.GenericGenerator;
 
@@ -10,13 +12,19 @@ import java.math.BigDecimal;
  * 对应退费按钮点击和确认退费接口
  */
 @Entity
-@Table(name = "tb_refund_record")
+@Table(name = "tb_refund_record", indexes = {
+        @Index(name = "idx_refund_latest_pending", columnList = "identity_card_number, status, window_id, create_time"),
+        @Index(name = "idx_refund_status_ctime", columnList = "status, create_time"),
+        @Index(name = "idx_refund_address_ctime", columnList = "address_id, create_time"),
+        @Index(name = "idx_refund_ctime", columnList = "create_time"),
+        @Index(name = "idx_refund_otimestamp", columnList = "operate_timestamp")
+})
 @Data
 public class RefundRecord {
     
     @Id
-    @GeneratedValue(generator = "uuid")
-    @GenericGenerator(name = "uuid", strategy = "uuid2")
+    @GeneratedValue(generator = "ordered-uuid")
+    @GenericGenerator(name = "ordered-uuid", strategy = OrderedUuidGenerator.STRATEGY)
     @Column(name = "id", length = 36)
     private String id;
     
@@ -59,6 +67,12 @@ public class RefundRecord {
     @Column(name = "operate_time", nullable = false, length = 50)
     private String operateTime;
     
+    @Column(name = "operate_timestamp")
+    private Long operateTimestamp; // 操作时间戳(毫秒)，由 operateTime 解析，格式无法识别时取创建时间
+    
+    @Column(name = "age_years")
+    private Integer ageYears; // 周岁数，由 age 解析，无法识别时为空
+    
     @Column(name = "status", length = 20)
     private String status; // 状态：PENDING(待确认), CONFIRMED(已确认)
     
@@ -68,15 +82,45 @@ public class RefundRecord {
     @Column(name = "update_time")
     private Long updateTime; // 更新时间戳(毫秒)
     
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private Long version; // 乐观锁版本号；确认时先以 status = 'PENDING' 条件更新认领，并发确认同一条待确认记录只有一个成功，保存时再按 id + version 校验
+    
     @PrePersist
     protected void onCreate() {
         long currentTime = System.currentTimeMillis();
         createTime = currentTime;
         updateTime = currentTime;
+        parseTypedFields();
     }
     
     @PreUpdate
     protected void onUpdate() {
         updateTime = System.currentTimeMillis();
+        parseTypedFields();
+    }
+    
+    /**
+     * 设置操作时间并同步刷新操作时间戳，确认时覆盖操作时间后无需等到flush即可按新时间统计
+     */
+    public void setOperateTime(String operateTime) {
+        this.operateTime = operateTime;
+        parseOperateTimestamp();
+    }
+    
+    /**
+     * 操作时间和年龄在写入时解析一次，查询直接使用数值列；
+     * 操作时间无法识别时取创建时间，记录不会从操作时间范围查询中消失
+     */
+    private void parseTypedFields() {
+        parseOperateTimestamp();
+        int years = OperateTimeParser.parseAgeYears(age);
+        ageYears = years >= 0 ? years : null;
+    }
+    
+    private void parseOperateTimestamp() {
+        long millis = OperateTimeParser.parse(operateTime);
+        // 新记录在持久化前还没有创建时间，无法识别的操作时间留待写入时回退
+        operateTimestamp = millis != OperateTimeParser.INVALID ? Long.valueOf(millis) : createTime;
     }
 }
\ No newline at end of file
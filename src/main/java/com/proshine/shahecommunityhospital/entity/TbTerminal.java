@@ -1,5 +1,6 @@
 package com.proshine.shahecommunityhospital.entity;
 
+import com.proshine.shahecommunityhospital.cache.TerminalRouteInvalidationListener;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.experimental.Accessors;
@@ -21,6 +22,7 @@ import java.util.Date;
 @Accessors(chain = true)
 @Entity
 @Table(name = "tb_terminal")
+@EntityListeners(TerminalRouteInvalidationListener.class)
 public class TbTerminal implements Serializable {
 
     private static final long serialVersionUID = 1L;
@@ -0,0 +1,28 @@
+package com.proshine.shahecommunityhospital.event;
+
+import com.proshine.shahecommunityhospital.entity.ChargeRecord;
+import com.proshine.shahecommunityhospital.entity.RefundRecord;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 收费/退费记录变更事件
+ * 记录保存后在业务事务内发布，监听方使用 @TransactionalEventListener 在提交后处理；
+ * chargeRecord 和 refundRecord 只有一个不为空
+ */
+@Data
+@AllArgsConstructor
+public class MedicalRecordChangedEvent {
+
+    private ChargeRecord chargeRecord;
+
+    private RefundRecord refundRecord;
+
+    public static MedicalRecordChangedEvent of(ChargeRecord chargeRecord) {
+        return new MedicalRecordChangedEvent(chargeRecord, null);
+    }
+
+    public static MedicalRecordChangedEvent of(RefundRecord refundRecord) {
+        return new MedicalRecordChangedEvent(null, refundRecord);
+    }
+}
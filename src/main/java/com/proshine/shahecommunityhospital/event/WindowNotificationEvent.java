@@ -0,0 +1,22 @@
+package com.proshine.shahecommunityhospital.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 窗口通知事件
+ * 发件箱记录写入后在业务事务内发布，事务提交后分配序号并交给分发器发送；回滚时不发送
+ */
+@Data
+@AllArgsConstructor
+public class WindowNotificationEvent {
+
+    /**
+     * 发件箱ID，发送成功后据此标记已发送
+     */
+    private String outboxId;
+
+    private String windowId;
+
+    private String operation;
+}
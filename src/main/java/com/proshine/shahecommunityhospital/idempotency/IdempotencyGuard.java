@@ -0,0 +1,181 @@
+package com.proshine.shahecommunityhospital.idempotency;
+
+import com.proshine.shahecommunityhospital.utils.LogMask;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 重复请求拦截
+ * 以请求id或 (指令, 窗口, 身份证号, 操作时间) 作为幂等键，TTL内重复的请求直接返回，
+ * 不访问数据库也不通知窗口终端。本地存储有容量上限；
+ * 配置 medical.idempotency.store=jdbc 时再经共享表校验，用于多节点部署
+ *
+ * @author lenovo
+ */
+@Slf4j
+@Component
+public class IdempotencyGuard {
+
+    /**
+     * 客户端传入的请求id请求头
+     */
+    public static final String HEADER = "Idempotency-Key";
+
+    private final IdempotencyStore sharedStore;
+
+    private final boolean enabled;
+
+    private final int maxSize;
+
+    private final long ttlMillis;
+
+    /**
+     * 幂等键 -> 过期时间，TTL固定，插入顺序即过期顺序
+     */
+    private final LinkedHashMap<String, Long> keys = new LinkedHashMap<>();
+
+    private final LongAdder acceptedCount = new LongAdder();
+
+    private final LongAdder suppressedCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    public IdempotencyGuard(ObjectProvider<IdempotencyStore> sharedStore,
+                            @Value("${medical.idempotency.enabled:true}") boolean enabled,
+                            @Value("${medical.idempotency.max-size:10000}") int maxSize,
+                            @Value("${medical.idempotency.ttl-seconds:60}") long ttlSeconds) {
+        this.sharedStore = sharedStore.getIfAvailable();
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000L;
+    }
+
+    /**
+     * 生成幂等键，有请求id时以请求id为准
+     *
+     * @param operation 指令
+     * @param requestId 客户端请求id，可为空
+     * @param windowId 窗口id
+     * @param identityCardNumber 身份证号
+     * @param operateTime 操作时间
+     */
+    public static String key(String operation, String requestId, String windowId, String identityCardNumber,
+                             String operateTime) {
+        if (StringUtils.hasText(requestId)) {
+            return operation + "#" + requestId;
+        }
+        return operation + "|" + windowId + "|" + identityCardNumber + "|" + operateTime;
+    }
+
+    /**
+     * 幂等键脱敏后用于日志，键中的身份证号按身份证号脱敏
+     */
+    static String maskKey(String key) {
+        String[] parts = key.split("\\|", -1);
+        if (parts.length != 4) {
+            return key;
+        }
+        parts[2] = LogMask.identityCard(parts[2]);
+        return String.join("|", parts);
+    }
+
+    /**
+     * 占用幂等键
+     *
+     * @return 首次请求返回true；TTL内的重复请求返回false
+     * @throws RuntimeException 共享表访问失败，此时本地记录已撤销
+     */
+    public boolean tryAcquire(String key) {
+        if (!enabled) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        long expireTime = now + ttlMillis;
+        synchronized (keys) {
+            expire(now);
+            if (keys.containsKey(key)) {
+                suppressedCount.increment();
+                return false;
+            }
+            keys.put(key, expireTime);
+            while (keys.size() > maxSize) {
+                Iterator<String> eldest = keys.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+                evictionCount.increment();
+            }
+        }
+        boolean acquired;
+        try {
+            acquired = sharedStore == null || sharedStore.tryAcquire(key, expireTime, now);
+        } catch (RuntimeException e) {
+            synchronized (keys) {
+                keys.remove(key);
+            }
+            throw e;
+        }
+        if (!acquired) {
+            // 其他节点已处理，保留本地记录，后续重复请求无需再查库
+            suppressedCount.increment();
+            return false;
+        }
+        acceptedCount.increment();
+        return true;
+    }
+
+    /**
+     * 处理失败时释放幂等键，允许客户端重试
+     */
+    public void release(String key) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (keys) {
+            keys.remove(key);
+        }
+        if (sharedStore != null) {
+            try {
+                sharedStore.release(key);
+            } catch (Exception e) {
+                log.warn("释放共享幂等键失败，等待过期 - 键: {}, 错误: {}", maskKey(key), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 统计快照
+     */
+    public Stats stats() {
+        int size;
+        synchronized (keys) {
+            size = keys.size();
+        }
+        return new Stats(size, acceptedCount.sum(), suppressedCount.sum(), evictionCount.sum());
+    }
+
+    private void expire(long now) {
+        Iterator<Map.Entry<String, Long>> iterator = keys.entrySet().iterator();
+        while (iterator.hasNext() && iterator.next().getValue() <= now) {
+            iterator.remove();
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Stats {
+        private int size;
+        private long acceptedCount;
+        private long suppressedCount;
+        private long evictionCount;
+    }
+}
@@ -0,0 +1,24 @@
+package com.proshine.shahecommunityhospital.idempotency;
+
+/**
+ * 多节点共享的幂等键存储
+ *
+ * @author lenovo
+ */
+public interface IdempotencyStore {
+
+    /**
+     * 占用幂等键
+     *
+     * @param key 幂等键
+     * @param expireTime 过期时间戳(毫秒)
+     * @param now 当前时间戳(毫秒)
+     * @return 占用成功返回true；键已被占用且未过期返回false
+     */
+    boolean tryAcquire(String key, long expireTime, long now);
+
+    /**
+     * 释放幂等键，处理失败后允许重试
+     */
+    void release(String key);
+}
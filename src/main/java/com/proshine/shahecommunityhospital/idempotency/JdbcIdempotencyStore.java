@@ -0,0 +1,78 @@
+package com.proshine.shahecommunityhospital.idempotency;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 基于 tb_idempotency_key 表的幂等键存储，用于多节点部署
+ * 依赖主键唯一约束完成占用，过期的键通过条件更新重新占用。
+ * 幂等键可能包含身份证号，表中只保存键的 SHA-256 摘要
+ *
+ * @author lenovo
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "medical.idempotency.store", havingValue = "jdbc")
+public class JdbcIdempotencyStore implements IdempotencyStore {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JdbcIdempotencyStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public boolean tryAcquire(String key, long expireTime, long now) {
+        String id = storageKey(key);
+        try {
+            jdbcTemplate.update("INSERT INTO tb_idempotency_key (id, expire_time) VALUES (?, ?)", id, expireTime);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return jdbcTemplate.update("UPDATE tb_idempotency_key SET expire_time = ? WHERE id = ? AND expire_time <= ?",
+                    expireTime, id, now) > 0;
+        }
+    }
+
+    @Override
+    public void release(String key) {
+        jdbcTemplate.update("DELETE FROM tb_idempotency_key WHERE id = ?", storageKey(key));
+    }
+
+    /**
+     * 清理过期的幂等键
+     */
+    @Scheduled(fixedDelayString = "${medical.idempotency.purge-interval-millis:600000}")
+    public void purge() {
+        int deleted = jdbcTemplate.update("DELETE FROM tb_idempotency_key WHERE expire_time <= ?",
+                System.currentTimeMillis());
+        if (deleted > 0) {
+            log.info("清理过期幂等键：{}", deleted);
+        }
+    }
+
+    /**
+     * 幂等键的 SHA-256 摘要(64位十六进制)，不在表中保存身份证号等原文
+     */
+    static String storageKey(String key) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("JVM不支持SHA-256", e);
+        }
+        byte[] hash = digest.digest(key.getBytes(StandardCharsets.UTF_8));
+        StringBuilder hex = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
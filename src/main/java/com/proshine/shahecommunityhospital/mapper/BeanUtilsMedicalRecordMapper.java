@@ -0,0 +1,59 @@
+package com.proshine.shahecommunityhospital.mapper;
+
+import com.proshine.shahecommunityhospital.dto.ChargeButtonClickRequest;
+import com.proshine.shahecommunityhospital.dto.ConfirmPaymentRequest;
+import com.proshine.shahecommunityhospital.dto.ConfirmRefundRequest;
+import com.proshine.shahecommunityhospital.dto.RefundButtonClickRequest;
+import com.proshine.shahecommunityhospital.entity.ChargeRecord;
+import com.proshine.shahecommunityhospital.entity.RefundRecord;
+import org.springframework.beans.BeanUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * 基于 BeanUtils 反射拷贝的映射实现
+ *
+ * @author lenovo
+ */
+@Component
+@ConditionalOnProperty(name = "medical.mapping.mode", havingValue = "reflection")
+public class BeanUtilsMedicalRecordMapper implements MedicalRecordMapper {
+
+    @Override
+    public ChargeRecord toChargeRecord(ChargeButtonClickRequest request) {
+        ChargeRecord record = new ChargeRecord();
+        BeanUtils.copyProperties(request, record);
+        return record;
+    }
+
+    @Override
+    public ChargeRecord toChargeRecord(ConfirmPaymentRequest request) {
+        ChargeRecord record = new ChargeRecord();
+        BeanUtils.copyProperties(request, record);
+        return record;
+    }
+
+    @Override
+    public void updateChargeRecord(ConfirmPaymentRequest request, ChargeRecord record) {
+        BeanUtils.copyProperties(request, record, "id", "createTime");
+    }
+
+    @Override
+    public RefundRecord toRefundRecord(RefundButtonClickRequest request) {
+        RefundRecord record = new RefundRecord();
+        BeanUtils.copyProperties(request, record);
+        return record;
+    }
+
+    @Override
+    public RefundRecord toRefundRecord(ConfirmRefundRequest request) {
+        RefundRecord record = new RefundRecord();
+        BeanUtils.copyProperties(request, record);
+        return record;
+    }
+
+    @Override
+    public void updateRefundRecord(ConfirmRefundRequest request, RefundRecord record) {
+        BeanUtils.copyProperties(request, record, "id", "createTime");
+    }
+}
@@ -0,0 +1,110 @@
+package com.proshine.shahecommunityhospital.mapper;
+
+import com.proshine.shahecommunityhospital.dto.ChargeButtonClickRequest;
+import com.proshine.shahecommunityhospital.dto.ConfirmPaymentRequest;
+import com.proshine.shahecommunityhospital.dto.ConfirmRefundRequest;
+import com.proshine.shahecommunityhospital.dto.RefundButtonClickRequest;
+import com.proshine.shahecommunityhospital.entity.ChargeRecord;
+import com.proshine.shahecommunityhospital.entity.RefundRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * 逐字段赋值的映射实现，无反射
+ * 与 BeanUtils.copyProperties 语义一致：同名属性全部覆盖（包括null），不涉及 id/createTime/status 等实体独有属性。
+ * DTO或实体新增同名属性时需同步修改此类
+ *
+ * @author lenovo
+ */
+@Component
+@ConditionalOnProperty(name = "medical.mapping.mode", havingValue = "direct", matchIfMissing = true)
+public class DirectMedicalRecordMapper implements MedicalRecordMapper {
+
+    @Override
+    public ChargeRecord toChargeRecord(ChargeButtonClickRequest request) {
+        ChargeRecord record = new ChargeRecord();
+        record.setAddressId(request.getAddressId());
+        record.setAddressName(request.getAddressName());
+        record.setWindowId(request.getWindowId());
+        record.setWindowName(request.getWindowName());
+        record.setName(request.getName());
+        record.setAge(request.getAge());
+        record.setSex(request.getSex());
+        record.setReceivable(request.getReceivable());
+        record.setPaidUp(request.getPaidUp());
+        record.setChange(request.getChange());
+        record.setSocialSecurityNumber(request.getSocialSecurityNumber());
+        record.setIdentityCardNumber(request.getIdentityCardNumber());
+        record.setOperator(request.getOperator());
+        record.setOperateTime(request.getOperateTime());
+        return record;
+    }
+
+    @Override
+    public ChargeRecord toChargeRecord(ConfirmPaymentRequest request) {
+        ChargeRecord record = new ChargeRecord();
+        updateChargeRecord(request, record);
+        return record;
+    }
+
+    @Override
+    public void updateChargeRecord(ConfirmPaymentRequest request, ChargeRecord record) {
+        record.setAddressId(request.getAddressId());
+        record.setAddressName(request.getAddressName());
+        record.setWindowId(request.getWindowId());
+        record.setWindowName(request.getWindowName());
+        record.setName(request.getName());
+        record.setAge(request.getAge());
+        record.setSex(request.getSex());
+        record.setReceivable(request.getReceivable());
+        record.setPaidUp(request.getPaidUp());
+        record.setChange(request.getChange());
+        record.setSocialSecurityNumber(request.getSocialSecurityNumber());
+        record.setIdentityCardNumber(request.getIdentityCardNumber());
+        record.setOperator(request.getOperator());
+        record.setOperateTime(request.getOperateTime());
+    }
+
+    @Override
+    public RefundRecord toRefundRecord(RefundButtonClickRequest request) {
+        RefundRecord record = new RefundRecord();
+        record.setAddressId(request.getAddressId());
+        record.setAddressName(request.getAddressName());
+        record.setWindowId(request.getWindowId());
+        record.setWindowName(request.getWindowName());
+        record.setName(request.getName());
+        record.setAge(request.getAge());
+        record.setSex(request.getSex());
+        record.setReceivable(request.getReceivable());
+        record.setRealRefundAmount(request.getRealRefundAmount());
+        record.setSocialSecurityNumber(request.getSocialSecurityNumber());
+        record.setIdentityCardNumber(request.getIdentityCardNumber());
+        record.setOperator(request.getOperator());
+        record.setOperateTime(request.getOperateTime());
+        return record;
+    }
+
+    @Override
+    public RefundRecord toRefundRecord(ConfirmRefundRequest request) {
+        RefundRecord record = new RefundRecord();
+        updateRefundRecord(request, record);
+        return record;
+    }
+
+    @Override
+    public void updateRefundRecord(ConfirmRefundRequest request, RefundRecord record) {
+        record.setAddressId(request.getAddressId());
+        record.setAddressName(request.getAddressName());
+        record.setWindowId(request.getWindowId());
+        record.setWindowName(request.getWindowName());
+        record.setName(request.getName());
+        record.setAge(request.getAge());
+        record.setSex(request.getSex());
+        record.setReceivable(request.getReceivable());
+        record.setRealRefundAmount(request.getRealRefundAmount());
+        record.setSocialSecurityNumber(request.getSocialSecurityNumber());
+        record.setIdentityCardNumber(request.getIdentityCardNumber());
+        record.setOperator(request.getOperator());
+        record.setOperateTime(request.getOperateTime());
+    }
+}
@@ -0,0 +1,47 @@
+package com.proshine.shahecommunityhospital.mapper;
+
+import com.proshine.shahecommunityhospital.dto.ChargeButtonClickRequest;
+import com.proshine.shahecommunityhospital.dto.ConfirmPaymentRequest;
+import com.proshine.shahecommunityhospital.dto.ConfirmRefundRequest;
+import com.proshine.shahecommunityhospital.dto.RefundButtonClickRequest;
+import com.proshine.shahecommunityhospital.entity.ChargeRecord;
+import com.proshine.shahecommunityhospital.entity.RefundRecord;
+
+/**
+ * 请求DTO到收费/退费实体的映射
+ * 通过 medical.mapping.mode 选择实现：direct(默认，逐字段赋值) 或 reflection(BeanUtils)
+ *
+ * @author lenovo
+ */
+public interface MedicalRecordMapper {
+
+    /**
+     * 收费按钮点击请求 -> 新收费记录
+     */
+    ChargeRecord toChargeRecord(ChargeButtonClickRequest request);
+
+    /**
+     * 确认收费请求 -> 新收费记录
+     */
+    ChargeRecord toChargeRecord(ConfirmPaymentRequest request);
+
+    /**
+     * 确认收费请求覆盖已有收费记录，保留 id 和 createTime
+     */
+    void updateChargeRecord(ConfirmPaymentRequest request, ChargeRecord record);
+
+    /**
+     * 退费按钮点击请求 -> 新退费记录
+     */
+    RefundRecord toRefundRecord(RefundButtonClickRequest request);
+
+    /**
+     * 确认退费请求 -> 新退费记录
+     */
+    RefundRecord toRefundRecord(ConfirmRefundRequest request);
+
+    /**
+     * 确认退费请求覆盖已有退费记录，保留 id 和 createTime
+     */
+    void updateRefundRecord(ConfirmRefundRequest request, RefundRecord record);
+}
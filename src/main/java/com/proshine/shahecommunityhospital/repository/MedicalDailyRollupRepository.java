@@ -0,0 +1,68 @@
+package com.proshine.shahecommunityhospital.repository;
+
+import com.proshine.shahecommunityhospital.entity.MedicalDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 收费/退费按日汇总Repository接口
+ */
+@Repository
+public interface MedicalDailyRollupRepository extends JpaRepository<MedicalDailyRollup, String> {
+
+    /**
+     * 累加一个 (医院, 窗口, 日期) 的汇总值，不存在时插入
+     */
+    @Modifying
+    @Query(value = "INSERT INTO tb_medical_daily_rollup (id, address_id, window_id, stat_day, charge_count, receivable, "
+            + "paid_up, change_amount, refund_count, real_refund_amount, update_time) "
+            + "VALUES (:id, :addressId, :windowId, :statDay, :chargeCount, :receivable, :paidUp, :change, "
+            + ":refundCount, :realRefundAmount, :now) "
+            + "ON DUPLICATE KEY UPDATE charge_count = charge_count + VALUES(charge_count), "
+            + "receivable = receivable + VALUES(receivable), paid_up = paid_up + VALUES(paid_up), "
+            + "change_amount = change_amount + VALUES(change_amount), refund_count = refund_count + VALUES(refund_count), "
+            + "real_refund_amount = real_refund_amount + VALUES(real_refund_amount), update_time = VALUES(update_time)",
+            nativeQuery = true)
+    int accumulate(@Param("id") String id,
+                   @Param("addressId") String addressId,
+                   @Param("windowId") String windowId,
+                   @Param("statDay") Integer statDay,
+                   @Param("chargeCount") long chargeCount,
+                   @Param("receivable") BigDecimal receivable,
+                   @Param("paidUp") BigDecimal paidUp,
+                   @Param("change") BigDecimal change,
+                   @Param("refundCount") long refundCount,
+                   @Param("realRefundAmount") BigDecimal realRefundAmount,
+                   @Param("now") long now);
+
+    /**
+     * 按医院和日期范围查询汇总
+     */
+    @Query("SELECT d FROM MedicalDailyRollup d WHERE d.addressId = :addressId AND d.statDay BETWEEN :startDay AND :endDay")
+    List<MedicalDailyRollup> findByAddressId(@Param("addressId") String addressId,
+                                             @Param("startDay") Integer startDay,
+                                             @Param("endDay") Integer endDay);
+
+    /**
+     * 按窗口和日期范围查询汇总
+     */
+    @Query("SELECT d FROM MedicalDailyRollup d WHERE d.windowId = :windowId AND d.statDay BETWEEN :startDay AND :endDay")
+    List<MedicalDailyRollup> findByWindowId(@Param("windowId") String windowId,
+                                            @Param("startDay") Integer startDay,
+                                            @Param("endDay") Integer endDay);
+
+    /**
+     * 加锁读取全部汇总（重建用），等待进行中的累加提交并阻塞新的累加直到重建事务结束
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT d FROM MedicalDailyRollup d")
+    List<MedicalDailyRollup> findAllForUpdate();
+}
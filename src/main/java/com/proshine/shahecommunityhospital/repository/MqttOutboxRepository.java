@@ -0,0 +1,66 @@
+package com.proshine.shahecommunityhospital.repository;
+
+import com.proshine.shahecommunityhospital.entity.MqttOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * MQTT指令发件箱Repository接口
+ */
+@Repository
+public interface MqttOutboxRepository extends JpaRepository<MqttOutbox, String> {
+
+    /**
+     * 查询到期待发送的指令
+     */
+    @Query("SELECT o FROM MqttOutbox o WHERE o.status = 'PENDING' AND o.nextAttemptTime <= :now ORDER BY o.nextAttemptTime")
+    List<MqttOutbox> findDue(@Param("now") Long now, Pageable pageable);
+
+    /**
+     * 认领到期指令：写入批次标识并把下次发送时间推到租约结束，
+     * 其他节点同时认领时按行锁先后只有一个更新成功；中继宕机时租约到期后可被重新认领
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE MqttOutbox o SET o.claimToken = :token, o.nextAttemptTime = :leaseUntil "
+            + "WHERE o.id IN :ids AND o.status = 'PENDING' AND o.nextAttemptTime <= :now")
+    int claim(@Param("ids") Collection<String> ids, @Param("token") String token,
+              @Param("now") Long now, @Param("leaseUntil") Long leaseUntil);
+
+    /**
+     * 查询指定批次认领到的指令
+     */
+    List<MqttOutbox> findByClaimTokenAndStatus(String claimToken, String status);
+
+    /**
+     * 批量标记为已发送
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE MqttOutbox o SET o.status = 'SENT', o.updateTime = :now WHERE o.id IN :ids AND o.status = 'PENDING'")
+    int markSent(@Param("ids") Collection<String> ids, @Param("now") Long now);
+
+    /**
+     * 记录事务提交后分配的指令序号，补发时沿用；已有序号的不覆盖
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE MqttOutbox o SET o.seq = :seq WHERE o.id = :id AND o.seq IS NULL")
+    int assignSeq(@Param("id") String id, @Param("seq") Long seq);
+
+    /**
+     * 清理指定时间之前已发送的指令
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM MqttOutbox o WHERE o.status = 'SENT' AND o.updateTime < :before")
+    int deleteSentBefore(@Param("before") Long before);
+}
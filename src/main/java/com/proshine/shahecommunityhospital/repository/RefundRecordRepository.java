@@ -1,14 +1,24 @@
 package com.proshine.shahecommunityhospital.repository;
 
 import com.proshine.shahecommunityhospital.entity.RefundRecord;
+import com.proshine.shahecommunityhospital.utils.OperateTimeParser;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_FLUSH_MODE;
 
 /**
  * 退费记录Repository接口
@@ -20,6 +30,11 @@ public interface RefundRecordRepository extends JpaRepository<RefundRecord, Stri
      * 根据身份证号查询退费记录
      */
     List<RefundRecord> findByIdentityCardNumber(String identityCardNumber);
+
+    /**
+     * 根据身份证号查询最近的退费记录，按创建时间倒序
+     */
+    List<RefundRecord> findByIdentityCardNumberOrderByCreateTimeDesc(String identityCardNumber, Pageable pageable);
     
     /**
      * 根据社保号查询退费记录
@@ -61,6 +76,35 @@ public interface RefundRecordRepository extends JpaRepository<RefundRecord, Stri
      */
     List<RefundRecord> findByIdentityCardNumberAndStatus(String identityCardNumber, String status);
     
+    /**
+     * 查询身份证号在指定窗口下最新的一条指定状态的退费记录
+     * 走 (identity_card_number, status, window_id, create_time) 索引，只取一行；
+     * 查询前不自动flush，批量上报中尚未flush的记录由调用方处理
+     */
+    @QueryHints(@QueryHint(name = HINT_FLUSH_MODE, value = "COMMIT"))
+    Optional<RefundRecord> findFirstByIdentityCardNumberAndStatusAndWindowIdOrderByCreateTimeDesc(
+            String identityCardNumber, String status, String windowId);
+
+    /**
+     * 身份证号在指定窗口下是否已有操作时间相同的指定状态退费记录，用于识别重复确认
+     * 走 (identity_card_number, status, window_id, create_time) 索引前缀；查询前不自动flush
+     */
+    @QueryHints(@QueryHint(name = HINT_FLUSH_MODE, value = "COMMIT"))
+    boolean existsByIdentityCardNumberAndStatusAndWindowIdAndOperateTime(
+            String identityCardNumber, String status, String windowId, String operateTime);
+
+    /**
+     * 把待确认退费记录改为已确认：按 WHERE id = ? AND status = 'PENDING' 条件更新，
+     * 并发确认同一条记录时只有一个更新成功，其余返回0；不修改版本号，随后的实体保存仍按版本号校验。
+     * 执行前不自动flush，批量上报中尚未flush的记录由调用方处理
+     *
+     * @return 更新的行数，0 表示记录已被其他请求确认
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_FLUSH_MODE, value = "COMMIT"))
+    @Query("UPDATE RefundRecord r SET r.status = 'CONFIRMED' WHERE r.id = :id AND r.status = 'PENDING'")
+    int confirmPending(@Param("id") String id);
+    
     /**
      * 根据时间戳范围查询退费记录
      */
@@ -82,10 +126,21 @@ public interface RefundRecordRepository extends JpaRepository<RefundRecord, Stri
     
     /**
      * 根据操作时间范围查询退费记录
+     * 按入库时解析的操作时间戳查询，起止时间支持 OperateTimeParser 能识别的全部格式；
+     * 操作时间无法识别的记录按创建时间参与查询
+     *
+     * @throws IllegalArgumentException 起止时间格式无法识别
+     */
+    default List<RefundRecord> findByOperateTimeBetween(String startTime, String endTime) {
+        return findByOperateTimestampBetween(OperateTimeParser.parseOrThrow(startTime),
+                OperateTimeParser.parseOrThrow(endTime));
+    }
+    
+    /**
+     * 根据操作时间戳范围查询退费记录
      */
-    @Query("SELECT r FROM RefundRecord r WHERE r.operateTime BETWEEN :startTime AND :endTime ORDER BY r.operateTime DESC")
-    List<RefundRecord> findByOperateTimeBetween(@Param("startTime") String startTime, 
-                                               @Param("endTime") String endTime);
+    @Query("SELECT r FROM RefundRecord r WHERE r.operateTimestamp BETWEEN :startTime AND :endTime ORDER BY r.operateTimestamp DESC")
+    List<RefundRecord> findByOperateTimestampBetween(@Param("startTime") Long startTime, @Param("endTime") Long endTime);
     
     /**
      * 根据退费金额范围查询退费记录
@@ -129,4 +184,36 @@ public interface RefundRecordRepository extends JpaRepository<RefundRecord, Stri
      */
     @Query("SELECT r FROM RefundRecord r WHERE r.createTime <= :timestamp ORDER BY r.createTime DESC")
     List<RefundRecord> findByCreateTimeBefore(@Param("timestamp") Long timestamp);
+    
+    /**
+     * 按医院ID游标分页查询退费记录，按 (createTime, id) 倒序
+     */
+    @Query("SELECT r FROM RefundRecord r WHERE r.addressId = :addressId AND r.createTime BETWEEN :startTime AND :endTime "
+            + "AND r.createTime <= :lastCreateTime AND (r.createTime < :lastCreateTime OR (r.createTime = :lastCreateTime AND r.id < :lastId)) "
+            + "ORDER BY r.createTime DESC, r.id DESC")
+    List<RefundRecord> findPageByAddressId(@Param("addressId") String addressId,
+                                           @Param("startTime") Long startTime,
+                                           @Param("endTime") Long endTime,
+                                           @Param("lastCreateTime") Long lastCreateTime,
+                                           @Param("lastId") String lastId,
+                                           Pageable pageable);
+    
+    /**
+     * 按创建时间范围游标分页查询退费记录，按 (createTime, id) 倒序
+     */
+    @Query("SELECT r FROM RefundRecord r WHERE r.createTime BETWEEN :startTime AND :endTime "
+            + "AND r.createTime <= :lastCreateTime AND (r.createTime < :lastCreateTime OR (r.createTime = :lastCreateTime AND r.id < :lastId)) "
+            + "ORDER BY r.createTime DESC, r.id DESC")
+    List<RefundRecord> findPageByCreateTimeBetween(@Param("startTime") Long startTime,
+                                                   @Param("endTime") Long endTime,
+                                                   @Param("lastCreateTime") Long lastCreateTime,
+                                                   @Param("lastId") String lastId,
+                                                   Pageable pageable);
+    
+    /**
+     * 按状态流式读取退费记录（汇总重建用），需在事务内消费并关闭
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT r FROM RefundRecord r WHERE r.status = :status")
+    Stream<RefundRecord> streamByStatus(@Param("status") String status);
 }
\ No newline at end of file
@@ -2,6 +2,8 @@ package com.proshine.shahecommunityhospital.repository;
 
 import com.proshine.shahecommunityhospital.entity.TbTerminal;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -19,4 +21,10 @@ public interface TbTerminalRepository extends JpaRepository<TbTerminal, String>
 
     List<TbTerminal> findByExtraId2(String extraId2);
 
-}
\ No newline at end of file
+    /**
+     * 根据窗口ID(extra_id2)只查询终端ID，避免加载TEXT等大字段
+     */
+    @Query("SELECT t.terminalId FROM TbTerminal t WHERE t.extraId2 = :extraId2 AND t.terminalId IS NOT NULL")
+    List<String> findTerminalIdsByExtraId2(@Param("extraId2") String extraId2);
+
+}
@@ -23,4 +23,19 @@ public interface ITbTerminalService {
 
     List<TbTerminal> findByExtraId2(String extraId2);
 
-}
\ No newline at end of file
+    /**
+     * 根据窗口ID获取绑定的终端ID列表（走路由缓存）
+     *
+     * @param extraId2 窗口ID
+     * @return 终端ID列表，不可修改，不存在时返回空列表
+     */
+    List<String> findTerminalIdsByExtraId2(String extraId2);
+
+    /**
+     * 使窗口路由缓存失效
+     *
+     * @param extraId2 窗口ID，为空时清空全部
+     */
+    void evictTerminalRoute(String extraId2);
+
+}
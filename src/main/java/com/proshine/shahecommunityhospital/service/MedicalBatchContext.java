@@ -0,0 +1,122 @@
+package com.proshine.shahecommunityhospital.service;
+
+import com.proshine.shahecommunityhospital.entity.ChargeRecord;
+import com.proshine.shahecommunityhospital.entity.MedicalDailyRollup;
+import com.proshine.shahecommunityhospital.entity.RefundRecord;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 批量处理上下文（线程内）
+ * 批量处理期间收集窗口通知和汇总增量，批次结束时每个窗口只写一条发件箱，
+ * 每个 (医院, 窗口, 日期) 只累加一次汇总；
+ * 同时记录本批次新建、尚未flush的待确认记录，确认时直接取用，查找待确认记录不必先flush
+ */
+final class MedicalBatchContext {
+
+    private static final ThreadLocal<MedicalBatchContext> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 窗口id -> 最后一条指令，按最后出现顺序排列
+     */
+    private final Map<String, String> windowOperations = new LinkedHashMap<>();
+
+    private final Map<String, MedicalDailyRollup> rollups = new LinkedHashMap<>();
+
+    /**
+     * 身份证号|窗口id -> 上次flush之后新建的待确认记录，按创建先后排列
+     */
+    private final Map<String, Deque<ChargeRecord>> pendingCharges = new HashMap<>();
+
+    private final Map<String, Deque<RefundRecord>> pendingRefunds = new HashMap<>();
+
+    private MedicalBatchContext() {
+    }
+
+    static MedicalBatchContext open() {
+        if (CURRENT.get() != null) {
+            throw new IllegalStateException("批量处理不支持嵌套");
+        }
+        MedicalBatchContext context = new MedicalBatchContext();
+        CURRENT.set(context);
+        return context;
+    }
+
+    /**
+     * 当前线程的批量上下文，不在批量处理中时返回null
+     */
+    static MedicalBatchContext current() {
+        return CURRENT.get();
+    }
+
+    void close() {
+        CURRENT.remove();
+    }
+
+    void notifyWindow(String windowId, String operation) {
+        windowOperations.remove(windowId);
+        windowOperations.put(windowId, operation);
+    }
+
+    void addRollup(MedicalDailyRollup delta) {
+        String key = delta.getAddressId() + '|' + delta.getWindowId() + '|' + delta.getStatDay();
+        MedicalDailyRollup rollup = rollups.get(key);
+        if (rollup == null) {
+            rollups.put(key, delta);
+            return;
+        }
+        rollup.setChargeCount(rollup.getChargeCount() + delta.getChargeCount());
+        rollup.setReceivable(rollup.getReceivable().add(delta.getReceivable()));
+        rollup.setPaidUp(rollup.getPaidUp().add(delta.getPaidUp()));
+        rollup.setChange(rollup.getChange().add(delta.getChange()));
+        rollup.setRefundCount(rollup.getRefundCount() + delta.getRefundCount());
+        rollup.setRealRefundAmount(rollup.getRealRefundAmount().add(delta.getRealRefundAmount()));
+    }
+
+    void addPendingCharge(ChargeRecord record) {
+        pendingCharges.computeIfAbsent(record.getIdentityCardNumber() + '|' + record.getWindowId(),
+                key -> new ArrayDeque<>()).addLast(record);
+    }
+
+    void addPendingRefund(RefundRecord record) {
+        pendingRefunds.computeIfAbsent(record.getIdentityCardNumber() + '|' + record.getWindowId(),
+                key -> new ArrayDeque<>()).addLast(record);
+    }
+
+    /**
+     * 取出本批次最新的一条未flush待确认收费记录，没有时返回null
+     */
+    ChargeRecord pollPendingCharge(String identityCardNumber, String windowId) {
+        Deque<ChargeRecord> records = pendingCharges.get(identityCardNumber + '|' + windowId);
+        return records != null ? records.pollLast() : null;
+    }
+
+    /**
+     * 取出本批次最新的一条未flush待确认退费记录，没有时返回null
+     */
+    RefundRecord pollPendingRefund(String identityCardNumber, String windowId) {
+        Deque<RefundRecord> records = pendingRefunds.get(identityCardNumber + '|' + windowId);
+        return records != null ? records.pollLast() : null;
+    }
+
+    /**
+     * 持久化上下文已flush并清空，之后的记录从数据库查找
+     */
+    void flushed() {
+        pendingCharges.clear();
+        pendingRefunds.clear();
+    }
+
+    Map<String, String> getWindowOperations() {
+        return windowOperations;
+    }
+
+    Collection<MedicalDailyRollup> getRollups() {
+        return rollups.values();
+    }
+}
@@ -0,0 +1,254 @@
+package com.proshine.shahecommunityhospital.service;
+
+import com.proshine.shahecommunityhospital.dto.*;
+import com.proshine.shahecommunityhospital.entity.MedicalDailyRollup;
+import com.proshine.shahecommunityhospital.idempotency.IdempotencyGuard;
+import com.proshine.shahecommunityhospital.validation.MedicalRequestRules;
+import com.proshine.shahecommunityhospital.validation.RequestValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 收费/退费批量上报服务
+ * 离线窗口恢复后一次性补报的事件在同一事务内按顺序处理：
+ * 先逐条校验得到单条结果，再依次写入（配合 hibernate.jdbc.batch_size 批量插入），
+ * 汇总增量和窗口通知在批次结束时合并，每个窗口只写一条发件箱；
+ * 与单条接口共用幂等键，已处理过的事件直接跳过；事务回滚（含提交时失败）后释放本批占用的幂等键
+ */
+@Slf4j
+@Service
+public class MedicalBatchService {
+
+    public static final String CHARGE_BUTTON_CLICK = "CHARGE_BUTTON_CLICK";
+
+    public static final String CONFIRM_PAYMENT = "CONFIRM_PAYMENT";
+
+    public static final String REFUND_BUTTON_CLICK = "REFUND_BUTTON_CLICK";
+
+    public static final String CONFIRM_REFUND = "CONFIRM_REFUND";
+
+    @Autowired
+    private MedicalService medicalService;
+
+    @Autowired
+    private MqttOutboxService mqttOutboxService;
+
+    @Autowired
+    private MedicalRollupService medicalRollupService;
+
+    @Autowired
+    private IdempotencyGuard idempotencyGuard;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * 单批最大事件数
+     */
+    @Value("${medical.batch.max-size:500}")
+    private int maxSize;
+
+    /**
+     * 每处理多少条刷新并清空一次持久化上下文，与 hibernate.jdbc.batch_size 保持一致
+     */
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int flushSize;
+
+    /**
+     * 批量处理事件
+     * 校验失败的事件跳过并返回失败原因；写库失败时整批回滚
+     *
+     * @param request 批量上报请求
+     * @return 按请求顺序排列的单条结果
+     */
+    @Transactional
+    public List<MedicalBatchItemResult> process(MedicalBatchRequest request) {
+        List<MedicalBatchEvent> events = request.getEvents();
+        if (events == null || events.isEmpty()) {
+            throw new IllegalArgumentException("事件列表不能为空");
+        }
+        if (events.size() > maxSize) {
+            throw new IllegalArgumentException("单批事件数不能超过" + maxSize);
+        }
+        long start = System.currentTimeMillis();
+        List<MedicalBatchItemResult> results = new ArrayList<>(events.size());
+        List<String> acquiredKeys = new ArrayList<>();
+        releaseOnRollback(acquiredKeys);
+        MedicalBatchContext batch = MedicalBatchContext.open();
+        int processed = 0;
+        try {
+            for (int i = 0; i < events.size(); i++) {
+                MedicalBatchEvent event = events.get(i);
+                String operation = event != null ? event.getOperation() : null;
+                String error = validate(event);
+                if (error != null) {
+                    results.add(new MedicalBatchItemResult(i, operation, false, error));
+                    continue;
+                }
+                String key = IdempotencyGuard.key(operation, event.getRequestId(), event.getWindowId(),
+                        event.getIdentityCardNumber(), event.getOperateTime());
+                if (!idempotencyGuard.tryAcquire(key)) {
+                    results.add(new MedicalBatchItemResult(i, operation, true, "重复事件已忽略"));
+                    continue;
+                }
+                acquiredKeys.add(key);
+                handle(event);
+                results.add(new MedicalBatchItemResult(i, operation, true, null));
+                if (++processed % flushSize == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                    batch.flushed();
+                }
+            }
+        } finally {
+            batch.close();
+        }
+
+        for (MedicalDailyRollup delta : batch.getRollups()) {
+            medicalRollupService.accumulate(delta);
+        }
+        for (Map.Entry<String, String> window : batch.getWindowOperations().entrySet()) {
+            mqttOutboxService.enqueue(window.getKey(), window.getValue());
+        }
+        log.info("批量上报处理完成，事件：{}，成功：{}，窗口通知：{}，耗时：{}ms", events.size(), processed,
+                batch.getWindowOperations().size(), System.currentTimeMillis() - start);
+        return results;
+    }
+
+    /**
+     * 整批回滚时释放已占用的幂等键，允许重新上报
+     * 循环中、批次结束时的汇总/发件箱写入以及提交flush（含乐观锁冲突）失败都会回滚
+     */
+    private void releaseOnRollback(List<String> acquiredKeys) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    acquiredKeys.forEach(idempotencyGuard::release);
+                }
+            }
+        });
+    }
+
+    /**
+     * 按单条接口的规则校验事件
+     *
+     * @return 失败原因，校验通过时返回null
+     */
+    private String validate(MedicalBatchEvent event) {
+        if (event == null) {
+            return "事件不能为空";
+        }
+        List<String> violations;
+        if (CHARGE_BUTTON_CLICK.equals(event.getOperation()) || CONFIRM_PAYMENT.equals(event.getOperation())) {
+            violations = MedicalRequestRules.CHARGE.validate(event);
+        } else if (REFUND_BUTTON_CLICK.equals(event.getOperation()) || CONFIRM_REFUND.equals(event.getOperation())) {
+            violations = MedicalRequestRules.REFUND.validate(event);
+        } else {
+            return "不支持的事件类型：" + event.getOperation();
+        }
+        return violations.isEmpty() ? null : String.join(RequestValidationException.DELIMITER, violations);
+    }
+
+    private void handle(MedicalBatchEvent event) {
+        switch (event.getOperation()) {
+            case CHARGE_BUTTON_CLICK:
+                medicalService.handleChargeButtonClick(toChargeButtonClickRequest(event));
+                break;
+            case CONFIRM_PAYMENT:
+                medicalService.confirmPayment(toConfirmPaymentRequest(event));
+                break;
+            case REFUND_BUTTON_CLICK:
+                medicalService.handleRefundButtonClick(toRefundButtonClickRequest(event));
+                break;
+            default:
+                medicalService.confirmRefund(toConfirmRefundRequest(event));
+                break;
+        }
+    }
+
+    private static ChargeButtonClickRequest toChargeButtonClickRequest(MedicalBatchEvent event) {
+        ChargeButtonClickRequest request = new ChargeButtonClickRequest();
+        request.setAddressId(event.getAddressId());
+        request.setAddressName(event.getAddressName());
+        request.setWindowId(event.getWindowId());
+        request.setWindowName(event.getWindowName());
+        request.setName(event.getName());
+        request.setAge(event.getAge());
+        request.setSex(event.getSex());
+        request.setReceivable(event.getReceivable());
+        request.setPaidUp(event.getPaidUp());
+        request.setChange(event.getChange());
+        request.setSocialSecurityNumber(event.getSocialSecurityNumber());
+        request.setIdentityCardNumber(event.getIdentityCardNumber());
+        request.setOperator(event.getOperator());
+        request.setOperateTime(event.getOperateTime());
+        return request;
+    }
+
+    private static ConfirmPaymentRequest toConfirmPaymentRequest(MedicalBatchEvent event) {
+        ConfirmPaymentRequest request = new ConfirmPaymentRequest();
+        request.setAddressId(event.getAddressId());
+        request.setAddressName(event.getAddressName());
+        request.setWindowId(event.getWindowId());
+        request.setWindowName(event.getWindowName());
+        request.setName(event.getName());
+        request.setAge(event.getAge());
+        request.setSex(event.getSex());
+        request.setReceivable(event.getReceivable());
+        request.setPaidUp(event.getPaidUp());
+        request.setChange(event.getChange());
+        request.setSocialSecurityNumber(event.getSocialSecurityNumber());
+        request.setIdentityCardNumber(event.getIdentityCardNumber());
+        request.setOperator(event.getOperator());
+        request.setOperateTime(event.getOperateTime());
+        return request;
+    }
+
+    private static RefundButtonClickRequest toRefundButtonClickRequest(MedicalBatchEvent event) {
+        RefundButtonClickRequest request = new RefundButtonClickRequest();
+        request.setAddressId(event.getAddressId());
+        request.setAddressName(event.getAddressName());
+        request.setWindowId(event.getWindowId());
+        request.setWindowName(event.getWindowName());
+        request.setName(event.getName());
+        request.setAge(event.getAge());
+        request.setSex(event.getSex());
+        request.setReceivable(event.getReceivable());
+        request.setRealRefundAmount(event.getRealRefundAmount());
+        request.setSocialSecurityNumber(event.getSocialSecurityNumber());
+        request.setIdentityCardNumber(event.getIdentityCardNumber());
+        request.setOperator(event.getOperator());
+        request.setOperateTime(event.getOperateTime());
+        return request;
+    }
+
+    private static ConfirmRefundRequest toConfirmRefundRequest(MedicalBatchEvent event) {
+        ConfirmRefundRequest request = new ConfirmRefundRequest();
+        request.setAddressId(event.getAddressId());
+        request.setAddressName(event.getAddressName());
+        request.setWindowId(event.getWindowId());
+        request.setWindowName(event.getWindowName());
+        request.setName(event.getName());
+        request.setAge(event.getAge());
+        request.setSex(event.getSex());
+        request.setReceivable(event.getReceivable());
+        request.setRealRefundAmount(event.getRealRefundAmount());
+        request.setSocialSecurityNumber(event.getSocialSecurityNumber());
+        request.setIdentityCardNumber(event.getIdentityCardNumber());
+        request.setOperator(event.getOperator());
+        request.setOperateTime(event.getOperateTime());
+        return request;
+    }
+}
@@ -0,0 +1,207 @@
+package com.proshine.shahecommunityhospital.service;
+
+import com.proshine.shahecommunityhospital.cache.PatientHistoryCache;
+import com.proshine.shahecommunityhospital.common.KeysetPage;
+import com.proshine.shahecommunityhospital.dto.RecordPageQuery;
+import com.proshine.shahecommunityhospital.entity.ChargeRecord;
+import com.proshine.shahecommunityhospital.entity.RefundRecord;
+import com.proshine.shahecommunityhospital.repository.ChargeRecordRepository;
+import com.proshine.shahecommunityhospital.repository.RefundRecordRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 医疗收费查询服务类
+ * 全部方法在只读事务中执行，启用读副本时路由到副本连接池，不占用收费写入的连接
+ */
+@Service
+@Transactional(readOnly = true)
+public class MedicalQueryService {
+
+    @Autowired
+    private ChargeRecordRepository chargeRecordRepository;
+
+    @Autowired
+    private RefundRecordRepository refundRecordRepository;
+
+    @Autowired
+    private PatientHistoryCache patientHistoryCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * 导出时逐页读取使用的只读事务
+     */
+    private TransactionTemplate readOnlyTransaction;
+
+    /**
+     * 游标分页每页最大条数
+     */
+    private static final int MAX_PAGE_SIZE = 500;
+
+    @PostConstruct
+    public void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * 根据身份证号查询收费记录，按创建时间倒序
+     * 患者记录不超过缓存条数时直接返回缓存，否则查库
+     */
+    public List<ChargeRecord> getChargeRecordsByIdentityCard(String identityCardNumber) {
+        List<ChargeRecord> cached = patientHistoryCache.getChargeRecords(identityCardNumber);
+        return cached != null ? cached
+                : chargeRecordRepository.findByIdentityCardNumberOrderByCreateTimeDesc(identityCardNumber, Pageable.unpaged());
+    }
+    
+    /**
+     * 根据身份证号查询退费记录，按创建时间倒序
+     * 患者记录不超过缓存条数时直接返回缓存，否则查库
+     */
+    public List<RefundRecord> getRefundRecordsByIdentityCard(String identityCardNumber) {
+        List<RefundRecord> cached = patientHistoryCache.getRefundRecords(identityCardNumber);
+        return cached != null ? cached
+                : refundRecordRepository.findByIdentityCardNumberOrderByCreateTimeDesc(identityCardNumber, Pageable.unpaged());
+    }
+    
+    /**
+     * 查询待确认的收费记录
+     */
+    public List<ChargeRecord> getPendingChargeRecords() {
+        return chargeRecordRepository.findPendingChargeRecords();
+    }
+    
+    /**
+     * 查询待确认的退费记录
+     */
+    public List<RefundRecord> getPendingRefundRecords() {
+        return refundRecordRepository.findPendingRefundRecords();
+    }
+    
+    /**
+     * 根据医院ID查询收费记录
+     */
+    public List<ChargeRecord> getChargeRecordsByAddressId(String addressId) {
+        return chargeRecordRepository.findByAddressId(addressId);
+    }
+    
+    /**
+     * 根据医院ID查询退费记录
+     */
+    public List<RefundRecord> getRefundRecordsByAddressId(String addressId) {
+        return refundRecordRepository.findByAddressId(addressId);
+    }
+
+    /**
+     * 游标分页查询收费记录
+     * 指定医院ID时按医院查询，否则按创建时间范围查询全部医院
+     */
+    public KeysetPage<ChargeRecord> pageChargeRecords(RecordPageQuery query) {
+        int pageSize = pageSize(query);
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+        List<ChargeRecord> records = StringUtils.hasText(query.getAddressId())
+            ? chargeRecordRepository.findPageByAddressId(query.getAddressId(), startTime(query), endTime(query),
+                lastCreateTime(query), lastId(query), limit)
+            : chargeRecordRepository.findPageByCreateTimeBetween(startTime(query), endTime(query),
+                lastCreateTime(query), lastId(query), limit);
+        return toPage(records, pageSize, ChargeRecord::getCreateTime, ChargeRecord::getId);
+    }
+    
+    /**
+     * 游标分页查询退费记录
+     * 指定医院ID时按医院查询，否则按创建时间范围查询全部医院
+     */
+    public KeysetPage<RefundRecord> pageRefundRecords(RecordPageQuery query) {
+        int pageSize = pageSize(query);
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+        List<RefundRecord> records = StringUtils.hasText(query.getAddressId())
+            ? refundRecordRepository.findPageByAddressId(query.getAddressId(), startTime(query), endTime(query),
+                lastCreateTime(query), lastId(query), limit)
+            : refundRecordRepository.findPageByCreateTimeBetween(startTime(query), endTime(query),
+                lastCreateTime(query), lastId(query), limit);
+        return toPage(records, pageSize, RefundRecord::getCreateTime, RefundRecord::getId);
+    }
+    
+    /**
+     * 导出收费记录，逐条交给consumer处理
+     * 按游标逐页读取，每页在单独的短事务中查询，consumer 写出期间不持有事务和连接
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void exportChargeRecords(RecordPageQuery query, Consumer<ChargeRecord> consumer) {
+        export(query, this::pageChargeRecords, consumer);
+    }
+    
+    /**
+     * 导出退费记录，逐条交给consumer处理
+     * 按游标逐页读取，每页在单独的短事务中查询，consumer 写出期间不持有事务和连接
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void exportRefundRecords(RecordPageQuery query, Consumer<RefundRecord> consumer) {
+        export(query, this::pageRefundRecords, consumer);
+    }
+    
+    private <T> void export(RecordPageQuery query, Function<RecordPageQuery, KeysetPage<T>> pager,
+                            Consumer<T> consumer) {
+        RecordPageQuery cursor = new RecordPageQuery();
+        cursor.setAddressId(query.getAddressId());
+        cursor.setStartTime(query.getStartTime());
+        cursor.setEndTime(query.getEndTime());
+        cursor.setPageSize(MAX_PAGE_SIZE);
+        KeysetPage<T> page;
+        do {
+            page = readOnlyTransaction.execute(status -> pager.apply(cursor));
+            page.getRecords().forEach(consumer);
+            cursor.setLastCreateTime(page.getNextCreateTime());
+            cursor.setLastId(page.getNextId());
+        } while (page.isHasMore());
+    }
+    
+    private static int pageSize(RecordPageQuery query) {
+        Integer pageSize = query.getPageSize();
+        if (pageSize == null || pageSize <= 0) {
+            return 10;
+        }
+        return Math.min(pageSize, MAX_PAGE_SIZE);
+    }
+    
+    private static Long startTime(RecordPageQuery query) {
+        return query.getStartTime() != null ? query.getStartTime() : 0L;
+    }
+    
+    private static Long endTime(RecordPageQuery query) {
+        return query.getEndTime() != null ? query.getEndTime() : Long.MAX_VALUE;
+    }
+    
+    private static Long lastCreateTime(RecordPageQuery query) {
+        return query.getLastCreateTime() != null ? query.getLastCreateTime() : Long.MAX_VALUE;
+    }
+    
+    private static String lastId(RecordPageQuery query) {
+        return query.getLastId() != null ? query.getLastId() : "";
+    }
+    
+    private static <T> KeysetPage<T> toPage(List<T> records, int pageSize,
+                                            Function<T, Long> createTime, Function<T, String> id) {
+        boolean hasMore = records.size() > pageSize;
+        List<T> page = hasMore ? records.subList(0, pageSize) : records;
+        if (page.isEmpty()) {
+            return new KeysetPage<>(page, false, null, null);
+        }
+        T last = page.get(page.size() - 1);
+        return new KeysetPage<>(page, hasMore, createTime.apply(last), id.apply(last));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,243 @@
+package com.proshine.shahecommunityhospital.service;
+
+import com.proshine.shahecommunityhospital.dto.MedicalRollupSummary;
+import com.proshine.shahecommunityhospital.entity.ChargeRecord;
+import com.proshine.shahecommunityhospital.entity.MedicalDailyRollup;
+import com.proshine.shahecommunityhospital.entity.RefundRecord;
+import com.proshine.shahecommunityhospital.repository.ChargeRecordRepository;
+import com.proshine.shahecommunityhospital.repository.MedicalDailyRollupRepository;
+import com.proshine.shahecommunityhospital.repository.RefundRecordRepository;
+import com.proshine.shahecommunityhospital.utils.OperateTimeParser;
+import com.proshine.shahecommunityhospital.utils.PrimaryKeyUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * 收费/退费按日汇总服务
+ * 记录确认时在同一事务内增量累加 (医院, 窗口, 日期) 汇总，
+ * 汇总查询只扫描天数级别的行；重建任务用于历史数据回填。
+ * 统计日期按记录的操作时间(终端上报)计算，离线补报的记录计入实际发生的那一天，增量与重建结果一致
+ */
+@Slf4j
+@Service
+public class MedicalRollupService {
+
+    @Autowired
+    private MedicalDailyRollupRepository medicalDailyRollupRepository;
+
+    @Autowired
+    private ChargeRecordRepository chargeRecordRepository;
+
+    @Autowired
+    private RefundRecordRepository refundRecordRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${medical.rollup.rebuild-on-startup:false}")
+    private boolean rebuildOnStartup;
+
+    /**
+     * 累加一笔已确认的收费
+     *
+     * @param record 收费记录
+     * @param confirmTime 确认时间戳(毫秒)，记录没有操作时间戳时按此时间统计
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordChargeConfirmed(ChargeRecord record, long confirmTime) {
+        MedicalDailyRollup delta = newRollup(record.getAddressId(), record.getWindowId(),
+                statDay(record.getOperateTimestamp(), confirmTime));
+        delta.setChargeCount(1L);
+        delta.setReceivable(nvl(record.getReceivable()));
+        delta.setPaidUp(nvl(record.getPaidUp()));
+        delta.setChange(nvl(record.getChange()));
+        apply(delta);
+    }
+
+    /**
+     * 累加一笔已确认的退费
+     *
+     * @param record 退费记录
+     * @param confirmTime 确认时间戳(毫秒)，记录没有操作时间戳时按此时间统计
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordRefundConfirmed(RefundRecord record, long confirmTime) {
+        MedicalDailyRollup delta = newRollup(record.getAddressId(), record.getWindowId(),
+                statDay(record.getOperateTimestamp(), confirmTime));
+        delta.setRefundCount(1L);
+        delta.setRealRefundAmount(nvl(record.getRealRefundAmount()));
+        apply(delta);
+    }
+
+    /**
+     * 把增量累加到汇总表
+     *
+     * @param delta 汇总增量
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void accumulate(MedicalDailyRollup delta) {
+        medicalDailyRollupRepository.accumulate(PrimaryKeyUtil.generatePrimary(false),
+                delta.getAddressId(), delta.getWindowId(), delta.getStatDay(),
+                delta.getChargeCount(), delta.getReceivable(), delta.getPaidUp(), delta.getChange(),
+                delta.getRefundCount(), delta.getRealRefundAmount(), System.currentTimeMillis());
+    }
+
+    /**
+     * 汇总查询，指定窗口时按窗口汇总，否则按医院汇总
+     *
+     * @param addressId 医院/店名ID
+     * @param windowId 窗口id，可为空
+     * @param startDay 开始日期(yyyyMMdd)，可为空
+     * @param endDay 结束日期(yyyyMMdd)，可为空
+     * @return 汇总结果
+     */
+    @Transactional(readOnly = true)
+    public MedicalRollupSummary summarize(String addressId, String windowId, Integer startDay, Integer endDay) {
+        int from = startDay != null ? startDay : 0;
+        int to = endDay != null ? endDay : Integer.MAX_VALUE;
+        List<MedicalDailyRollup> rows;
+        if (StringUtils.hasText(windowId)) {
+            rows = medicalDailyRollupRepository.findByWindowId(windowId, from, to);
+        } else if (StringUtils.hasText(addressId)) {
+            rows = medicalDailyRollupRepository.findByAddressId(addressId, from, to);
+        } else {
+            throw new IllegalArgumentException("医院/店名ID和窗口ID不能同时为空");
+        }
+        MedicalRollupSummary summary = new MedicalRollupSummary();
+        summary.setAddressId(addressId);
+        summary.setWindowId(windowId);
+        summary.setStartDay(startDay);
+        summary.setEndDay(endDay);
+        for (MedicalDailyRollup row : rows) {
+            summary.setChargeCount(summary.getChargeCount() + row.getChargeCount());
+            summary.setReceivable(summary.getReceivable().add(row.getReceivable()));
+            summary.setPaidUp(summary.getPaidUp().add(row.getPaidUp()));
+            summary.setChange(summary.getChange().add(row.getChange()));
+            summary.setRefundCount(summary.getRefundCount() + row.getRefundCount());
+            summary.setRealRefundAmount(summary.getRealRefundAmount().add(row.getRealRefundAmount()));
+        }
+        return summary;
+    }
+
+    /**
+     * 根据已确认的收费/退费记录重建全部汇总，应在低峰期执行
+     * 先锁定汇总表全部行再读取记录：进行中的确认提交后才开始读取，之后的确认在累加汇总时等待重建提交，
+     * 其增量累加在重建结果之上，不会丢失也不会重复。已有的汇总行原地覆盖(没有记录的置零)，不删除重插
+     *
+     * @return 重建后的汇总行数
+     */
+    @Transactional
+    public int rebuild() {
+        long start = System.currentTimeMillis();
+        List<MedicalDailyRollup> existing = medicalDailyRollupRepository.findAllForUpdate();
+        Map<String, MedicalDailyRollup> rollups = new HashMap<>();
+        try (Stream<ChargeRecord> stream = chargeRecordRepository.streamByStatus("CONFIRMED")) {
+            stream.forEach(record -> {
+                MedicalDailyRollup rollup = rollupOf(rollups, record.getAddressId(), record.getWindowId(),
+                        record.getOperateTimestamp(), record.getUpdateTime());
+                rollup.setChargeCount(rollup.getChargeCount() + 1);
+                rollup.setReceivable(rollup.getReceivable().add(nvl(record.getReceivable())));
+                rollup.setPaidUp(rollup.getPaidUp().add(nvl(record.getPaidUp())));
+                rollup.setChange(rollup.getChange().add(nvl(record.getChange())));
+                entityManager.detach(record);
+            });
+        }
+        try (Stream<RefundRecord> stream = refundRecordRepository.streamByStatus("CONFIRMED")) {
+            stream.forEach(record -> {
+                MedicalDailyRollup rollup = rollupOf(rollups, record.getAddressId(), record.getWindowId(),
+                        record.getOperateTimestamp(), record.getUpdateTime());
+                rollup.setRefundCount(rollup.getRefundCount() + 1);
+                rollup.setRealRefundAmount(rollup.getRealRefundAmount().add(nvl(record.getRealRefundAmount())));
+                entityManager.detach(record);
+            });
+        }
+        int size = rollups.size();
+        for (MedicalDailyRollup row : existing) {
+            MedicalDailyRollup rebuilt = rollups.remove(keyOf(row.getAddressId(), row.getWindowId(), row.getStatDay()));
+            copyTotals(rebuilt != null ? rebuilt : newRollup(row.getAddressId(), row.getWindowId(), row.getStatDay()),
+                    row);
+        }
+        medicalDailyRollupRepository.saveAll(rollups.values());
+        log.info("汇总重建完成，汇总行数：{}，耗时：{}ms", size, System.currentTimeMillis() - start);
+        return size;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuildOnStartup() {
+        if (rebuildOnStartup) {
+            rebuild();
+        }
+    }
+
+    /**
+     * 批量处理中先合并增量，批次结束时统一累加
+     */
+    private void apply(MedicalDailyRollup delta) {
+        MedicalBatchContext batch = MedicalBatchContext.current();
+        if (batch != null) {
+            batch.addRollup(delta);
+        } else {
+            accumulate(delta);
+        }
+    }
+
+    private MedicalDailyRollup rollupOf(Map<String, MedicalDailyRollup> rollups, String addressId, String windowId,
+                                        Long operateTimestamp, Long updateTime) {
+        int statDay = statDay(operateTimestamp, updateTime != null ? updateTime : 0L);
+        return rollups.computeIfAbsent(keyOf(addressId, windowId, statDay),
+                key -> newRollup(addressId, windowId, statDay));
+    }
+
+    private static String keyOf(String addressId, String windowId, int statDay) {
+        return addressId + '|' + windowId + '|' + statDay;
+    }
+
+    private static void copyTotals(MedicalDailyRollup from, MedicalDailyRollup to) {
+        to.setChargeCount(from.getChargeCount());
+        to.setReceivable(from.getReceivable());
+        to.setPaidUp(from.getPaidUp());
+        to.setChange(from.getChange());
+        to.setRefundCount(from.getRefundCount());
+        to.setRealRefundAmount(from.getRealRefundAmount());
+    }
+
+    private static MedicalDailyRollup newRollup(String addressId, String windowId, int statDay) {
+        MedicalDailyRollup rollup = new MedicalDailyRollup();
+        rollup.setAddressId(addressId);
+        rollup.setWindowId(windowId);
+        rollup.setStatDay(statDay);
+        return rollup;
+    }
+
+    /**
+     * 按入库时解析的操作时间戳计算统计日期，日期按操作时间的解析时区划分；
+     * 操作时间戳为空（回填前的旧记录）时使用 fallbackTime
+     */
+    private static int statDay(Long operateTimestamp, long fallbackTime) {
+        long time = operateTimestamp != null ? operateTimestamp : fallbackTime;
+        LocalDate day = Instant.ofEpochMilli(time).atZone(OperateTimeParser.getZone()).toLocalDate();
+        return day.getYear() * 10000 + day.getMonthValue() * 100 + day.getDayOfMonth();
+    }
+
+    private static BigDecimal nvl(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+}
@@ -3,26 +3,42 @@ package com.proshine.shahecommunityhospital.service;
 import com.proshine.shahecommunityhospital.dto.*;
 import com.proshine.shahecommunityhospital.entity.ChargeRecord;
 import com.proshine.shahecommunityhospital.entity.RefundRecord;
+import com.proshine.shahecommunityhospital.event.MedicalRecordChangedEvent;
+import com.proshine.shahecommunityhospital.mapper.MedicalRecordMapper;
 import com.proshine.shahecommunityhospital.repository.ChargeRecordRepository;
 import com.proshine.shahecommunityhospital.repository.RefundRecordRepository;
+import com.proshine.shahecommunityhospital.utils.LogMask;
+import com.proshine.shahecommunityhospital.validation.MedicalRequestRules;
+import lombok.AllArgsConstructor;
+import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.util.StringUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
-import java.util.List;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
 
 /**
  * 医疗收费服务类
- * 处理收费和退费相关的业务逻辑
+ * 处理收费和退费相关的业务逻辑，查询见 MedicalQueryService。
+ * 事务只包住查库和写库：校验、映射、日志在事务外完成，窗口通知在提交后由发件箱分发，
+ * 均不占用数据库连接。在已有事务中调用（如批量上报）时加入该事务。
+ * 确认时待确认记录按版本号条件更新，并发确认同一条记录的请求只有一个成功，
+ * 其余请求在新事务中重新查找待确认记录，有限次重试
  */
 @Service
 @Slf4j
-@Transactional
 public class MedicalService {
     
     @Autowired
@@ -30,30 +46,76 @@ public class MedicalService {
     
     @Autowired
     private RefundRecordRepository refundRecordRepository;
+
+    @Autowired
+    private MqttOutboxService mqttOutboxService;
+
+    @Autowired
+    private MedicalRollupService medicalRollupService;
+
+    @Autowired
+    private MedicalRecordMapper medicalRecordMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * 确认操作的最大尝试次数（含首次）
+     */
+    @Value("${medical.confirm.max-attempts:10}")
+    private int confirmMaxAttempts;
+
+    /**
+     * 重试前的随机等待上限(毫秒)，按尝试次数递增，错开同时冲突的请求
+     */
+    @Value("${medical.confirm.backoff-millis:20}")
+    private long confirmBackoffMillis;
+
+    private final LongAdder confirmConflictCount = new LongAdder();
+
+    private final LongAdder confirmExhaustedCount = new LongAdder();
+
+    private final LongAdder confirmDuplicateCount = new LongAdder();
+
     
     /**
      * 处理收费按钮点击事件
      * 对应接口：/thirdpart/medical/chargeButtonClick
      * 
      * @param request 收费按钮点击请求DTO
+     * @throws IllegalArgumentException 参数校验失败，提示包含全部违规项
      */
     public void handleChargeButtonClick(ChargeButtonClickRequest request) {
+        // 参数校验，一次返回全部违规项；参数错误不包装为处理失败
+        MedicalRequestRules.CHARGE.check(request);
         try {
-            log.info("处理收费按钮点击事件，患者：{}，身份证号：{}", request.getName(), request.getIdentityCardNumber());
-            
-            // 参数校验
-            validateChargeRequest(request);
+            log.debug("处理收费按钮点击事件，患者：{}，身份证号：{}", LogMask.name(request.getName()),
+                    LogMask.identityCard(request.getIdentityCardNumber()));
             
             // 创建收费记录
-            ChargeRecord chargeRecord = new ChargeRecord();
-            BeanUtils.copyProperties(request, chargeRecord);
+            ChargeRecord chargeRecord = medicalRecordMapper.toChargeRecord(request);
             chargeRecord.setStatus("PENDING"); // 设置为待确认状态
             
-            chargeRecordRepository.save(chargeRecord);
+            transactionTemplate.executeWithoutResult(status -> {
+                chargeRecordRepository.save(chargeRecord);
+                MedicalBatchContext batch = MedicalBatchContext.current();
+                if (batch != null) {
+                    batch.addPendingCharge(chargeRecord);
+                }
+                eventPublisher.publishEvent(MedicalRecordChangedEvent.of(chargeRecord));
+                // 写入MQTT发件箱，事务提交后通知窗口终端
+                mqttOutboxService.enqueue(request.getWindowId(), "CHARGE_BUTTON_CLICK");
+            });
             
-            log.info("收费记录创建成功，记录ID：{}", chargeRecord.getId());
+            log.debug("收费记录创建成功，记录ID：{}", chargeRecord.getId());
         } catch (Exception e) {
-            log.error("处理收费按钮点击事件失败，患者：{}", request.getName(), e);
+            log.error("处理收费按钮点击事件失败，患者：{}", LogMask.name(request.getName()), e);
             throw new RuntimeException("处理收费按钮点击事件失败：" + e.getMessage());
         }
     }
@@ -63,37 +125,56 @@ public class MedicalService {
      * 对应接口：/thirdpart/medical/confirmPayment
      * 
      * @param request 确认收费请求DTO
+     * @throws IllegalArgumentException 参数校验失败，提示包含全部违规项
+     * @throws ConcurrencyFailureException 并发确认冲突且重试已耗尽，未做任何修改，客户端可稍后重试
      */
     public void confirmPayment(ConfirmPaymentRequest request) {
+        // 参数校验，一次返回全部违规项；参数错误不包装为处理失败
+        MedicalRequestRules.CHARGE.check(request);
         try {
-            log.info("确认收费，患者：{}，身份证号：{}", request.getName(), request.getIdentityCardNumber());
-            
-            // 参数校验
-            validatePaymentRequest(request);
+            log.debug("确认收费，患者：{}，身份证号：{}", LogMask.name(request.getName()),
+                    LogMask.identityCard(request.getIdentityCardNumber()));
             
-            // 查找对应的待确认收费记录
-            List<ChargeRecord> pendingRecords = chargeRecordRepository
-                .findByIdentityCardNumberAndStatus(request.getIdentityCardNumber(), "PENDING");
-            
-            ChargeRecord chargeRecord;
-            if (!pendingRecords.isEmpty()) {
-                // 更新最新的待确认记录
-                chargeRecord = pendingRecords.get(pendingRecords.size() - 1);
-                BeanUtils.copyProperties(request, chargeRecord, "id", "createTime");
-                chargeRecord.setStatus("CONFIRMED");
-                log.info("更新收费记录确认状态，记录ID：{}", chargeRecord.getId());
-            } else {
-                // 如果没有找到待确认记录，创建新的确认记录
-                chargeRecord = new ChargeRecord();
-                BeanUtils.copyProperties(request, chargeRecord);
-                chargeRecord.setStatus("CONFIRMED");
-                log.info("创建新的确认收费记录");
+            ChargeRecord chargeRecord = confirmWithRetry(attempt -> {
+                // 查找并认领该窗口最新的一条待确认收费记录
+                Optional<ChargeRecord> pendingRecord = claimPendingCharge(request);
+                
+                ChargeRecord record;
+                if (pendingRecord.isPresent()) {
+                    // 更新最新的待确认记录
+                    record = pendingRecord.get();
+                    medicalRecordMapper.updateChargeRecord(request, record);
+                    record.setStatus("CONFIRMED");
+                    log.debug("更新收费记录确认状态，记录ID：{}", record.getId());
+                } else if (attempt > 1 || alreadyConfirmed(request)) {
+                    // 上次尝试认领的待确认记录已被并发请求确认，或同一次确认已在其他请求中提交，
+                    // 本次确认视为重复，不再新建确认记录
+                    confirmDuplicateCount.increment();
+                    log.info("待确认收费记录已被并发请求确认，按重复确认处理，患者：{}", LogMask.name(request.getName()));
+                    return null;
+                } else {
+                    // 如果没有找到待确认记录，创建新的确认记录
+                    record = medicalRecordMapper.toChargeRecord(request);
+                    record.setStatus("CONFIRMED");
+                    log.debug("创建新的确认收费记录");
+                }
+                
+                chargeRecordRepository.save(record);
+                eventPublisher.publishEvent(MedicalRecordChangedEvent.of(record));
+                // 累加按日汇总
+                medicalRollupService.recordChargeConfirmed(record, System.currentTimeMillis());
+                // 写入MQTT发件箱，事务提交后通知窗口终端
+                mqttOutboxService.enqueue(request.getWindowId(), "CONFIRM_PAYMENT");
+                return record;
+            });
+            if (chargeRecord != null) {
+                log.debug("收费确认完成，记录ID：{}", chargeRecord.getId());
             }
-            
-            chargeRecordRepository.save(chargeRecord);
-            log.info("收费确认完成，记录ID：{}", chargeRecord.getId());
+        } catch (ConcurrencyFailureException e) {
+            log.warn("确认收费并发冲突，重试已耗尽，患者：{}", LogMask.name(request.getName()));
+            throw e;
         } catch (Exception e) {
-            log.error("确认收费失败，患者：{}", request.getName(), e);
+            log.error("确认收费失败，患者：{}", LogMask.name(request.getName()), e);
             throw new RuntimeException("确认收费失败：" + e.getMessage());
         }
     }
@@ -103,24 +184,33 @@ public class MedicalService {
      * 对应接口：/thirdpart/medical/refundButtonClick
      * 
      * @param request 退费按钮点击请求DTO
+     * @throws IllegalArgumentException 参数校验失败，提示包含全部违规项
      */
     public void handleRefundButtonClick(RefundButtonClickRequest request) {
+        // 参数校验，一次返回全部违规项；参数错误不包装为处理失败
+        MedicalRequestRules.REFUND.check(request);
         try {
-            log.info("处理退费按钮点击事件，患者：{}，身份证号：{}", request.getName(), request.getIdentityCardNumber());
-            
-            // 参数校验
-            validateRefundButtonRequest(request);
+            log.debug("处理退费按钮点击事件，患者：{}，身份证号：{}", LogMask.name(request.getName()),
+                    LogMask.identityCard(request.getIdentityCardNumber()));
             
             // 创建退费记录
-            RefundRecord refundRecord = new RefundRecord();
-            BeanUtils.copyProperties(request, refundRecord);
+            RefundRecord refundRecord = medicalRecordMapper.toRefundRecord(request);
             refundRecord.setStatus("PENDING"); // 设置为待确认状态
             
-            refundRecordRepository.save(refundRecord);
+            transactionTemplate.executeWithoutResult(status -> {
+                refundRecordRepository.save(refundRecord);
+                MedicalBatchContext batch = MedicalBatchContext.current();
+                if (batch != null) {
+                    batch.addPendingRefund(refundRecord);
+                }
+                eventPublisher.publishEvent(MedicalRecordChangedEvent.of(refundRecord));
+                // 写入MQTT发件箱，事务提交后通知窗口终端
+                mqttOutboxService.enqueue(request.getWindowId(), "REFUND_BUTTON_CLICK");
+            });
             
-            log.info("退费记录创建成功，记录ID：{}", refundRecord.getId());
+            log.debug("退费记录创建成功，记录ID：{}", refundRecord.getId());
         } catch (Exception e) {
-            log.error("处理退费按钮点击事件失败，患者：{}", request.getName(), e);
+            log.error("处理退费按钮点击事件失败，患者：{}", LogMask.name(request.getName()), e);
             throw new RuntimeException("处理退费按钮点击事件失败：" + e.getMessage());
         }
     }
@@ -130,268 +220,187 @@ public class MedicalService {
      * 对应接口：/thirdpart/medical/confirmRefund
      * 
      * @param request 确认退费请求DTO
+     * @throws IllegalArgumentException 参数校验失败，提示包含全部违规项
+     * @throws ConcurrencyFailureException 并发确认冲突且重试已耗尽，未做任何修改，客户端可稍后重试
      */
     public void confirmRefund(ConfirmRefundRequest request) {
+        // 参数校验，一次返回全部违规项；参数错误不包装为处理失败
+        MedicalRequestRules.REFUND.check(request);
         try {
-            log.info("确认退费，患者：{}，身份证号：{}", request.getName(), request.getIdentityCardNumber());
-            
-            // 参数校验
-            validateConfirmRefundRequest(request);
+            log.debug("确认退费，患者：{}，身份证号：{}", LogMask.name(request.getName()),
+                    LogMask.identityCard(request.getIdentityCardNumber()));
             
-            // 查找对应的待确认退费记录
-            List<RefundRecord> pendingRecords = refundRecordRepository
-                .findByIdentityCardNumberAndStatus(request.getIdentityCardNumber(), "PENDING");
-            
-            RefundRecord refundRecord;
-            if (!pendingRecords.isEmpty()) {
-                // 更新最新的待确认记录
-                refundRecord = pendingRecords.get(pendingRecords.size() - 1);
-                BeanUtils.copyProperties(request, refundRecord, "id", "createTime");
-                refundRecord.setStatus("CONFIRMED");
-                log.info("更新退费记录确认状态，记录ID：{}", refundRecord.getId());
-            } else {
-                // 如果没有找到待确认记录，创建新的确认记录
-                refundRecord = new RefundRecord();
-                BeanUtils.copyProperties(request, refundRecord);
-                refundRecord.setStatus("CONFIRMED");
-                log.info("创建新的确认退费记录");
+            RefundRecord refundRecord = confirmWithRetry(attempt -> {
+                // 查找并认领该窗口最新的一条待确认退费记录
+                Optional<RefundRecord> pendingRecord = claimPendingRefund(request);
+                
+                RefundRecord record;
+                if (pendingRecord.isPresent()) {
+                    // 更新最新的待确认记录
+                    record = pendingRecord.get();
+                    medicalRecordMapper.updateRefundRecord(request, record);
+                    record.setStatus("CONFIRMED");
+                    log.debug("更新退费记录确认状态，记录ID：{}", record.getId());
+                } else if (attempt > 1 || alreadyConfirmed(request)) {
+                    // 上次尝试认领的待确认记录已被并发请求确认，或同一次确认已在其他请求中提交，
+                    // 本次确认视为重复，不再新建确认记录
+                    confirmDuplicateCount.increment();
+                    log.info("待确认退费记录已被并发请求确认，按重复确认处理，患者：{}", LogMask.name(request.getName()));
+                    return null;
+                } else {
+                    // 如果没有找到待确认记录，创建新的确认记录
+                    record = medicalRecordMapper.toRefundRecord(request);
+                    record.setStatus("CONFIRMED");
+                    log.debug("创建新的确认退费记录");
+                }
+                
+                refundRecordRepository.save(record);
+                eventPublisher.publishEvent(MedicalRecordChangedEvent.of(record));
+                // 累加按日汇总
+                medicalRollupService.recordRefundConfirmed(record, System.currentTimeMillis());
+                // 写入MQTT发件箱，事务提交后通知窗口终端
+                mqttOutboxService.enqueue(request.getWindowId(), "CONFIRM_REFUND");
+                return record;
+            });
+            if (refundRecord != null) {
+                log.debug("退费确认完成，记录ID：{}", refundRecord.getId());
             }
-            
-            refundRecordRepository.save(refundRecord);
-            log.info("退费确认完成，记录ID：{}", refundRecord.getId());
+        } catch (ConcurrencyFailureException e) {
+            log.warn("确认退费并发冲突，重试已耗尽，患者：{}", LogMask.name(request.getName()));
+            throw e;
         } catch (Exception e) {
-            log.error("确认退费失败，患者：{}", request.getName(), e);
+            log.error("确认退费失败，患者：{}", LogMask.name(request.getName()), e);
             throw new RuntimeException("确认退费失败：" + e.getMessage());
         }
     }
-    
-    /**
-     * 收费请求参数校验
-     */
-    private void validateChargeRequest(ChargeButtonClickRequest request) {
-        if (!StringUtils.hasText(request.getAddressId())) {
-            throw new IllegalArgumentException("医院/店名ID不能为空");
-        }
-        if (!StringUtils.hasText(request.getAddressName())) {
-            throw new IllegalArgumentException("医院/店名不能为空");
-        }
-        if (!StringUtils.hasText(request.getWindowId())) {
-            throw new IllegalArgumentException("窗口ID不能为空");
-        }
-        if (!StringUtils.hasText(request.getWindowName())) {
-            throw new IllegalArgumentException("窗口名不能为空");
-        }
-        if (!StringUtils.hasText(request.getName())) {
-            throw new IllegalArgumentException("患者姓名不能为空");
-        }
-        if (!StringUtils.hasText(request.getAge())) {
-            throw new IllegalArgumentException("患者年龄不能为空");
-        }
-        if (!StringUtils.hasText(request.getSex())) {
-            throw new IllegalArgumentException("患者性别不能为空");
-        }
-        if (request.getReceivable() == null || request.getReceivable().compareTo(BigDecimal.ZERO) < 0) {
-            throw new IllegalArgumentException("应收金额不能为空且不能为负数");
-        }
-        if (request.getPaidUp() == null || request.getPaidUp().compareTo(BigDecimal.ZERO) < 0) {
-            throw new IllegalArgumentException("实收金额不能为空且不能为负数");
-        }
-        if (request.getChange() == null || request.getChange().compareTo(BigDecimal.ZERO) < 0) {
-            throw new IllegalArgumentException("找零金额不能为空且不能为负数");
-        }
-        if (!StringUtils.hasText(request.getSocialSecurityNumber())) {
-            throw new IllegalArgumentException("社保号不能为空");
-        }
-        if (!StringUtils.hasText(request.getIdentityCardNumber())) {
-            throw new IllegalArgumentException("身份证号不能为空");
-        }
-        if (!StringUtils.hasText(request.getOperator())) {
-            throw new IllegalArgumentException("操作人不能为空");
-        }
-        if (!StringUtils.hasText(request.getOperateTime())) {
-            throw new IllegalArgumentException("操作时间不能为空");
-        }
-    }
-    
-    /**
-     * 确认收费请求参数校验
-     */
-    private void validatePaymentRequest(ConfirmPaymentRequest request) {
-        if (!StringUtils.hasText(request.getAddressId())) {
-            throw new IllegalArgumentException("医院/店名ID不能为空");
-        }
-        if (!StringUtils.hasText(request.getAddressName())) {
-            throw new IllegalArgumentException("医院/店名不能为空");
-        }
-        if (!StringUtils.hasText(request.getWindowId())) {
-            throw new IllegalArgumentException("窗口ID不能为空");
-        }
-        if (!StringUtils.hasText(request.getWindowName())) {
-            throw new IllegalArgumentException("窗口名不能为空");
-        }
-        if (!StringUtils.hasText(request.getName())) {
-            throw new IllegalArgumentException("患者姓名不能为空");
-        }
-        if (!StringUtils.hasText(request.getAge())) {
-            throw new IllegalArgumentException("患者年龄不能为空");
-        }
-        if (!StringUtils.hasText(request.getSex())) {
-            throw new IllegalArgumentException("患者性别不能为空");
-        }
-        if (request.getReceivable() == null || request.getReceivable().compareTo(BigDecimal.ZERO) < 0) {
-            throw new IllegalArgumentException("应收金额不能为空且不能为负数");
-        }
-        if (request.getPaidUp() == null || request.getPaidUp().compareTo(BigDecimal.ZERO) < 0) {
-            throw new IllegalArgumentException("实收金额不能为空且不能为负数");
-        }
-        if (request.getChange() == null || request.getChange().compareTo(BigDecimal.ZERO) < 0) {
-            throw new IllegalArgumentException("找零金额不能为空且不能为负数");
-        }
-        if (!StringUtils.hasText(request.getSocialSecurityNumber())) {
-            throw new IllegalArgumentException("社保号不能为空");
-        }
-        if (!StringUtils.hasText(request.getIdentityCardNumber())) {
-            throw new IllegalArgumentException("身份证号不能为空");
-        }
-        if (!StringUtils.hasText(request.getOperator())) {
-            throw new IllegalArgumentException("操作人不能为空");
-        }
-        if (!StringUtils.hasText(request.getOperateTime())) {
-            throw new IllegalArgumentException("操作时间不能为空");
-        }
-    }
-    
+
     /**
-     * 退费按钮请求参数校验
+     * 确认统计快照
      */
-    private void validateRefundButtonRequest(RefundButtonClickRequest request) {
-        if (!StringUtils.hasText(request.getAddressId())) {
-            throw new IllegalArgumentException("医院/店名ID不能为空");
-        }
-        if (!StringUtils.hasText(request.getAddressName())) {
-            throw new IllegalArgumentException("医院/店名不能为空");
-        }
-        if (!StringUtils.hasText(request.getWindowId())) {
-            throw new IllegalArgumentException("窗口ID不能为空");
-        }
-        if (!StringUtils.hasText(request.getWindowName())) {
-            throw new IllegalArgumentException("窗口名不能为空");
-        }
-        if (!StringUtils.hasText(request.getName())) {
-            throw new IllegalArgumentException("患者姓名不能为空");
-        }
-        if (!StringUtils.hasText(request.getAge())) {
-            throw new IllegalArgumentException("患者年龄不能为空");
-        }
-        if (!StringUtils.hasText(request.getSex())) {
-            throw new IllegalArgumentException("患者性别不能为空");
-        }
-        if (request.getReceivable() == null || request.getReceivable().compareTo(BigDecimal.ZERO) < 0) {
-            throw new IllegalArgumentException("应收金额不能为空且不能为负数");
-        }
-        if (request.getRealRefundAmount() == null || request.getRealRefundAmount().compareTo(BigDecimal.ZERO) < 0) {
-            throw new IllegalArgumentException("实退金额不能为空且不能为负数");
-        }
-        if (!StringUtils.hasText(request.getSocialSecurityNumber())) {
-            throw new IllegalArgumentException("社保号不能为空");
-        }
-        if (!StringUtils.hasText(request.getIdentityCardNumber())) {
-            throw new IllegalArgumentException("身份证号不能为空");
-        }
-        if (!StringUtils.hasText(request.getOperator())) {
-            throw new IllegalArgumentException("操作人不能为空");
-        }
-        if (!StringUtils.hasText(request.getOperateTime())) {
-            throw new IllegalArgumentException("操作时间不能为空");
-        }
+    public Stats stats() {
+        return new Stats(confirmConflictCount.sum(), confirmExhaustedCount.sum(), confirmDuplicateCount.sum());
     }
-    
+
     /**
-     * 确认退费请求参数校验
+     * 查找并认领该窗口最新的一条待确认收费记录
+     * 查询不触发自动flush，批量上报时按顺序写入的记录得以攒批：本批次新建、尚未flush的待确认记录
+     * 由批量上下文提供；查到的记录已在内存中被确认（尚未flush）时才flush后重新查询。
+     * 从数据库查到的记录以 status = 'PENDING' 条件更新认领，未认领到说明已被其他请求确认
+     *
+     * @throws ObjectOptimisticLockingFailureException 记录已被其他请求确认
      */
-    private void validateConfirmRefundRequest(ConfirmRefundRequest request) {
-        if (!StringUtils.hasText(request.getAddressId())) {
-            throw new IllegalArgumentException("医院/店名ID不能为空");
-        }
-        if (!StringUtils.hasText(request.getAddressName())) {
-            throw new IllegalArgumentException("医院/店名不能为空");
-        }
-        if (!StringUtils.hasText(request.getWindowId())) {
-            throw new IllegalArgumentException("窗口ID不能为空");
-        }
-        if (!StringUtils.hasText(request.getWindowName())) {
-            throw new IllegalArgumentException("窗口名不能为空");
-        }
-        if (!StringUtils.hasText(request.getName())) {
-            throw new IllegalArgumentException("患者姓名不能为空");
-        }
-        if (!StringUtils.hasText(request.getAge())) {
-            throw new IllegalArgumentException("患者年龄不能为空");
-        }
-        if (!StringUtils.hasText(request.getSex())) {
-            throw new IllegalArgumentException("患者性别不能为空");
-        }
-        if (request.getReceivable() == null || request.getReceivable().compareTo(BigDecimal.ZERO) < 0) {
-            throw new IllegalArgumentException("应收金额不能为空且不能为负数");
-        }
-        if (request.getRealRefundAmount() == null || request.getRealRefundAmount().compareTo(BigDecimal.ZERO) < 0) {
-            throw new IllegalArgumentException("实退金额不能为空且不能为负数");
-        }
-        if (!StringUtils.hasText(request.getSocialSecurityNumber())) {
-            throw new IllegalArgumentException("社保号不能为空");
-        }
-        if (!StringUtils.hasText(request.getIdentityCardNumber())) {
-            throw new IllegalArgumentException("身份证号不能为空");
-        }
-        if (!StringUtils.hasText(request.getOperator())) {
-            throw new IllegalArgumentException("操作人不能为空");
-        }
-        if (!StringUtils.hasText(request.getOperateTime())) {
-            throw new IllegalArgumentException("操作时间不能为空");
-        }
+    private Optional<ChargeRecord> claimPendingCharge(ConfirmPaymentRequest request) {
+        MedicalBatchContext batch = MedicalBatchContext.current();
+        ChargeRecord created = batch != null
+                ? batch.pollPendingCharge(request.getIdentityCardNumber(), request.getWindowId()) : null;
+        if (created != null) {
+            return Optional.of(created);
+        }
+        Optional<ChargeRecord> found = chargeRecordRepository.findFirstByIdentityCardNumberAndStatusAndWindowIdOrderByCreateTimeDesc(
+                request.getIdentityCardNumber(), "PENDING", request.getWindowId());
+        if (found.isPresent() && !"PENDING".equals(found.get().getStatus())) {
+            entityManager.flush();
+            found = chargeRecordRepository.findFirstByIdentityCardNumberAndStatusAndWindowIdOrderByCreateTimeDesc(
+                    request.getIdentityCardNumber(), "PENDING", request.getWindowId());
+        }
+        if (found.isPresent() && chargeRecordRepository.confirmPending(found.get().getId()) == 0) {
+            throw new ObjectOptimisticLockingFailureException(ChargeRecord.class, found.get().getId());
+        }
+        return found;
     }
-    
-    // ================== 查询相关方法 ==================
-    
+
     /**
-     * 根据身份证号查询收费记录
+     * 查找并认领该窗口最新的一条待确认退费记录，规则同 {@link #claimPendingCharge}
      */
-    public List<ChargeRecord> getChargeRecordsByIdentityCard(String identityCardNumber) {
-        return chargeRecordRepository.findByIdentityCardNumber(identityCardNumber);
+    private Optional<RefundRecord> claimPendingRefund(ConfirmRefundRequest request) {
+        MedicalBatchContext batch = MedicalBatchContext.current();
+        RefundRecord created = batch != null
+                ? batch.pollPendingRefund(request.getIdentityCardNumber(), request.getWindowId()) : null;
+        if (created != null) {
+            return Optional.of(created);
+        }
+        Optional<RefundRecord> found = refundRecordRepository.findFirstByIdentityCardNumberAndStatusAndWindowIdOrderByCreateTimeDesc(
+                request.getIdentityCardNumber(), "PENDING", request.getWindowId());
+        if (found.isPresent() && !"PENDING".equals(found.get().getStatus())) {
+            entityManager.flush();
+            found = refundRecordRepository.findFirstByIdentityCardNumberAndStatusAndWindowIdOrderByCreateTimeDesc(
+                    request.getIdentityCardNumber(), "PENDING", request.getWindowId());
+        }
+        if (found.isPresent() && refundRecordRepository.confirmPending(found.get().getId()) == 0) {
+            throw new ObjectOptimisticLockingFailureException(RefundRecord.class, found.get().getId());
+        }
+        return found;
     }
-    
+
     /**
-     * 根据身份证号查询退费记录
+     * 同窗口同患者是否已有操作时间相同的已确认收费记录，即同一次确认已由其他请求提交
      */
-    public List<RefundRecord> getRefundRecordsByIdentityCard(String identityCardNumber) {
-        return refundRecordRepository.findByIdentityCardNumber(identityCardNumber);
+    private boolean alreadyConfirmed(ConfirmPaymentRequest request) {
+        return chargeRecordRepository.existsByIdentityCardNumberAndStatusAndWindowIdAndOperateTime(
+                request.getIdentityCardNumber(), "CONFIRMED", request.getWindowId(), request.getOperateTime());
     }
-    
+
     /**
-     * 查询待确认的收费记录
+     * 同窗口同患者是否已有操作时间相同的已确认退费记录，即同一次确认已由其他请求提交
      */
-    public List<ChargeRecord> getPendingChargeRecords() {
-        return chargeRecordRepository.findPendingChargeRecords();
+    private boolean alreadyConfirmed(ConfirmRefundRequest request) {
+        return refundRecordRepository.existsByIdentityCardNumberAndStatusAndWindowIdAndOperateTime(
+                request.getIdentityCardNumber(), "CONFIRMED", request.getWindowId(), request.getOperateTime());
     }
-    
+
     /**
-     * 查询待确认的退费记录
+     * 在独立事务中执行确认，待确认记录已被其他请求确认（认领失败或版本号不匹配）时回滚并重试，
+     * 重试时重新查找待确认记录；action 的参数为尝试次数(从1开始)，只有首次尝试可以新建确认记录，
+     * 且同窗口同患者已有操作时间相同的已确认记录时不新建。
+     * 已在外部事务中（批量上报）时不重试，冲突交由外部事务回滚
      */
-    public List<RefundRecord> getPendingRefundRecords() {
-        return refundRecordRepository.findPendingRefundRecords();
+    private <T> T confirmWithRetry(IntFunction<T> action) {
+        boolean retryable = !TransactionSynchronizationManager.isActualTransactionActive();
+        for (int attempt = 1; ; attempt++) {
+            int current = attempt;
+            try {
+                return transactionTemplate.execute(status -> action.apply(current));
+            } catch (OptimisticLockingFailureException e) {
+                confirmConflictCount.increment();
+                if (!retryable) {
+                    throw e;
+                }
+                if (attempt >= confirmMaxAttempts) {
+                    confirmExhaustedCount.increment();
+                    throw new ConcurrencyFailureException("待确认记录正被其他请求确认，请稍后重试", e);
+                }
+                log.info("待确认记录已被并发确认，第{}/{}次尝试冲突，稍后重试", attempt, confirmMaxAttempts);
+                backoff(attempt);
+            }
+        }
     }
-    
-    /**
-     * 根据医院ID查询收费记录
-     */
-    public List<ChargeRecord> getChargeRecordsByAddressId(String addressId) {
-        return chargeRecordRepository.findByAddressId(addressId);
+
+    private void backoff(int attempt) {
+        if (confirmBackoffMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(confirmBackoffMillis * attempt + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConcurrencyFailureException("确认重试被中断", e);
+        }
     }
-    
-    /**
-     * 根据医院ID查询退费记录
-     */
-    public List<RefundRecord> getRefundRecordsByAddressId(String addressId) {
-        return refundRecordRepository.findByAddressId(addressId);
+
+    @Data
+    @AllArgsConstructor
+    public static class Stats {
+        /**
+         * 版本冲突次数
+         */
+        private long conflictCount;
+        /**
+         * 重试耗尽、返回失败的次数
+         */
+        private long exhaustedCount;
+        /**
+         * 重试时待确认记录已被并发请求确认、按重复确认处理的次数
+         */
+        private long duplicateCount;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,240 @@
+package com.proshine.shahecommunityhospital.service;
+
+import com.proshine.shahecommunityhospital.config.mqtt.MqttCommandPublisher;
+import com.proshine.shahecommunityhospital.config.mqtt.MqttNotificationDispatcher;
+import com.proshine.shahecommunityhospital.config.mqtt.MqttSequencer;
+import com.proshine.shahecommunityhospital.entity.MqttOutbox;
+import com.proshine.shahecommunityhospital.event.WindowNotificationEvent;
+import com.proshine.shahecommunityhospital.repository.MqttOutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * MQTT指令发件箱服务
+ * 业务事务内写入发件箱，提交后立即交给分发器发送；
+ * 中继定时批量补发未确认的指令，保证至少一次送达；
+ * 补发前先以条件更新认领到期指令，多节点部署时每条指令只由认领成功的节点补发。
+ * 指令序号在事务提交后分配：入队时分配的序号与提交顺序无关，先入队后提交的指令会带着较小的序号
+ * 晚于新指令到达终端而被丢弃。提交回调之间仍可能交错，此时两条指令都已提交，终端保留序号较大的一条
+ */
+@Slf4j
+@Service
+public class MqttOutboxService {
+
+    public static final String STATUS_PENDING = "PENDING";
+
+    public static final String STATUS_FAILED = "FAILED";
+
+    private final MqttOutboxRepository mqttOutboxRepository;
+
+    private final MqttNotificationDispatcher mqttNotificationDispatcher;
+
+    private final MqttCommandPublisher mqttCommandPublisher;
+
+    private final MqttSequencer mqttSequencer;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * 分发器发送成功、等待批量标记的发件箱ID
+     */
+    private final Queue<String> acknowledged = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 提交后已分配序号、尚未发送成功的发件箱ID -> 序号，中继补发前写入发件箱
+     */
+    private final Map<String, Long> assigned = new ConcurrentHashMap<>();
+
+    @Value("${mqtt.outbox.grace-millis:10000}")
+    private long graceMillis;
+
+    @Value("${mqtt.outbox.claim-millis:60000}")
+    private long claimMillis;
+
+    @Value("${mqtt.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${mqtt.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${mqtt.outbox.backoff-base-millis:1000}")
+    private long backoffBaseMillis;
+
+    @Value("${mqtt.outbox.backoff-max-millis:300000}")
+    private long backoffMaxMillis;
+
+    @Value("${mqtt.outbox.retention-hours:72}")
+    private long retentionHours;
+
+    public MqttOutboxService(MqttOutboxRepository mqttOutboxRepository,
+                             MqttNotificationDispatcher mqttNotificationDispatcher,
+                             MqttCommandPublisher mqttCommandPublisher,
+                             MqttSequencer mqttSequencer,
+                             ApplicationEventPublisher eventPublisher) {
+        this.mqttOutboxRepository = mqttOutboxRepository;
+        this.mqttNotificationDispatcher = mqttNotificationDispatcher;
+        this.mqttCommandPublisher = mqttCommandPublisher;
+        this.mqttSequencer = mqttSequencer;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * 在当前业务事务中写入发件箱，事务提交后分配序号并交给分发器发送
+     *
+     * @param windowId 窗口id
+     * @param operation 指令
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(String windowId, String operation) {
+        if (!StringUtils.hasText(windowId)) {
+            return;
+        }
+        MedicalBatchContext batch = MedicalBatchContext.current();
+        if (batch != null) {
+            // 批量处理中每个窗口只保留最后一条指令，批次结束时统一写入
+            batch.notifyWindow(windowId, operation);
+            return;
+        }
+        MqttOutbox outbox = new MqttOutbox();
+        outbox.setWindowId(windowId);
+        outbox.setOperation(operation);
+        outbox.setStatus(STATUS_PENDING);
+        outbox.setNextAttemptTime(System.currentTimeMillis() + graceMillis);
+        mqttOutboxRepository.save(outbox);
+
+        eventPublisher.publishEvent(new WindowNotificationEvent(outbox.getId(), windowId, operation));
+    }
+
+    /**
+     * 业务事务提交后分配序号并交给分发器发送，分发器异步发布，不在持有连接期间做Broker I/O
+     * 序号先记在内存，发送成功即丢弃，未成功的由中继写入发件箱，补发沿用原序号
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onCommitted(WindowNotificationEvent event) {
+        String outboxId = event.getOutboxId();
+        long seq = mqttSequencer.next();
+        assigned.put(outboxId, seq);
+        mqttNotificationDispatcher.dispatch(event.getWindowId(), event.getOperation(), seq, () -> {
+            assigned.remove(outboxId);
+            acknowledged.add(outboxId);
+        });
+    }
+
+    /**
+     * 中继：批量标记已发送，并补发到期未确认的指令
+     * 发布过程不持有事务，避免Broker I/O期间占用数据库连接
+     */
+    @Scheduled(fixedDelayString = "${mqtt.outbox.relay-interval-millis:2000}")
+    public void relay() {
+        flushAcknowledged();
+        flushAssigned();
+        List<MqttOutbox> due = claimDue();
+        if (due.isEmpty()) {
+            return;
+        }
+        List<String> sent = new ArrayList<>(due.size());
+        for (MqttOutbox outbox : due) {
+            try {
+                // 序号未写入（进程在中继前退出）时重新分配
+                long seq = outbox.getSeq() != null ? outbox.getSeq() : mqttSequencer.next();
+                mqttCommandPublisher.publish(outbox.getWindowId(), outbox.getOperation(), seq);
+                sent.add(outbox.getId());
+            } catch (Exception e) {
+                scheduleRetry(outbox, e.getMessage());
+            }
+        }
+        if (!sent.isEmpty()) {
+            mqttOutboxRepository.markSent(sent, System.currentTimeMillis());
+        }
+        log.info("MQTT发件箱补发完成，到期：{}，成功：{}", due.size(), sent.size());
+    }
+
+    /**
+     * 清理过期的已发送指令
+     */
+    @Scheduled(fixedDelayString = "${mqtt.outbox.purge-interval-millis:3600000}")
+    public void purge() {
+        int deleted = mqttOutboxRepository.deleteSentBefore(System.currentTimeMillis() - retentionHours * 3600_000L);
+        if (deleted > 0) {
+            log.info("清理已发送的MQTT发件箱记录：{}", deleted);
+        }
+    }
+
+    /**
+     * 认领到期指令，返回本批次认领成功的部分
+     */
+    private List<MqttOutbox> claimDue() {
+        long now = System.currentTimeMillis();
+        List<MqttOutbox> due = mqttOutboxRepository.findDue(now, PageRequest.of(0, batchSize));
+        if (due.isEmpty()) {
+            return due;
+        }
+        List<String> ids = new ArrayList<>(due.size());
+        for (MqttOutbox outbox : due) {
+            ids.add(outbox.getId());
+        }
+        String token = UUID.randomUUID().toString();
+        if (mqttOutboxRepository.claim(ids, token, now, now + claimMillis) == 0) {
+            return new ArrayList<>();
+        }
+        return mqttOutboxRepository.findByClaimTokenAndStatus(token, STATUS_PENDING);
+    }
+
+    private void flushAcknowledged() {
+        List<String> ids = new ArrayList<>();
+        String id;
+        while ((id = acknowledged.poll()) != null) {
+            ids.add(id);
+            if (ids.size() >= batchSize) {
+                mqttOutboxRepository.markSent(ids, System.currentTimeMillis());
+                ids.clear();
+            }
+        }
+        if (!ids.isEmpty()) {
+            mqttOutboxRepository.markSent(ids, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 写入提交后分配、尚未发送成功的序号，须在认领补发之前执行
+     */
+    private void flushAssigned() {
+        for (Map.Entry<String, Long> entry : assigned.entrySet()) {
+            if (assigned.remove(entry.getKey(), entry.getValue())) {
+                mqttOutboxRepository.assignSeq(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void scheduleRetry(MqttOutbox outbox, String error) {
+        int attempts = outbox.getAttempts() + 1;
+        outbox.setAttempts(attempts);
+        outbox.setLastError(error == null || error.length() <= 255 ? error : error.substring(0, 255));
+        if (attempts >= maxAttempts) {
+            outbox.setStatus(STATUS_FAILED);
+            log.error("MQTT指令重试次数耗尽 - 窗口: {}, 指令: {}, 错误: {}",
+                    outbox.getWindowId(), outbox.getOperation(), error);
+        } else {
+            long backoff = backoffBaseMillis << Math.min(attempts - 1, 20);
+            outbox.setNextAttemptTime(System.currentTimeMillis() + Math.min(backoff, backoffMaxMillis));
+        }
+        mqttOutboxRepository.save(outbox);
+    }
+}
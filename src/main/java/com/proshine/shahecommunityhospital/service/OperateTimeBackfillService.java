@@ -0,0 +1,115 @@
+package com.proshine.shahecommunityhospital.service;
+
+import com.proshine.shahecommunityhospital.cache.PatientHistoryCache;
+import com.proshine.shahecommunityhospital.utils.OperateTimeParser;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 操作时间戳/周岁数回填
+ * 新增 operate_timestamp、age_years 列之前写入的记录按批解析回填。
+ * 按主键游标分批，每批单独提交；直接执行SQL，不触发实体回调，不修改 update_time。
+ * 格式无法识别的记录按创建时间回填并在日志中列出ID，与实体写入时的处理一致。
+ * 回填不经过实体，完成后清空患者记录缓存
+ *
+ * @author lenovo
+ */
+@Slf4j
+@Service
+public class OperateTimeBackfillService {
+
+    private static final String[] TABLES = {"tb_charge_record", "tb_refund_record"};
+
+    /**
+     * 每张表日志中最多列出的无法识别记录ID数
+     */
+    private static final int MAX_LOGGED_IDS = 20;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PatientHistoryCache patientHistoryCache;
+
+    @Value("${medical.operate-time.backfill-batch-size:500}")
+    private int batchSize;
+
+    @Value("${medical.operate-time.backfill-on-startup:false}")
+    private boolean backfillOnStartup;
+
+    /**
+     * 回填全部未解析的记录
+     *
+     * @return 回填成功的记录数
+     */
+    public int backfill() {
+        long start = System.currentTimeMillis();
+        int total = 0;
+        for (String table : TABLES) {
+            total += backfill(table);
+        }
+        if (total > 0) {
+            patientHistoryCache.invalidateAll();
+        }
+        log.info("操作时间戳回填完成，回填记录数：{}，耗时：{}ms", total, System.currentTimeMillis() - start);
+        return total;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (backfillOnStartup) {
+            backfill();
+        }
+    }
+
+    private int backfill(String table) {
+        String select = "SELECT id, operate_time, age, create_time FROM " + table
+                + " WHERE operate_timestamp IS NULL AND id > ? ORDER BY id LIMIT ?";
+        String update = "UPDATE " + table + " SET operate_timestamp = ?, age_years = ? WHERE id = ?";
+        String lastId = "";
+        int filled = 0;
+        int unparsed = 0;
+        List<String> unparsedIds = new ArrayList<>();
+        while (true) {
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList(select, lastId, batchSize);
+            if (rows.isEmpty()) {
+                break;
+            }
+            List<Object[]> args = new ArrayList<>(rows.size());
+            for (Map<String, Object> row : rows) {
+                lastId = (String) row.get("id");
+                long millis = OperateTimeParser.parse((String) row.get("operate_time"));
+                Object createTime = row.get("create_time");
+                if (millis == OperateTimeParser.INVALID) {
+                    if (++unparsed <= MAX_LOGGED_IDS) {
+                        unparsedIds.add(lastId);
+                    }
+                    if (createTime == null) {
+                        continue;
+                    }
+                    millis = ((Number) createTime).longValue();
+                }
+                int years = OperateTimeParser.parseAgeYears((String) row.get("age"));
+                args.add(new Object[]{millis, years >= 0 ? years : null, lastId});
+            }
+            if (!args.isEmpty()) {
+                jdbcTemplate.batchUpdate(update, args);
+                filled += args.size();
+            }
+        }
+        if (unparsed > 0) {
+            log.warn("{} 存在操作时间格式无法识别的记录：{}，已按创建时间回填，记录ID（最多{}条）：{}", table,
+                    unparsed, MAX_LOGGED_IDS, unparsedIds);
+        }
+        return filled;
+    }
+}
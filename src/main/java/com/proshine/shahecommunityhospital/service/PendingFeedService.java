@@ -0,0 +1,464 @@
+package com.proshine.shahecommunityhospital.service;
+
+import com.proshine.shahecommunityhospital.dto.PendingFeedChange;
+import com.proshine.shahecommunityhospital.dto.PendingFeedRecord;
+import com.proshine.shahecommunityhospital.dto.PendingFeedSnapshot;
+import com.proshine.shahecommunityhospital.entity.ChargeRecord;
+import com.proshine.shahecommunityhospital.entity.RefundRecord;
+import com.proshine.shahecommunityhospital.event.MedicalRecordChangedEvent;
+import com.proshine.shahecommunityhospital.repository.ChargeRecordRepository;
+import com.proshine.shahecommunityhospital.repository.RefundRecordRepository;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 待确认记录实时推送
+ * 启动时加载一次待确认记录，之后按记录变更事件增量维护每个医院的待确认集合；
+ * 看板按医院订阅(SSE)，订阅时先收到全量快照，之后收到 PENDING/CONFIRMED/EXPIRED 增量，无需轮询全表。
+ * 推送的是脱敏后的记录(PendingFeedRecord)，不包含完整身份证号等敏感字段。
+ * 每个订阅者有自己的有界事件队列，由发送线程池按顺序发送，不占用业务请求线程；
+ * 队列积压超过上限或单次发送超时的订阅者会被断开(客户端自动重连后重新收到快照)，不拖慢其他订阅者。
+ * 没有待确认记录也没有订阅者的医院不保留集合；超过最长保留时间仍未确认的记录不再跟踪。
+ * 集合只包含本实例处理的变更，多实例部署时看板需订阅处理该医院请求的实例
+ *
+ * @author lenovo
+ */
+@Slf4j
+@Service
+public class PendingFeedService {
+
+    public static final String EVENT_SNAPSHOT = "snapshot";
+
+    public static final String EVENT_CHANGE = "change";
+
+    public static final String STATUS_EXPIRED = "EXPIRED";
+
+    private static final String STATUS_PENDING = "PENDING";
+
+    private final ChargeRecordRepository chargeRecordRepository;
+
+    private final RefundRecordRepository refundRecordRepository;
+
+    private final long timeoutMillis;
+
+    private final int maxSubscribers;
+
+    private final int maxQueuedEvents;
+
+    private final long sendTimeoutMillis;
+
+    private final int senderThreads;
+
+    private final long maxPendingAgeMillis;
+
+    /**
+     * addressId -> 该医院的待确认记录和订阅者，读写均在 Feed 对象上同步；集合为空时移除
+     */
+    private final Map<String, Feed> feeds = new ConcurrentHashMap<>();
+
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private final LongAdder droppedCount = new LongAdder();
+
+    private ExecutorService sender;
+
+    public PendingFeedService(ChargeRecordRepository chargeRecordRepository,
+                              RefundRecordRepository refundRecordRepository,
+                              @Value("${medical.pending-feed.timeout-millis:1800000}") long timeoutMillis,
+                              @Value("${medical.pending-feed.max-subscribers:200}") int maxSubscribers,
+                              @Value("${medical.pending-feed.max-queued-events:256}") int maxQueuedEvents,
+                              @Value("${medical.pending-feed.send-timeout-millis:10000}") long sendTimeoutMillis,
+                              @Value("${medical.pending-feed.sender-threads:4}") int senderThreads,
+                              @Value("${medical.pending-feed.max-pending-age-millis:86400000}")
+                                      long maxPendingAgeMillis) {
+        this.chargeRecordRepository = chargeRecordRepository;
+        this.refundRecordRepository = refundRecordRepository;
+        this.timeoutMillis = timeoutMillis;
+        this.maxSubscribers = maxSubscribers;
+        this.maxQueuedEvents = maxQueuedEvents;
+        this.sendTimeoutMillis = sendTimeoutMillis;
+        this.senderThreads = senderThreads;
+        this.maxPendingAgeMillis = maxPendingAgeMillis;
+    }
+
+    /**
+     * 在Web容器开始接收请求之前加载，避免与增量事件交错
+     */
+    @PostConstruct
+    public void start() {
+        // 每个订阅者同一时刻最多一个发送任务排队，任务数不超过订阅数上限
+        sender = Executors.newFixedThreadPool(senderThreads, new CustomizableThreadFactory("pending-feed-"));
+        long cutoff = System.currentTimeMillis() - maxPendingAgeMillis;
+        int charges = 0;
+        for (ChargeRecord record : chargeRecordRepository.findPendingChargeRecords()) {
+            if (!expired(record.getCreateTime(), cutoff) && StringUtils.hasText(record.getAddressId())) {
+                feeds.computeIfAbsent(record.getAddressId(), key -> new Feed()).charges
+                        .put(record.getId(), PendingFeedRecord.of(record));
+                charges++;
+            }
+        }
+        int refunds = 0;
+        for (RefundRecord record : refundRecordRepository.findPendingRefundRecords()) {
+            if (!expired(record.getCreateTime(), cutoff) && StringUtils.hasText(record.getAddressId())) {
+                feeds.computeIfAbsent(record.getAddressId(), key -> new Feed()).refunds
+                        .put(record.getId(), PendingFeedRecord.of(record));
+                refunds++;
+            }
+        }
+        log.info("待确认记录推送已启动，收费：{}，退费：{}", charges, refunds);
+    }
+
+    @PreDestroy
+    public void stop() {
+        sender.shutdownNow();
+        for (Feed feed : feeds.values()) {
+            List<Subscriber> subscribers;
+            synchronized (feed) {
+                subscribers = new ArrayList<>(feed.subscribers);
+            }
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.close()) {
+                    subscriber.emitter.complete();
+                }
+            }
+        }
+    }
+
+    /**
+     * 订阅医院的待确认记录
+     *
+     * @param addressId 医院/店名ID
+     * @return 推送连接，首个事件为全量快照
+     * @throws IllegalArgumentException 医院ID为空
+     * @throws IllegalStateException 订阅数已达上限
+     */
+    public SseEmitter subscribe(String addressId) {
+        if (!StringUtils.hasText(addressId)) {
+            throw new IllegalArgumentException("医院/店名ID不能为空");
+        }
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new IllegalStateException("订阅数已达上限");
+        }
+        Subscriber subscriber = new Subscriber(new SseEmitter(timeoutMillis));
+        subscriber.emitter.onCompletion(() -> unsubscribe(addressId, subscriber));
+        subscriber.emitter.onTimeout(subscriber.emitter::complete);
+        subscriber.emitter.onError(e -> unsubscribe(addressId, subscriber));
+        // 订阅者占用集合，订阅数有上限，任意医院ID不会无限创建集合
+        withFeed(addressId, true, feed -> {
+            feed.subscribers.add(subscriber);
+            // 快照与增量都进入同一订阅者队列，快照一定先于订阅后的增量到达
+            PendingFeedSnapshot snapshot = new PendingFeedSnapshot(addressId,
+                    sorted(feed.charges), sorted(feed.refunds));
+            enqueue(subscriber, SseEmitter.event().name(EVENT_SNAPSHOT).data(snapshot, MediaType.APPLICATION_JSON));
+            return null;
+        });
+        return subscriber.emitter;
+    }
+
+    /**
+     * 记录保存的事务提交后更新待确认集合并推送
+     */
+    @TransactionalEventListener
+    public void onRecordChanged(MedicalRecordChangedEvent event) {
+        ChargeRecord charge = event.getChargeRecord();
+        if (charge != null) {
+            PendingFeedRecord record = PendingFeedRecord.of(charge);
+            apply(charge.getAddressId(), record, f -> f.charges,
+                    new PendingFeedChange(record.getStatus(), record, null));
+        }
+        RefundRecord refund = event.getRefundRecord();
+        if (refund != null) {
+            PendingFeedRecord record = PendingFeedRecord.of(refund);
+            apply(refund.getAddressId(), record, f -> f.refunds,
+                    new PendingFeedChange(record.getStatus(), null, record));
+        }
+    }
+
+    /**
+     * 定时发送心跳注释，及时发现已断开的连接；同时断开发送超时的订阅者
+     */
+    @Scheduled(fixedDelayString = "${medical.pending-feed.heartbeat-millis:15000}")
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        for (Subscriber subscriber : subscribers()) {
+            long sendingSince = subscriber.sendingSince;
+            if (sendingSince != 0 && now - sendingSince > sendTimeoutMillis) {
+                drop(subscriber, "发送超时");
+            } else {
+                enqueue(subscriber, SseEmitter.event().comment("heartbeat"));
+            }
+        }
+    }
+
+    /**
+     * 定时清理超过最长保留时间仍未确认的记录(如终端点击后未再确认)，并通知看板移除
+     */
+    @Scheduled(fixedDelayString = "${medical.pending-feed.evict-interval-millis:600000}")
+    public void evictExpired() {
+        long cutoff = System.currentTimeMillis() - maxPendingAgeMillis;
+        int evicted = 0;
+        for (String addressId : new ArrayList<>(feeds.keySet())) {
+            Integer count = withFeed(addressId, false, feed -> {
+                int removed = 0;
+                for (Iterator<PendingFeedRecord> it = feed.charges.values().iterator(); it.hasNext(); ) {
+                    PendingFeedRecord record = it.next();
+                    if (expired(record.getCreateTime(), cutoff)) {
+                        it.remove();
+                        removed++;
+                        broadcast(feed, new PendingFeedChange(STATUS_EXPIRED, record, null));
+                    }
+                }
+                for (Iterator<PendingFeedRecord> it = feed.refunds.values().iterator(); it.hasNext(); ) {
+                    PendingFeedRecord record = it.next();
+                    if (expired(record.getCreateTime(), cutoff)) {
+                        it.remove();
+                        removed++;
+                        broadcast(feed, new PendingFeedChange(STATUS_EXPIRED, null, record));
+                    }
+                }
+                return removed;
+            });
+            evicted += count == null ? 0 : count;
+        }
+        if (evicted > 0) {
+            log.info("清理长时间未确认的待确认记录：{}", evicted);
+        }
+    }
+
+    /**
+     * 推送统计快照
+     */
+    public Stats stats() {
+        int charges = 0;
+        int refunds = 0;
+        for (Feed feed : feeds.values()) {
+            synchronized (feed) {
+                charges += feed.charges.size();
+                refunds += feed.refunds.size();
+            }
+        }
+        return new Stats(subscriberCount.get(), charges, refunds, feeds.size(), droppedCount.sum());
+    }
+
+    private void apply(String addressId, PendingFeedRecord record,
+                       Function<Feed, Map<String, PendingFeedRecord>> pending, PendingFeedChange change) {
+        if (!StringUtils.hasText(addressId)) {
+            return;
+        }
+        boolean isPending = STATUS_PENDING.equals(record.getStatus());
+        // 只有新增待确认记录才创建集合；已确认的记录所在医院没有集合时无需处理
+        withFeed(addressId, isPending, feed -> {
+            if (isPending) {
+                pending.apply(feed).put(record.getId(), record);
+            } else {
+                pending.apply(feed).remove(record.getId());
+            }
+            broadcast(feed, change);
+            return null;
+        });
+    }
+
+    /**
+     * 在医院的集合上同步执行操作，结束后集合为空则移除
+     *
+     * @param create 集合不存在时是否创建；不创建且不存在时不执行操作，返回 null
+     */
+    private <R> R withFeed(String addressId, boolean create, Function<Feed, R> action) {
+        while (true) {
+            Feed feed = create ? feeds.computeIfAbsent(addressId, key -> new Feed()) : feeds.get(addressId);
+            if (feed == null) {
+                return null;
+            }
+            synchronized (feed) {
+                if (feed.removed) {
+                    // 取到集合后、加锁前被其他线程移除，重新获取
+                    continue;
+                }
+                R result = action.apply(feed);
+                feed.subscribers.removeIf(Subscriber::isClosed);
+                if (feed.isEmpty()) {
+                    feed.removed = true;
+                    feeds.remove(addressId, feed);
+                }
+                return result;
+            }
+        }
+    }
+
+    private void broadcast(Feed feed, PendingFeedChange change) {
+        // 断开订阅者可能同步回调 unsubscribe 修改列表，遍历副本
+        for (Subscriber subscriber : new ArrayList<>(feed.subscribers)) {
+            enqueue(subscriber, SseEmitter.event().name(EVENT_CHANGE).data(change, MediaType.APPLICATION_JSON));
+        }
+    }
+
+    /**
+     * 事件进入订阅者队列，队列中没有发送任务时提交一个；队列已满说明客户端接收过慢，断开该订阅者
+     */
+    private void enqueue(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        boolean overflow = false;
+        boolean schedule = false;
+        synchronized (subscriber) {
+            if (subscriber.isClosed()) {
+                return;
+            }
+            if (subscriber.queue.size() >= maxQueuedEvents) {
+                overflow = true;
+            } else {
+                subscriber.queue.add(event);
+                schedule = !subscriber.draining;
+                subscriber.draining = true;
+            }
+        }
+        if (overflow) {
+            drop(subscriber, "积压事件超过上限");
+        } else if (schedule) {
+            try {
+                sender.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                // 正在停止
+                subscriber.close();
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        while (true) {
+            SseEmitter.SseEventBuilder event;
+            synchronized (subscriber) {
+                event = subscriber.queue.poll();
+                if (event == null || subscriber.isClosed()) {
+                    subscriber.queue.clear();
+                    subscriber.draining = false;
+                    return;
+                }
+            }
+            subscriber.sendingSince = System.currentTimeMillis();
+            try {
+                subscriber.emitter.send(event);
+            } catch (IOException | IllegalStateException e) {
+                // 客户端已断开或连接已结束
+                if (subscriber.close()) {
+                    subscriberCount.decrementAndGet();
+                    subscriber.emitter.completeWithError(e);
+                }
+            } finally {
+                subscriber.sendingSince = 0;
+            }
+        }
+    }
+
+    private void drop(Subscriber subscriber, String reason) {
+        if (subscriber.close()) {
+            subscriberCount.decrementAndGet();
+            droppedCount.increment();
+            log.warn("断开待确认记录订阅 - 原因: {}", reason);
+            subscriber.emitter.complete();
+        }
+    }
+
+    private void unsubscribe(String addressId, Subscriber subscriber) {
+        if (subscriber.close()) {
+            subscriberCount.decrementAndGet();
+        }
+        withFeed(addressId, false, feed -> null);
+    }
+
+    private List<Subscriber> subscribers() {
+        List<Subscriber> subscribers = new ArrayList<>();
+        for (Feed feed : feeds.values()) {
+            synchronized (feed) {
+                subscribers.addAll(feed.subscribers);
+            }
+        }
+        return subscribers;
+    }
+
+    private static boolean expired(Long createTime, long cutoff) {
+        return createTime != null && createTime < cutoff;
+    }
+
+    private static List<PendingFeedRecord> sorted(Map<String, PendingFeedRecord> records) {
+        List<PendingFeedRecord> list = new ArrayList<>(records.values());
+        list.sort(Comparator.comparing(PendingFeedRecord::getCreateTime,
+                Comparator.nullsLast(Comparator.reverseOrder())));
+        return list;
+    }
+
+    private static final class Feed {
+        private final Map<String, PendingFeedRecord> charges = new HashMap<>();
+        private final Map<String, PendingFeedRecord> refunds = new HashMap<>();
+        private final List<Subscriber> subscribers = new ArrayList<>();
+        private boolean removed;
+
+        private boolean isEmpty() {
+            return charges.isEmpty() && refunds.isEmpty() && subscribers.isEmpty();
+        }
+    }
+
+    /**
+     * 订阅者：事件队列在对象上同步，draining 表示已有发送任务在处理队列
+     */
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final Deque<SseEmitter.SseEventBuilder> queue = new ArrayDeque<>();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private boolean draining;
+        private volatile long sendingSince;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        /**
+         * @return 首次关闭时返回 true，订阅数只在此时减一
+         */
+        private boolean close() {
+            return closed.compareAndSet(false, true);
+        }
+
+        private boolean isClosed() {
+            return closed.get();
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Stats {
+        private int subscriberCount;
+        private int pendingChargeCount;
+        private int pendingRefundCount;
+        private int feedCount;
+        private long droppedCount;
+    }
+}
@@ -1,13 +1,14 @@
 package com.proshine.shahecommunityhospital.service.impl;
 
+import com.proshine.shahecommunityhospital.cache.TerminalRouteCache;
 import com.proshine.shahecommunityhospital.entity.TbTerminal;
 import com.proshine.shahecommunityhospital.repository.TbTerminalRepository;
 import com.proshine.shahecommunityhospital.service.ITbTerminalService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -22,6 +23,8 @@ import java.util.List;
 public class TbTerminalServiceImpl implements ITbTerminalService {
     
     private final TbTerminalRepository tbTerminalRepository;
+
+    private final TerminalRouteCache terminalRouteCache;
     
     /**
      * 根据ID获取终端信息
@@ -38,4 +41,18 @@ public class TbTerminalServiceImpl implements ITbTerminalService {
     public List<TbTerminal> findByExtraId2(String extraId2) {
         return tbTerminalRepository.findByExtraId2(extraId2);
     }
-}
\ No newline at end of file
+
+    @Override
+    public List<String> findTerminalIdsByExtraId2(String extraId2) {
+        return terminalRouteCache.getTerminalIds(extraId2);
+    }
+
+    @Override
+    public void evictTerminalRoute(String extraId2) {
+        if (StringUtils.hasText(extraId2)) {
+            terminalRouteCache.invalidate(extraId2);
+        } else {
+            terminalRouteCache.invalidateAll();
+        }
+    }
+}
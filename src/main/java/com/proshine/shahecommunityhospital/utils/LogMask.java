@@ -0,0 +1,50 @@
+package com.proshine.shahecommunityhospital.utils;
+
+/**
+ * 日志脱敏
+ * 身份证号保留前3位和后4位，社保号保留后4位，姓名保留首字，其余替换为 *
+ *
+ * @author lenovo
+ */
+public final class LogMask {
+
+    private LogMask() {
+    }
+
+    /**
+     * 身份证号脱敏，如 110***********1234
+     */
+    public static String identityCard(String value) {
+        return mask(value, 3, 4);
+    }
+
+    /**
+     * 社保号脱敏，只保留后4位
+     */
+    public static String socialSecurity(String value) {
+        return mask(value, 0, 4);
+    }
+
+    /**
+     * 姓名脱敏，只保留首字
+     */
+    public static String name(String value) {
+        return mask(value, 1, 0);
+    }
+
+    /**
+     * 保留首尾指定位数，其余替换为 *；长度不足以保留任何字符时全部替换
+     */
+    private static String mask(String value, int head, int tail) {
+        if (value == null || value.isEmpty()) {
+            return value;
+        }
+        int length = value.length();
+        char[] chars = new char[length];
+        boolean keep = length > head + tail;
+        for (int i = 0; i < length; i++) {
+            chars[i] = keep && (i < head || i >= length - tail) ? value.charAt(i) : '*';
+        }
+        return new String(chars);
+    }
+}
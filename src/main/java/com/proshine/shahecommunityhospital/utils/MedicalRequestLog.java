@@ -0,0 +1,47 @@
+package com.proshine.shahecommunityhospital.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 收费/退费请求日志
+ * 每个请求结束时输出一行 key=value 格式的事件，身份证号、社保号和姓名脱敏；
+ * 使用独立的 logger 名称 medical.request，可单独调整级别或输出到单独的文件
+ *
+ * @author lenovo
+ */
+public final class MedicalRequestLog {
+
+    private static final Logger LOG = LoggerFactory.getLogger("medical.request");
+
+    private MedicalRequestLog() {
+    }
+
+    /**
+     * 输出请求事件
+     *
+     * @param operation 接口操作
+     * @param outcome 处理结果：SUCCESS、DUPLICATE、INVALID、FAIL、REJECTED、CONFLICT
+     * @param addressId 医院/店名ID
+     * @param windowId 窗口id
+     * @param name 患者姓名
+     * @param identityCardNumber 身份证号
+     * @param socialSecurityNumber 社保号
+     * @param amount 金额（收费为实收，退费为实退）
+     * @param startNanos 请求开始时的 System.nanoTime()
+     */
+    public static void log(String operation, String outcome, String addressId, String windowId, String name,
+                           String identityCardNumber, String socialSecurityNumber, BigDecimal amount,
+                           long startNanos) {
+        if (!LOG.isInfoEnabled()) {
+            return;
+        }
+        long elapsedMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+        LOG.info("op={} outcome={} addressId={} windowId={} name={} idCard={} ssn={} amount={} elapsedUs={}",
+                operation, outcome, addressId, windowId, LogMask.name(name), LogMask.identityCard(identityCardNumber),
+                LogMask.socialSecurity(socialSecurityNumber), amount, elapsedMicros);
+    }
+}
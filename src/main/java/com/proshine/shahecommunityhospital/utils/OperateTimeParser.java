@@ -0,0 +1,340 @@
+package com.proshine.shahecommunityhospital.utils;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneRules;
+
+/**
+ * 操作时间/年龄字符串解析
+ * 终端上报的操作时间格式不统一，入库时解析一次写入数值列，时间范围查询走数值索引。
+ * 支持的格式：
+ * <ul>
+ *     <li>yyyy-MM-dd HH:mm:ss，日期分隔符可为 - / . ，日期与时间之间可为空格或 T</li>
+ *     <li>省略秒或省略时间部分，月/日/时/分/秒可为一位数</li>
+ *     <li>可带毫秒，如 yyyy-MM-dd HH:mm:ss.SSS</li>
+ *     <li>yyyyMMddHHmmss 紧凑格式</li>
+ *     <li>13位毫秒时间戳、10位秒时间戳</li>
+ * </ul>
+ * 不带时区的时间按配置的时区解析（medical.operate-time.zone-id，默认北京时间UTC+8），
+ * 与数据库连接的 serverTimezone 一致。固定偏移的时区逐字符扫描，不创建中间对象；
+ * 有夏令时等规则的时区按 java.time 的规则换算偏移
+ *
+ * @author lenovo
+ */
+public final class OperateTimeParser {
+
+    /**
+     * 无法解析时的返回值
+     */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final ZoneId DEFAULT_ZONE = ZoneOffset.ofHours(8);
+
+    private static volatile Zone zone = new Zone(DEFAULT_ZONE);
+
+    private OperateTimeParser() {
+    }
+
+    /**
+     * 设置不带时区的操作时间所属的时区，应用启动时按配置设置一次
+     */
+    public static void setZone(ZoneId zoneId) {
+        zone = new Zone(zoneId != null ? zoneId : DEFAULT_ZONE);
+    }
+
+    /**
+     * 当前解析时区
+     */
+    public static ZoneId getZone() {
+        return zone.zoneId;
+    }
+
+    /**
+     * 解析操作时间
+     *
+     * @param text 操作时间字符串
+     * @return 毫秒时间戳，无法解析时返回 {@link #INVALID}
+     */
+    public static long parse(CharSequence text) {
+        if (text == null) {
+            return INVALID;
+        }
+        int start = 0;
+        int end = text.length();
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return INVALID;
+        }
+        int digits = countDigits(text, start, end);
+        if (digits == end - start) {
+            return parseDigits(text, start, end);
+        }
+        return parseSeparated(text, start, end);
+    }
+
+    /**
+     * 解析操作时间，无法解析时抛出异常
+     *
+     * @param text 操作时间字符串
+     * @return 毫秒时间戳
+     * @throws IllegalArgumentException 格式无法识别
+     */
+    public static long parseOrThrow(CharSequence text) {
+        long millis = parse(text);
+        if (millis == INVALID) {
+            throw new IllegalArgumentException("操作时间格式无法识别: " + text);
+        }
+        return millis;
+    }
+
+    /**
+     * 解析年龄中的周岁数
+     * "45"、"45岁" 解析为 45；"3个月"、"15天" 等不足一岁的写法解析为 0
+     *
+     * @param text 年龄字符串
+     * @return 周岁数，无法解析时返回 -1
+     */
+    public static int parseAgeYears(CharSequence text) {
+        if (text == null) {
+            return -1;
+        }
+        int i = 0;
+        int length = text.length();
+        while (i < length && text.charAt(i) <= ' ') {
+            i++;
+        }
+        int years = 0;
+        int digits = 0;
+        while (i < length && isDigit(text.charAt(i)) && digits < 3) {
+            years = years * 10 + (text.charAt(i) - '0');
+            digits++;
+            i++;
+        }
+        if (digits == 0 || (i < length && isDigit(text.charAt(i)))) {
+            return -1;
+        }
+        while (i < length && text.charAt(i) <= ' ') {
+            i++;
+        }
+        if (i == length || text.charAt(i) == '岁') {
+            return years;
+        }
+        char unit = text.charAt(i);
+        return unit == '月' || unit == '个' || unit == '天' || unit == '周' ? 0 : -1;
+    }
+
+    private static long parseDigits(CharSequence text, int start, int end) {
+        int length = end - start;
+        if (length == 13) {
+            return readNumber(text, start, end);
+        }
+        if (length == 10) {
+            return readNumber(text, start, end) * 1000L;
+        }
+        if (length == 14 || length == 12 || length == 8) {
+            int year = (int) readNumber(text, start, start + 4);
+            int month = (int) readNumber(text, start + 4, start + 6);
+            int day = (int) readNumber(text, start + 6, start + 8);
+            int hour = length > 8 ? (int) readNumber(text, start + 8, start + 10) : 0;
+            int minute = length > 8 ? (int) readNumber(text, start + 10, start + 12) : 0;
+            int second = length == 14 ? (int) readNumber(text, start + 12, start + 14) : 0;
+            return toEpochMillis(year, month, day, hour, minute, second, 0);
+        }
+        return INVALID;
+    }
+
+    private static long parseSeparated(CharSequence text, int start, int end) {
+        // 依次为 年 月 日 时 分 秒 毫秒
+        int year = 0;
+        int month = 0;
+        int day = 0;
+        int hour = 0;
+        int minute = 0;
+        int second = 0;
+        int millis = 0;
+        int field = 0;
+        int i = start;
+        while (i < end) {
+            int fieldStart = i;
+            int value = 0;
+            while (i < end && isDigit(text.charAt(i)) && i - fieldStart < 9) {
+                value = value * 10 + (text.charAt(i) - '0');
+                i++;
+            }
+            int width = i - fieldStart;
+            if (width == 0 || (i < end && isDigit(text.charAt(i)))) {
+                return INVALID;
+            }
+            switch (field) {
+                case 0:
+                    if (width != 4) {
+                        return INVALID;
+                    }
+                    year = value;
+                    break;
+                case 1:
+                    month = value;
+                    break;
+                case 2:
+                    day = value;
+                    break;
+                case 3:
+                    hour = value;
+                    break;
+                case 4:
+                    minute = value;
+                    break;
+                case 5:
+                    second = value;
+                    break;
+                case 6:
+                    // 毫秒按前三位计，不足三位补零
+                    millis = width >= 3 ? value / pow10(width - 3) : value * pow10(3 - width);
+                    break;
+                default:
+                    return INVALID;
+            }
+            if (field != 0 && field != 6 && width > 2) {
+                return INVALID;
+            }
+            field++;
+            if (i == end) {
+                break;
+            }
+            if (!isSeparator(text.charAt(i), field)) {
+                return INVALID;
+            }
+            i++;
+        }
+        // 至少包含年月日；只有时没有分的写法不接受
+        if (field < 3 || field == 4) {
+            return INVALID;
+        }
+        return toEpochMillis(year, month, day, hour, minute, second, millis);
+    }
+
+    /**
+     * field 为下一个待读取的字段序号
+     */
+    private static boolean isSeparator(char c, int field) {
+        switch (field) {
+            case 1:
+            case 2:
+                return c == '-' || c == '/' || c == '.';
+            case 3:
+                return c == ' ' || c == 'T';
+            case 4:
+            case 5:
+                return c == ':';
+            case 6:
+                return c == '.' || c == ',';
+            default:
+                return false;
+        }
+    }
+
+    private static long toEpochMillis(int year, int month, int day, int hour, int minute, int second, int millis) {
+        if (year < 1970 || year > 9999 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || hour > 23 || minute > 59 || second > 59) {
+            return INVALID;
+        }
+        long epochDay = epochDay(year, month, day);
+        long secondOfDay = hour * 3600L + minute * 60L + second;
+        long localSeconds = epochDay * 86400L + secondOfDay;
+        return localSeconds * 1000L + millis - zone.offsetMillis(localSeconds);
+    }
+
+    /**
+     * 公历日期到1970-01-01起的天数（year >= 1970，无需处理负数取整）
+     */
+    private static long epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = y / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468L;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static int countDigits(CharSequence text, int start, int end) {
+        int count = 0;
+        for (int i = start; i < end && isDigit(text.charAt(i)); i++) {
+            count++;
+        }
+        return count;
+    }
+
+    private static long readNumber(CharSequence text, int start, int end) {
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + (text.charAt(i) - '0');
+        }
+        return value;
+    }
+
+    private static int pow10(int n) {
+        int value = 1;
+        for (int i = 0; i < n; i++) {
+            value *= 10;
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * 解析时区，固定偏移时预先算好偏移毫秒数
+     */
+    private static final class Zone {
+
+        private final ZoneId zoneId;
+
+        private final ZoneRules rules;
+
+        /**
+         * 固定偏移毫秒数，时区有偏移变化规则时为null
+         */
+        private final Long fixedOffsetMillis;
+
+        private Zone(ZoneId zoneId) {
+            this.zoneId = zoneId;
+            this.rules = zoneId.getRules();
+            this.fixedOffsetMillis = rules.isFixedOffset()
+                    ? rules.getOffset(Instant.EPOCH).getTotalSeconds() * 1000L : null;
+        }
+
+        /**
+         * 本地时间对应的偏移；夏令时切换跳过的时间取切换前的偏移，重复的时间取较早的偏移，与 ZonedDateTime 一致
+         */
+        private long offsetMillis(long localEpochSeconds) {
+            if (fixedOffsetMillis != null) {
+                return fixedOffsetMillis;
+            }
+            LocalDateTime local = LocalDateTime.ofEpochSecond(localEpochSeconds, 0, ZoneOffset.UTC);
+            return rules.getOffset(local).getTotalSeconds() * 1000L;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.proshine.shahecommunityhospital.utils;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 按时间有序的UUID（UUIDv7布局）
+ * 高48位为毫秒时间戳，随后12位为同一毫秒内的递增序号，其余为随机数；
+ * 同一进程内生成的id严格递增，字符串按字典序与生成顺序一致，
+ * 作为InnoDB主键时新行总是追加在聚簇索引末尾
+ *
+ * @author lenovo
+ */
+public final class OrderedUuid {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final int MAX_SEQUENCE = 0xFFF;
+
+    private static long lastMillis;
+
+    private static int sequence;
+
+    private OrderedUuid() {
+    }
+
+    /**
+     * 生成有序UUID
+     */
+    public static UUID next() {
+        long millis;
+        int seq;
+        synchronized (OrderedUuid.class) {
+            long now = System.currentTimeMillis();
+            if (now > lastMillis) {
+                lastMillis = now;
+                // 序号从随机低位开始，降低多实例同一毫秒内的碰撞概率
+                sequence = ThreadLocalRandom.current().nextInt(MAX_SEQUENCE >> 1);
+            } else if (++sequence > MAX_SEQUENCE) {
+                // 同一毫秒序号用尽或时钟回拨时借用下一毫秒，保证单调
+                lastMillis++;
+                sequence = 0;
+            }
+            millis = lastMillis;
+            seq = sequence;
+        }
+        long msb = (millis << 16) | 0x7000L | seq;
+        long lsb = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+
+    /**
+     * 生成有序UUID字符串
+     *
+     * @param needReplace 是否去掉中划线（32位）
+     */
+    public static String nextString(boolean needReplace) {
+        return toString(next(), needReplace);
+    }
+
+    /**
+     * UUID转字符串，不经过正则替换
+     *
+     * @param needReplace 是否去掉中划线（32位）
+     */
+    public static String toString(UUID uuid, boolean needReplace) {
+        char[] chars = new char[needReplace ? 32 : 36];
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        int pos = 0;
+        pos = hex(chars, pos, msb >>> 32, 8);
+        pos = dash(chars, pos, needReplace);
+        pos = hex(chars, pos, msb >>> 16, 4);
+        pos = dash(chars, pos, needReplace);
+        pos = hex(chars, pos, msb, 4);
+        pos = dash(chars, pos, needReplace);
+        pos = hex(chars, pos, lsb >>> 48, 4);
+        pos = dash(chars, pos, needReplace);
+        hex(chars, pos, lsb, 12);
+        return new String(chars);
+    }
+
+    /**
+     * UUID转16字节，用于 BINARY(16) 存储
+     */
+    public static byte[] toBytes(UUID uuid) {
+        byte[] bytes = new byte[16];
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (msb >>> (56 - 8 * i));
+            bytes[i + 8] = (byte) (lsb >>> (56 - 8 * i));
+        }
+        return bytes;
+    }
+
+    /**
+     * 有序UUID中的毫秒时间戳
+     */
+    public static long timestamp(UUID uuid) {
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+
+    private static int hex(char[] chars, int pos, long value, int digits) {
+        for (int i = digits - 1; i >= 0; i--) {
+            chars[pos + i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+        return pos + digits;
+    }
+
+    private static int dash(char[] chars, int pos, boolean needReplace) {
+        if (needReplace) {
+            return pos;
+        }
+        chars[pos] = '-';
+        return pos + 1;
+    }
+}
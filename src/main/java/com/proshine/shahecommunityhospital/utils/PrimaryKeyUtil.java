@@ -9,10 +9,16 @@ import java.util.UUID;
 public class PrimaryKeyUtil {
 
     public static String generatePrimary(boolean needReplace){
-        if(needReplace){
-            return UUID.randomUUID().toString().replaceAll("-","");
-        }
-        return UUID.randomUUID().toString();
+        return OrderedUuid.toString(UUID.randomUUID(), needReplace);
+    }
+
+    /**
+     * 生成按时间有序的主键id
+     *
+     * @param needReplace 是否去掉中划线
+     */
+    public static String generateOrderedPrimary(boolean needReplace){
+        return OrderedUuid.nextString(needReplace);
     }
 
 }
@@ -0,0 +1,79 @@
+package com.proshine.shahecommunityhospital.validation;
+
+import com.proshine.shahecommunityhospital.dto.ChargeRequest;
+import com.proshine.shahecommunityhospital.dto.MedicalRequest;
+import com.proshine.shahecommunityhospital.dto.RefundRequest;
+
+/**
+ * 收费/退费请求校验规则表
+ * 公共字段规则只定义一次，收费、退费规则集在公共规则的基础上加入各自的金额字段，
+ * 提示顺序与接口文档的字段顺序一致
+ *
+ * @author lenovo
+ */
+public final class MedicalRequestRules {
+
+    private static final ValidationRule<MedicalRequest> ADDRESS_ID =
+            ValidationRule.hasText(MedicalRequest::getAddressId, "医院/店名ID不能为空");
+
+    private static final ValidationRule<MedicalRequest> ADDRESS_NAME =
+            ValidationRule.hasText(MedicalRequest::getAddressName, "医院/店名不能为空");
+
+    private static final ValidationRule<MedicalRequest> WINDOW_ID =
+            ValidationRule.hasText(MedicalRequest::getWindowId, "窗口ID不能为空");
+
+    private static final ValidationRule<MedicalRequest> WINDOW_NAME =
+            ValidationRule.hasText(MedicalRequest::getWindowName, "窗口名不能为空");
+
+    private static final ValidationRule<MedicalRequest> NAME =
+            ValidationRule.hasText(MedicalRequest::getName, "患者姓名不能为空");
+
+    private static final ValidationRule<MedicalRequest> AGE =
+            ValidationRule.hasText(MedicalRequest::getAge, "患者年龄不能为空");
+
+    private static final ValidationRule<MedicalRequest> SEX =
+            ValidationRule.hasText(MedicalRequest::getSex, "患者性别不能为空");
+
+    private static final ValidationRule<MedicalRequest> RECEIVABLE =
+            ValidationRule.nonNegative(MedicalRequest::getReceivable, "应收金额不能为空且不能为负数");
+
+    private static final ValidationRule<MedicalRequest> SOCIAL_SECURITY_NUMBER =
+            ValidationRule.hasText(MedicalRequest::getSocialSecurityNumber, "社保号不能为空");
+
+    private static final ValidationRule<MedicalRequest> IDENTITY_CARD_NUMBER =
+            ValidationRule.hasText(MedicalRequest::getIdentityCardNumber, "身份证号不能为空");
+
+    private static final ValidationRule<MedicalRequest> OPERATOR =
+            ValidationRule.hasText(MedicalRequest::getOperator, "操作人不能为空");
+
+    private static final ValidationRule<MedicalRequest> OPERATE_TIME =
+            ValidationRule.hasText(MedicalRequest::getOperateTime, "操作时间不能为空");
+
+    private static final ValidationRule<ChargeRequest> PAID_UP =
+            ValidationRule.nonNegative(ChargeRequest::getPaidUp, "实收金额不能为空且不能为负数");
+
+    private static final ValidationRule<ChargeRequest> CHANGE =
+            ValidationRule.nonNegative(ChargeRequest::getChange, "找零金额不能为空且不能为负数");
+
+    private static final ValidationRule<RefundRequest> REAL_REFUND_AMOUNT =
+            ValidationRule.nonNegative(RefundRequest::getRealRefundAmount, "实退金额不能为空且不能为负数");
+
+    /**
+     * 收费按钮点击、确认收费
+     */
+    public static final RuleSet<ChargeRequest> CHARGE = RuleSet.of(
+            ADDRESS_ID, ADDRESS_NAME, WINDOW_ID, WINDOW_NAME, NAME, AGE, SEX,
+            RECEIVABLE, PAID_UP, CHANGE,
+            SOCIAL_SECURITY_NUMBER, IDENTITY_CARD_NUMBER, OPERATOR, OPERATE_TIME);
+
+    /**
+     * 退费按钮点击、确认退费
+     */
+    public static final RuleSet<RefundRequest> REFUND = RuleSet.of(
+            ADDRESS_ID, ADDRESS_NAME, WINDOW_ID, WINDOW_NAME, NAME, AGE, SEX,
+            RECEIVABLE, REAL_REFUND_AMOUNT,
+            SOCIAL_SECURITY_NUMBER, IDENTITY_CARD_NUMBER, OPERATOR, OPERATE_TIME);
+
+    private MedicalRequestRules() {
+    }
+}
@@ -0,0 +1,34 @@
+package com.proshine.shahecommunityhospital.validation;
+
+import java.util.List;
+
+/**
+ * 请求参数校验失败
+ * 继承 IllegalArgumentException，沿用接口层"参数错误直接返回提示"的处理；
+ * 提示信息已包含全部违规项，不采集堆栈
+ *
+ * @author lenovo
+ */
+public class RequestValidationException extends IllegalArgumentException {
+
+    /**
+     * 多个违规提示之间的分隔符
+     */
+    public static final String DELIMITER = "；";
+
+    private final List<String> violations;
+
+    public RequestValidationException(List<String> violations) {
+        super(String.join(DELIMITER, violations));
+        this.violations = violations;
+    }
+
+    public List<String> getViolations() {
+        return violations;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,67 @@
+package com.proshine.shahecommunityhospital.validation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 按顺序执行的一组校验规则
+ * 构造时固定为数组，校验时单次遍历并收集全部违规项；校验通过时不分配对象
+ *
+ * @param <T> 被校验的请求类型
+ * @author lenovo
+ */
+public final class RuleSet<T> {
+
+    private static final String NULL_TARGET = "请求参数不能为空";
+
+    private final ValidationRule<? super T>[] rules;
+
+    private RuleSet(ValidationRule<? super T>[] rules) {
+        this.rules = rules;
+    }
+
+    @SafeVarargs
+    public static <T> RuleSet<T> of(ValidationRule<? super T>... rules) {
+        return new RuleSet<>(rules.clone());
+    }
+
+    /**
+     * 执行全部规则
+     *
+     * @param target 被校验的请求
+     * @return 违规提示，按规则顺序排列；校验通过时为空列表
+     */
+    public List<String> validate(T target) {
+        if (target == null) {
+            return Collections.singletonList(NULL_TARGET);
+        }
+        List<String> violations = null;
+        for (ValidationRule<? super T> rule : rules) {
+            if (!rule.test(target)) {
+                if (violations == null) {
+                    violations = new ArrayList<>(rules.length);
+                }
+                violations.add(rule.getMessage());
+            }
+        }
+        return violations == null ? Collections.<String>emptyList() : violations;
+    }
+
+    /**
+     * 执行全部规则，存在违规项时抛出异常
+     *
+     * @param target 被校验的请求
+     * @throws RequestValidationException 存在违规项，包含全部违规提示
+     */
+    public void check(T target) {
+        List<String> violations = validate(target);
+        if (!violations.isEmpty()) {
+            throw new RequestValidationException(violations);
+        }
+    }
+
+    public int size() {
+        return rules.length;
+    }
+}
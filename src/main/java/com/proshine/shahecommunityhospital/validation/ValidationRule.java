@@ -0,0 +1,76 @@
+package com.proshine.shahecommunityhospital.validation;
+
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.util.function.Function;
+
+/**
+ * 单条校验规则：取值方法 + 判定条件 + 违规提示
+ * 取值使用方法引用，不经过反射
+ *
+ * @param <T> 被校验的请求类型
+ * @author lenovo
+ */
+public abstract class ValidationRule<T> {
+
+    private final String message;
+
+    private ValidationRule(String message) {
+        this.message = message;
+    }
+
+    /**
+     * 字符串字段不能为空或空白
+     */
+    public static <T> ValidationRule<T> hasText(Function<T, String> field, String message) {
+        return new TextRule<>(field, message);
+    }
+
+    /**
+     * 金额字段不能为空且不能为负数
+     */
+    public static <T> ValidationRule<T> nonNegative(Function<T, BigDecimal> field, String message) {
+        return new AmountRule<>(field, message);
+    }
+
+    abstract boolean test(T target);
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * 规则只有两种实现，校验循环中的调用点保持双态，便于JIT内联
+     */
+    private static final class TextRule<T> extends ValidationRule<T> {
+
+        private final Function<T, String> field;
+
+        private TextRule(Function<T, String> field, String message) {
+            super(message);
+            this.field = field;
+        }
+
+        @Override
+        boolean test(T target) {
+            return StringUtils.hasText(field.apply(target));
+        }
+    }
+
+    private static final class AmountRule<T> extends ValidationRule<T> {
+
+        private final Function<T, BigDecimal> field;
+
+        private AmountRule(Function<T, BigDecimal> field, String message) {
+            super(message);
+            this.field = field;
+        }
+
+        @Override
+        boolean test(T target) {
+            BigDecimal value = field.apply(target);
+            return value != null && value.signum() >= 0;
+        }
+    }
+}
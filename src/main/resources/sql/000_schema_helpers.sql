@@ -0,0 +1,48 @@
+-- 迁移脚本公共存储过程（MySQL 8），先于其他迁移脚本执行一次。
+-- MySQL 不支持 CREATE INDEX IF NOT EXISTS / ADD COLUMN IF NOT EXISTS，
+-- 各脚本通过以下过程按 information_schema 判断后再执行，重复执行不会报错。
+-- 使用 mysql 命令行客户端执行：mysql shahe_hospital < 000_schema_helpers.sql
+
+DROP PROCEDURE IF EXISTS medical_create_index;
+DROP PROCEDURE IF EXISTS medical_drop_index;
+DROP PROCEDURE IF EXISTS medical_add_column;
+
+DELIMITER //
+
+-- 索引不存在时创建
+CREATE PROCEDURE medical_create_index(IN p_table VARCHAR(64), IN p_index VARCHAR(64), IN p_columns VARCHAR(255))
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM information_schema.statistics
+                   WHERE table_schema = DATABASE() AND table_name = p_table AND index_name = p_index) THEN
+        SET @medical_ddl = CONCAT('CREATE INDEX ', p_index, ' ON ', p_table, ' (', p_columns, ')');
+        PREPARE medical_stmt FROM @medical_ddl;
+        EXECUTE medical_stmt;
+        DEALLOCATE PREPARE medical_stmt;
+    END IF;
+END //
+
+-- 索引存在时删除
+CREATE PROCEDURE medical_drop_index(IN p_table VARCHAR(64), IN p_index VARCHAR(64))
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = p_table AND index_name = p_index) THEN
+        SET @medical_ddl = CONCAT('DROP INDEX ', p_index, ' ON ', p_table);
+        PREPARE medical_stmt FROM @medical_ddl;
+        EXECUTE medical_stmt;
+        DEALLOCATE PREPARE medical_stmt;
+    END IF;
+END //
+
+-- 列不存在时添加，p_definition 为列类型及约束，例如 'BIGINT NOT NULL DEFAULT 0'
+CREATE PROCEDURE medical_add_column(IN p_table VARCHAR(64), IN p_column VARCHAR(64), IN p_definition VARCHAR(255))
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM information_schema.columns
+                   WHERE table_schema = DATABASE() AND table_name = p_table AND column_name = p_column) THEN
+        SET @medical_ddl = CONCAT('ALTER TABLE ', p_table, ' ADD COLUMN ', p_column, ' ', p_definition);
+        PREPARE medical_stmt FROM @medical_ddl;
+        EXECUTE medical_stmt;
+        DEALLOCATE PREPARE medical_stmt;
+    END IF;
+END //
+
+DELIMITER ;
@@ -0,0 +1,32 @@
+-- 收费/退费记录索引迁移脚本（MySQL 8），依赖 000_schema_helpers.sql，可重复执行
+-- 新部署由 spring.jpa.hibernate.ddl-auto=update 按实体上的 @Index 自动创建；
+-- 已有数据的库请在低峰期执行本脚本。
+-- 只保留业务实际使用的查询所需的索引：
+--   idx_*_latest_pending  按身份证号、状态、窗口查找最新待确认记录，患者历史记录
+--   idx_*_status_ctime    待确认记录列表、汇总重建按状态读取
+--   idx_*_address_ctime   按医院查询、游标分页和导出
+--   idx_*_ctime           按创建时间范围游标分页和导出
+-- 执行计划由 RecordQueryPlanTest 按 Repository 实际生成的SQL校验。
+
+-- tb_charge_record
+CALL medical_create_index('tb_charge_record', 'idx_charge_latest_pending', 'identity_card_number, status, window_id, create_time');
+CALL medical_create_index('tb_charge_record', 'idx_charge_status_ctime', 'status, create_time');
+CALL medical_create_index('tb_charge_record', 'idx_charge_address_ctime', 'address_id, create_time');
+CALL medical_create_index('tb_charge_record', 'idx_charge_ctime', 'create_time');
+
+-- tb_refund_record
+CALL medical_create_index('tb_refund_record', 'idx_refund_latest_pending', 'identity_card_number, status, window_id, create_time');
+CALL medical_create_index('tb_refund_record', 'idx_refund_status_ctime', 'status, create_time');
+CALL medical_create_index('tb_refund_record', 'idx_refund_address_ctime', 'address_id, create_time');
+CALL medical_create_index('tb_refund_record', 'idx_refund_ctime', 'create_time');
+
+-- 早期版本创建、当前没有查询使用的索引，只增加写入开销，存在时删除
+CALL medical_drop_index('tb_charge_record', 'idx_charge_ssn');
+CALL medical_drop_index('tb_charge_record', 'idx_charge_window_ctime');
+CALL medical_drop_index('tb_charge_record', 'idx_charge_operator');
+CALL medical_drop_index('tb_charge_record', 'idx_charge_name');
+CALL medical_drop_index('tb_refund_record', 'idx_refund_ssn');
+CALL medical_drop_index('tb_refund_record', 'idx_refund_window_ctime');
+CALL medical_drop_index('tb_refund_record', 'idx_refund_operator');
+CALL medical_drop_index('tb_refund_record', 'idx_refund_name');
+CALL medical_drop_index('tb_refund_record', 'idx_refund_amount');
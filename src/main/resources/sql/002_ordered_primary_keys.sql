@@ -0,0 +1,17 @@
+-- 收费/退费记录有序主键迁移说明（MySQL 8）
+-- 新主键仍是36位UUID字符串（版本号7，高位为毫秒时间戳），列类型 VARCHAR(36) 不变，无需修改表结构。
+-- 历史行保留原有的随机UUID，新行按时间递增插入；如需回退，设置
+--   spring.jpa.properties.medical.id.strategy=random
+-- 即可，新旧主键可以混用。
+
+-- 可选1：上线后在低峰期重建表，整理历史随机插入造成的页分裂
+-- OPTIMIZE TABLE tb_charge_record;
+-- OPTIMIZE TABLE tb_refund_record;
+
+-- 可选2：改为 BINARY(16) 存储，主键和每个二级索引每行节省20字节。
+-- 需要同时把实体 id 改为 byte[]/UUID 类型并调整所有按id查询的接口，以下步骤仅供参考：
+-- ALTER TABLE tb_charge_record ADD COLUMN id_bin BINARY(16);
+-- UPDATE tb_charge_record SET id_bin = UUID_TO_BIN(id);
+-- ALTER TABLE tb_charge_record DROP PRIMARY KEY, DROP COLUMN id,
+--     RENAME COLUMN id_bin TO id, ADD PRIMARY KEY (id);
+-- tb_refund_record 同理。
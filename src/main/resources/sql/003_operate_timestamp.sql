@@ -0,0 +1,23 @@
+-- 操作时间戳/周岁数列迁移脚本（MySQL 8），依赖 000_schema_helpers.sql，可重复执行
+-- operate_time、age 为终端上报的原始字符串，保留不变；
+-- operate_timestamp(毫秒时间戳)、age_years(周岁数) 在写入时由实体解析，时间范围查询改走 operate_timestamp。
+-- ddl-auto=update 会自动加列和索引；已有数据的库请在低峰期执行本脚本，然后回填历史记录。
+
+CALL medical_add_column('tb_charge_record', 'operate_timestamp', 'BIGINT NULL');
+CALL medical_add_column('tb_charge_record', 'age_years', 'INT NULL');
+CALL medical_add_column('tb_refund_record', 'operate_timestamp', 'BIGINT NULL');
+CALL medical_add_column('tb_refund_record', 'age_years', 'INT NULL');
+
+CALL medical_create_index('tb_charge_record', 'idx_charge_otimestamp', 'operate_timestamp');
+CALL medical_create_index('tb_refund_record', 'idx_refund_otimestamp', 'operate_timestamp');
+
+-- 回填：POST /thirdpart/medical/operateTime/backfill，
+-- 或设置 medical.operate-time.backfill-on-startup=true 后重启一次。
+-- 操作时间格式无法识别的记录按创建时间回填，回填日志中列出这些记录的ID；
+-- 回填完成后仍为空的只有缺少创建时间的记录：
+-- SELECT id, operate_time FROM tb_charge_record WHERE operate_timestamp IS NULL;
+-- SELECT id, operate_time FROM tb_refund_record WHERE operate_timestamp IS NULL;
+
+-- 字符串列上的索引已不再被查询使用，确认无其他查询依赖后删除
+CALL medical_drop_index('tb_charge_record', 'idx_charge_otime');
+CALL medical_drop_index('tb_refund_record', 'idx_refund_otime');
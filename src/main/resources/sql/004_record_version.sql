@@ -0,0 +1,7 @@
+-- 收费/退费记录乐观锁版本列迁移脚本（MySQL 8），依赖 000_schema_helpers.sql，可重复执行
+-- 确认收费/退费先按 WHERE id = ? AND status = 'PENDING' 条件更新认领待确认记录，保存时再按 WHERE id = ? AND version = ? 校验；
+-- 并发确认同一条记录时只有一个成功，其余请求重新查找待确认记录后重试，找不到时按重复确认处理，不新建记录。
+-- ddl-auto=update 会自动加列；已有数据的库请在低峰期执行本脚本，已有记录的版本号为 0。
+
+CALL medical_add_column('tb_charge_record', 'version', 'BIGINT NOT NULL DEFAULT 0');
+CALL medical_add_column('tb_refund_record', 'version', 'BIGINT NOT NULL DEFAULT 0');
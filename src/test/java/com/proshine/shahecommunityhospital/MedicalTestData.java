@@ -0,0 +1,93 @@
+package com.proshine.shahecommunityhospital;
+
+import com.proshine.shahecommunityhospital.dto.ChargeButtonClickRequest;
+import com.proshine.shahecommunityhospital.dto.ConfirmPaymentRequest;
+import com.proshine.shahecommunityhospital.dto.ConfirmRefundRequest;
+import com.proshine.shahecommunityhospital.dto.RefundButtonClickRequest;
+
+import java.math.BigDecimal;
+
+/**
+ * 测试公共请求数据
+ *
+ * @author lenovo
+ */
+public final class MedicalTestData {
+
+    private MedicalTestData() {
+    }
+
+    public static ChargeButtonClickRequest chargeButtonClickRequest(String identityCardNumber) {
+        ChargeButtonClickRequest request = new ChargeButtonClickRequest();
+        request.setAddressId("A001");
+        request.setAddressName("沙河社区医院");
+        request.setWindowId("W01");
+        request.setWindowName("一号收费窗口");
+        request.setName("张三");
+        request.setAge("45");
+        request.setSex("男");
+        request.setReceivable(new BigDecimal("128.50"));
+        request.setPaidUp(new BigDecimal("150.00"));
+        request.setChange(new BigDecimal("21.50"));
+        request.setSocialSecurityNumber("SS" + identityCardNumber);
+        request.setIdentityCardNumber(identityCardNumber);
+        request.setOperator("cashier01");
+        request.setOperateTime("2024-05-20 10:15:30");
+        return request;
+    }
+
+    public static ConfirmPaymentRequest confirmPaymentRequest(String identityCardNumber) {
+        ConfirmPaymentRequest request = new ConfirmPaymentRequest();
+        request.setAddressId("A001");
+        request.setAddressName("沙河社区医院");
+        request.setWindowId("W01");
+        request.setWindowName("一号收费窗口");
+        request.setName("张三");
+        request.setAge("45");
+        request.setSex("男");
+        request.setReceivable(new BigDecimal("128.50"));
+        request.setPaidUp(new BigDecimal("150.00"));
+        request.setChange(new BigDecimal("21.50"));
+        request.setSocialSecurityNumber("SS" + identityCardNumber);
+        request.setIdentityCardNumber(identityCardNumber);
+        request.setOperator("cashier01");
+        request.setOperateTime("2024-05-20 10:16:02");
+        return request;
+    }
+
+    public static RefundButtonClickRequest refundButtonClickRequest(String identityCardNumber) {
+        RefundButtonClickRequest request = new RefundButtonClickRequest();
+        request.setAddressId("A001");
+        request.setAddressName("沙河社区医院");
+        request.setWindowId("W02");
+        request.setWindowName("二号退费窗口");
+        request.setName("李四");
+        request.setAge("62");
+        request.setSex("女");
+        request.setReceivable(new BigDecimal("80.00"));
+        request.setRealRefundAmount(new BigDecimal("35.00"));
+        request.setSocialSecurityNumber("SS" + identityCardNumber);
+        request.setIdentityCardNumber(identityCardNumber);
+        request.setOperator("cashier02");
+        request.setOperateTime("2024-05-20 11:02:10");
+        return request;
+    }
+
+    public static ConfirmRefundRequest confirmRefundRequest(String identityCardNumber) {
+        ConfirmRefundRequest request = new ConfirmRefundRequest();
+        request.setAddressId("A001");
+        request.setAddressName("沙河社区医院");
+        request.setWindowId("W02");
+        request.setWindowName("二号退费窗口");
+        request.setName("李四");
+        request.setAge("62");
+        request.setSex("女");
+        request.setReceivable(new BigDecimal("80.00"));
+        request.setRealRefundAmount(new BigDecimal("35.00"));
+        request.setSocialSecurityNumber("SS" + identityCardNumber);
+        request.setIdentityCardNumber(identityCardNumber);
+        request.setOperator("cashier02");
+        request.setOperateTime("2024-05-20 11:03:45");
+        return request;
+    }
+}
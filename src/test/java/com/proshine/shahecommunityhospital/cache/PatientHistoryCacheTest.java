@@ -0,0 +1,135 @@
+package com.proshine.shahecommunityhospital.cache;
+
+import com.proshine.shahecommunityhospital.MedicalTestData;
+import com.proshine.shahecommunityhospital.dto.ChargeButtonClickRequest;
+import com.proshine.shahecommunityhospital.dto.ConfirmPaymentRequest;
+import com.proshine.shahecommunityhospital.entity.ChargeRecord;
+import com.proshine.shahecommunityhospital.repository.ChargeRecordRepository;
+import com.proshine.shahecommunityhospital.repository.MedicalDailyRollupRepository;
+import com.proshine.shahecommunityhospital.repository.MqttOutboxRepository;
+import com.proshine.shahecommunityhospital.service.MedicalService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 患者记录缓存：并发读写后与数据库一致，返回的记录修改后不影响缓存
+ *
+ * @author lenovo
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class PatientHistoryCacheTest {
+
+    private static final int PATIENTS = 8;
+
+    @Autowired
+    private PatientHistoryCache patientHistoryCache;
+
+    @Autowired
+    private MedicalService medicalService;
+
+    @Autowired
+    private ChargeRecordRepository chargeRecordRepository;
+
+    @Autowired
+    private MedicalDailyRollupRepository medicalDailyRollupRepository;
+
+    @Autowired
+    private MqttOutboxRepository mqttOutboxRepository;
+
+    @AfterEach
+    void cleanUp() {
+        chargeRecordRepository.deleteAllInBatch();
+        medicalDailyRollupRepository.deleteAllInBatch();
+        mqttOutboxRepository.deleteAllInBatch();
+        patientHistoryCache.invalidateAll();
+    }
+
+    @Test
+    void staysConsistentUnderConcurrentReadsAndWrites() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 60; i++) {
+                    String identityCard = identityCard(ThreadLocalRandom.current().nextInt(PATIENTS));
+                    ChargeButtonClickRequest click = MedicalTestData.chargeButtonClickRequest(identityCard);
+                    click.setOperateTime(String.format("2024-05-20 10:%02d:%02d", i / 60, i % 60));
+                    medicalService.handleChargeButtonClick(click);
+                    if (i % 3 == 0) {
+                        ConfirmPaymentRequest confirm = MedicalTestData.confirmPaymentRequest(identityCard);
+                        confirm.setOperateTime(String.format("2024-05-20 11:%02d:%02d", i / 60, i % 60));
+                        medicalService.confirmPayment(confirm);
+                    }
+                }
+            }));
+            for (int t = 0; t < 3; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 300; i++) {
+                        patientHistoryCache.getChargeRecords(
+                                identityCard(ThreadLocalRandom.current().nextInt(PATIENTS)));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(patientHistoryCache.stats().getHitCount()).isPositive();
+        for (int i = 0; i < PATIENTS; i++) {
+            String identityCard = identityCard(i);
+            List<ChargeRecord> cached = patientHistoryCache.getChargeRecords(identityCard);
+            if (cached == null) {
+                continue;
+            }
+            List<ChargeRecord> stored = chargeRecordRepository.findByIdentityCardNumberOrderByCreateTimeDesc(
+                    identityCard, Pageable.unpaged());
+            // 同一毫秒创建的记录先后顺序不确定，按ID比对状态和版本
+            assertThat(snapshot(cached)).as(identityCard).isEqualTo(snapshot(stored));
+        }
+    }
+
+    @Test
+    void returnedRecordsDoNotShareState() {
+        String identityCard = identityCard(0);
+        medicalService.handleChargeButtonClick(MedicalTestData.chargeButtonClickRequest(identityCard));
+
+        List<ChargeRecord> first = patientHistoryCache.getChargeRecords(identityCard);
+        first.get(0).setStatus("TAMPERED");
+        List<ChargeRecord> loaded = patientHistoryCache.getChargeRecords(identityCard);
+        loaded.get(0).setStatus("TAMPERED");
+
+        assertThat(patientHistoryCache.getChargeRecords(identityCard))
+                .extracting(ChargeRecord::getStatus).containsExactly("PENDING");
+    }
+
+    private static Map<String, String> snapshot(List<ChargeRecord> records) {
+        Map<String, String> snapshot = new HashMap<>();
+        for (ChargeRecord record : records) {
+            snapshot.put(record.getId(), record.getStatus() + "@" + record.getVersion());
+        }
+        return snapshot;
+    }
+
+    private static String identityCard(int patient) {
+        return String.format("1101011980%08d", patient);
+    }
+}
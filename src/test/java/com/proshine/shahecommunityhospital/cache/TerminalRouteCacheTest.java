@@ -0,0 +1,81 @@
+package com.proshine.shahecommunityhospital.cache;
+
+import com.proshine.shahecommunityhospital.repository.TbTerminalRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 终端路由缓存：同一窗口并发未命中只查库一次，查库期间其他窗口的读取不被阻塞
+ *
+ * @author lenovo
+ */
+class TerminalRouteCacheTest {
+
+    private static final int THREADS = 4;
+
+    private final TbTerminalRepository tbTerminalRepository = mock(TbTerminalRepository.class);
+
+    private final TerminalRouteCache terminalRouteCache = new TerminalRouteCache(tbTerminalRepository, 16, 300);
+
+    @Test
+    void slowLoadBlocksOnlyCallersOfTheSameWindow() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(tbTerminalRepository.findTerminalIdsByExtraId2("W1")).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return Collections.singletonList("T1");
+        });
+        when(tbTerminalRepository.findTerminalIdsByExtraId2("W2")).thenReturn(Collections.singletonList("T2"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            futures.add(executor.submit(() -> terminalRouteCache.getTerminalIds("W1")));
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+            for (int i = 1; i < THREADS; i++) {
+                futures.add(executor.submit(() -> terminalRouteCache.getTerminalIds("W1")));
+            }
+
+            // W1 仍在查库，W2 直接加载返回
+            assertThat(terminalRouteCache.getTerminalIds("W2")).containsExactly("T2");
+            assertThat(futures).noneMatch(Future::isDone);
+
+            release.countDown();
+            for (Future<List<String>> future : futures) {
+                assertThat(future.get(5, TimeUnit.SECONDS)).containsExactly("T1");
+            }
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+        verify(tbTerminalRepository, times(1)).findTerminalIdsByExtraId2("W1");
+        assertThat(terminalRouteCache.stats().getLoadCount()).isEqualTo(2);
+    }
+
+    @Test
+    void failedLoadIsNotCached() {
+        when(tbTerminalRepository.findTerminalIdsByExtraId2("W1"))
+                .thenThrow(new IllegalStateException("db down"))
+                .thenReturn(Collections.singletonList("T1"));
+
+        assertThatThrownBy(() -> terminalRouteCache.getTerminalIds("W1")).isInstanceOf(IllegalStateException.class);
+
+        assertThat(terminalRouteCache.getTerminalIds("W1")).containsExactly("T1");
+    }
+}
@@ -0,0 +1,38 @@
+package com.proshine.shahecommunityhospital.config.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 计时标签：客户端传入的医院ID不会产生无限多的标签值
+ *
+ * @author lenovo
+ */
+class MedicalMetricsAspectTest {
+
+    @Test
+    void mapsUnknownAddressesToOther() {
+        MedicalMetricsAspect aspect = new MedicalMetricsAspect(new SimpleMeterRegistry(),
+                new String[]{"A001", " A002 "}, 50);
+
+        assertThat(aspect.addressTag("A001")).isEqualTo("A001");
+        assertThat(aspect.addressTag("A002")).isEqualTo("A002");
+        assertThat(aspect.addressTag("X999")).isEqualTo(MedicalMetricsAspect.OTHER);
+    }
+
+    @Test
+    void capsDistinctAddressesWhenNoneConfigured() {
+        MedicalMetricsAspect aspect = new MedicalMetricsAspect(new SimpleMeterRegistry(), new String[0], 3);
+
+        for (int i = 0; i < 1000; i++) {
+            aspect.addressTag("A" + i);
+        }
+
+        assertThat(aspect.addressTag("A0")).isEqualTo("A0");
+        assertThat(aspect.addressTag("A2")).isEqualTo("A2");
+        assertThat(aspect.addressTag("A3")).isEqualTo(MedicalMetricsAspect.OTHER);
+        assertThat(aspect.addressTag("A999")).isEqualTo(MedicalMetricsAspect.OTHER);
+    }
+}
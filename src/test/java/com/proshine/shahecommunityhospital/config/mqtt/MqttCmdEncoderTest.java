@@ -0,0 +1,62 @@
+package com.proshine.shahecommunityhospital.config.mqtt;
+
+import com.alibaba.fastjson.JSON;
+import com.proshine.shahecommunityhospital.service.MedicalBatchService;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 指令编码：输出与 fastjson 序列化 MqttCmd 逐字节一致
+ *
+ * @author lenovo
+ */
+class MqttCmdEncoderTest {
+
+    private static final String[] OPERATIONS = {
+            MedicalBatchService.CHARGE_BUTTON_CLICK,
+            MedicalBatchService.CONFIRM_PAYMENT,
+            MedicalBatchService.REFUND_BUTTON_CLICK,
+            MedicalBatchService.CONFIRM_REFUND
+    };
+
+    private static final long[] SEQS = {0L, 1L, 9L, 10L, 1716171330000L, Long.MAX_VALUE, -1L, Long.MIN_VALUE};
+
+    private final MqttCmdEncoder encoder = new MqttCmdEncoder();
+
+    @Test
+    void matchesFastjsonForEveryOperation() {
+        for (String operation : OPERATIONS) {
+            for (long seq : SEQS) {
+                assertEquivalent(MqttCommandPublisher.SERVICE_MEDICAL, operation, seq);
+            }
+        }
+    }
+
+    @Test
+    void matchesFastjsonEscaping() {
+        String[] values = {"", "引号\"与反斜杠\\", "换行\n回车\r制表\t", "\u0001\u001f\u007f", "</script>",
+                "收费确认", "emoji 😀", "'单引号'"};
+        for (String value : values) {
+            assertEquivalent(value, MedicalBatchService.CONFIRM_PAYMENT, 1L);
+            assertEquivalent(MqttCommandPublisher.SERVICE_MEDICAL, value, 1L);
+        }
+    }
+
+    @Test
+    void cachedTemplateMatchesFirstEncoding() {
+        for (int i = 0; i < 3; i++) {
+            assertEquivalent(MqttCommandPublisher.SERVICE_MEDICAL, MedicalBatchService.CONFIRM_REFUND, 42L + i);
+        }
+    }
+
+    private void assertEquivalent(String service, String operation, long seq) {
+        String encoded = new String(encoder.encode(service, operation, seq), StandardCharsets.UTF_8);
+        String id = JSON.parseObject(encoded).getString("id");
+        assertThat(id).hasSize(32).matches("[0-9a-f]{32}");
+        String expected = JSON.toJSONString(new MqttCmd(id, service, operation, seq, null));
+        assertThat(encoded).as("service=%s, operation=%s, seq=%d", service, operation, seq).isEqualTo(expected);
+    }
+}
@@ -0,0 +1,98 @@
+package com.proshine.shahecommunityhospital.controller;
+
+import com.alibaba.fastjson.JSON;
+import com.proshine.shahecommunityhospital.MedicalTestData;
+import com.proshine.shahecommunityhospital.repository.ChargeRecordRepository;
+import com.proshine.shahecommunityhospital.repository.MedicalDailyRollupRepository;
+import com.proshine.shahecommunityhospital.repository.MqttOutboxRepository;
+import com.proshine.shahecommunityhospital.service.MedicalService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.reset;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * 收费接口：未启用异步执行时在请求线程内完成，返回已完成的结果；并发确认冲突返回409且可重试
+ *
+ * @author lenovo
+ */
+@SpringBootTest(properties = "medical.async.enabled=false")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class MedicalControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ChargeRecordRepository chargeRecordRepository;
+
+    @Autowired
+    private MedicalDailyRollupRepository medicalDailyRollupRepository;
+
+    @Autowired
+    private MqttOutboxRepository mqttOutboxRepository;
+
+    @SpyBean
+    private MedicalService medicalService;
+
+    @AfterEach
+    void cleanUp() {
+        chargeRecordRepository.deleteAllInBatch();
+        medicalDailyRollupRepository.deleteAllInBatch();
+        mqttOutboxRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void completesInRequestThreadWhenAsyncDisabled() throws Exception {
+        String body = JSON.toJSONString(MedicalTestData.chargeButtonClickRequest("110101198001010001"));
+
+        perform("/thirdpart/medical/chargeButtonClick", body).andExpect(jsonPath("$.code").value(200));
+        // 重复请求同样直接返回
+        perform("/thirdpart/medical/chargeButtonClick", body).andExpect(jsonPath("$.code").value(200));
+
+        assertThat(chargeRecordRepository.findAll()).hasSize(1);
+    }
+
+    @Test
+    void respondsConflictWhenConfirmRetriesExhausted() throws Exception {
+        String body = JSON.toJSONString(MedicalTestData.confirmPaymentRequest("110101198001010001"));
+        doThrow(new ConcurrencyFailureException("待确认记录正被其他请求确认，请稍后重试"))
+                .when(medicalService).confirmPayment(any());
+
+        perform("/thirdpart/medical/confirmPayment", body).andExpect(jsonPath("$.code").value(409));
+        // 幂等键已释放，重试正常处理
+        reset(medicalService);
+        perform("/thirdpart/medical/confirmPayment", body).andExpect(jsonPath("$.code").value(200));
+
+        assertThat(chargeRecordRepository.findConfirmedChargeRecords()).hasSize(1);
+    }
+
+    /**
+     * 提交请求并写出结果；返回的结果在请求线程内已完成，无需等待
+     */
+    private ResultActions perform(String path, String body) throws Exception {
+        MvcResult result = mockMvc.perform(post(path).contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertThat(result.getAsyncResult(0)).isNotNull();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+}
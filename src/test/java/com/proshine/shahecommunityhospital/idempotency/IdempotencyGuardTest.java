@@ -0,0 +1,28 @@
+package com.proshine.shahecommunityhospital.idempotency;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 幂等键日志脱敏：键中不出现完整身份证号
+ *
+ * @author lenovo
+ */
+class IdempotencyGuardTest {
+
+    @Test
+    void masksIdentityCardInKey() {
+        String key = IdempotencyGuard.key("confirmPayment", null, "W1", "110101198001011234", "2024-05-20 10:15:30");
+
+        assertThat(IdempotencyGuard.maskKey(key))
+                .isEqualTo("confirmPayment|W1|110***********1234|2024-05-20 10:15:30");
+    }
+
+    @Test
+    void keepsRequestIdKey() {
+        String key = IdempotencyGuard.key("confirmPayment", "req-1", "W1", "110101198001011234", "2024-05-20");
+
+        assertThat(IdempotencyGuard.maskKey(key)).isEqualTo("confirmPayment#req-1");
+    }
+}
@@ -0,0 +1,24 @@
+package com.proshine.shahecommunityhospital.idempotency;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 共享幂等键：表中只保存定长摘要，不出现身份证号原文
+ *
+ * @author lenovo
+ */
+class JdbcIdempotencyStoreTest {
+
+    @Test
+    void storesDigestInsteadOfKey() {
+        String key = IdempotencyGuard.key("confirmPayment", null, "W1", "110101198001011234", "2024-05-20 10:15:30");
+
+        String stored = JdbcIdempotencyStore.storageKey(key);
+
+        assertThat(stored).hasSize(64).matches("[0-9a-f]+").doesNotContain("110101198001011234");
+        assertThat(JdbcIdempotencyStore.storageKey(key)).isEqualTo(stored);
+        assertThat(JdbcIdempotencyStore.storageKey(key + " ")).isNotEqualTo(stored);
+    }
+}
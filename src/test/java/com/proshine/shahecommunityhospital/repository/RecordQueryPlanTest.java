@@ -0,0 +1,107 @@
+package com.proshine.shahecommunityhospital.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 收费/退费Repository查询的执行计划校验
+ * 调用业务代码实际使用的Repository方法，记录Hibernate生成的SQL，逐条 EXPLAIN，
+ * 校验记录表均经由索引访问（H2执行计划中不出现 tableScan）
+ *
+ * @author lenovo
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.proshine.shahecommunityhospital.repository.RecordingStatementInspector")
+@ActiveProfiles("test")
+class RecordQueryPlanTest {
+
+    private static final String CARD = "110101198001010000";
+
+    @Autowired
+    private ChargeRecordRepository chargeRecordRepository;
+
+    @Autowired
+    private RefundRecordRepository refundRecordRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void chargeRecordQueriesUseIndexes() {
+        Map<String, Runnable> queries = new LinkedHashMap<>();
+        queries.put("findFirstByIdentityCardNumberAndStatusAndWindowIdOrderByCreateTimeDesc", () -> chargeRecordRepository
+                .findFirstByIdentityCardNumberAndStatusAndWindowIdOrderByCreateTimeDesc(CARD, "PENDING", "W01"));
+        queries.put("findByIdentityCardNumberOrderByCreateTimeDesc", () -> chargeRecordRepository
+                .findByIdentityCardNumberOrderByCreateTimeDesc(CARD, PageRequest.of(0, 20)));
+        queries.put("findPendingChargeRecords", () -> chargeRecordRepository.findPendingChargeRecords());
+        queries.put("findByAddressId", () -> chargeRecordRepository.findByAddressId("A001"));
+        queries.put("findPageByAddressId", () -> chargeRecordRepository
+                .findPageByAddressId("A001", 0L, 1L, 1L, "id", PageRequest.of(0, 20)));
+        queries.put("findPageByCreateTimeBetween", () -> chargeRecordRepository
+                .findPageByCreateTimeBetween(0L, 1L, 1L, "id", PageRequest.of(0, 20)));
+        queries.put("findByOperateTimestampBetween", () -> chargeRecordRepository.findByOperateTimestampBetween(0L, 1L));
+        queries.put("streamByStatus", () -> drain(chargeRecordRepository.streamByStatus("CONFIRMED")));
+
+        assertThat(fullScans("tb_charge_record", queries)).isEmpty();
+    }
+
+    @Test
+    void refundRecordQueriesUseIndexes() {
+        Map<String, Runnable> queries = new LinkedHashMap<>();
+        queries.put("findFirstByIdentityCardNumberAndStatusAndWindowIdOrderByCreateTimeDesc", () -> refundRecordRepository
+                .findFirstByIdentityCardNumberAndStatusAndWindowIdOrderByCreateTimeDesc(CARD, "PENDING", "W02"));
+        queries.put("findByIdentityCardNumberOrderByCreateTimeDesc", () -> refundRecordRepository
+                .findByIdentityCardNumberOrderByCreateTimeDesc(CARD, PageRequest.of(0, 20)));
+        queries.put("findPendingRefundRecords", () -> refundRecordRepository.findPendingRefundRecords());
+        queries.put("findByAddressId", () -> refundRecordRepository.findByAddressId("A001"));
+        queries.put("findPageByAddressId", () -> refundRecordRepository
+                .findPageByAddressId("A001", 0L, 1L, 1L, "id", PageRequest.of(0, 20)));
+        queries.put("findPageByCreateTimeBetween", () -> refundRecordRepository
+                .findPageByCreateTimeBetween(0L, 1L, 1L, "id", PageRequest.of(0, 20)));
+        queries.put("findByOperateTimestampBetween", () -> refundRecordRepository.findByOperateTimestampBetween(0L, 1L));
+        queries.put("streamByStatus", () -> drain(refundRecordRepository.streamByStatus("CONFIRMED")));
+
+        assertThat(fullScans("tb_refund_record", queries)).isEmpty();
+    }
+
+    /**
+     * 逐个执行查询并 EXPLAIN 其SQL，返回对指定表全表扫描的查询
+     */
+    private List<String> fullScans(String table, Map<String, Runnable> queries) {
+        List<String> violations = new ArrayList<>();
+        for (Map.Entry<String, Runnable> query : queries.entrySet()) {
+            List<String> statements = RecordingStatementInspector.capture(
+                    () -> transactionTemplate.executeWithoutResult(status -> query.getValue().run()));
+            assertThat(statements).as(query.getKey()).isNotEmpty();
+            for (String sql : statements) {
+                String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+                if (plan.contains(table + ".tableScan")) {
+                    violations.add(query.getKey() + " 全表扫描: " + sql);
+                }
+            }
+        }
+        return violations;
+    }
+
+    private static void drain(Stream<?> stream) {
+        try (Stream<?> records = stream) {
+            records.forEach(record -> { });
+        }
+    }
+}
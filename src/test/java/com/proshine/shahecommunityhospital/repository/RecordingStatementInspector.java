@@ -0,0 +1,38 @@
+package com.proshine.shahecommunityhospital.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 记录Hibernate实际发出的SQL，供执行计划校验使用
+ * 通过 spring.jpa.properties.hibernate.session_factory.statement_inspector 注册
+ *
+ * @author lenovo
+ */
+public class RecordingStatementInspector implements StatementInspector {
+
+    private static final List<String> STATEMENTS = new ArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        synchronized (STATEMENTS) {
+            STATEMENTS.add(sql);
+        }
+        return sql;
+    }
+
+    /**
+     * 执行操作并返回其间发出的SQL
+     */
+    public static List<String> capture(Runnable action) {
+        synchronized (STATEMENTS) {
+            STATEMENTS.clear();
+        }
+        action.run();
+        synchronized (STATEMENTS) {
+            return new ArrayList<>(STATEMENTS);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.proshine.shahecommunityhospital.service;
+
+import com.proshine.shahecommunityhospital.dto.MedicalBatchEvent;
+import com.proshine.shahecommunityhospital.dto.MedicalBatchItemResult;
+import com.proshine.shahecommunityhospital.dto.MedicalBatchRequest;
+import com.proshine.shahecommunityhospital.dto.MedicalRollupSummary;
+import com.proshine.shahecommunityhospital.repository.ChargeRecordRepository;
+import com.proshine.shahecommunityhospital.repository.MedicalDailyRollupRepository;
+import com.proshine.shahecommunityhospital.repository.MqttOutboxRepository;
+import com.proshine.shahecommunityhospital.repository.RefundRecordRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doCallRealMethod;
+
+/**
+ * 批量上报：按顺序处理点击与确认，查找待确认记录不逐条flush，汇总按操作时间归属；
+ * 整批回滚后幂等键已释放，重新上报正常处理；带请求id的事件按请求id判重
+ *
+ * @author lenovo
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class MedicalBatchServiceTest {
+
+    private static final int PATIENTS = 60;
+
+    @Autowired
+    private MedicalBatchService medicalBatchService;
+
+    @Autowired
+    private MedicalRollupService medicalRollupService;
+
+    @Autowired
+    private ChargeRecordRepository chargeRecordRepository;
+
+    @Autowired
+    private RefundRecordRepository refundRecordRepository;
+
+    @Autowired
+    private MedicalDailyRollupRepository medicalDailyRollupRepository;
+
+    @Autowired
+    private MqttOutboxRepository mqttOutboxRepository;
+
+    @SpyBean
+    private MqttOutboxService mqttOutboxService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void cleanUp() {
+        chargeRecordRepository.deleteAllInBatch();
+        refundRecordRepository.deleteAllInBatch();
+        medicalDailyRollupRepository.deleteAllInBatch();
+        mqttOutboxRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void confirmsPendingRecordsWithoutFlushingPerEvent() {
+        List<MedicalBatchEvent> events = new ArrayList<>();
+        for (int i = 0; i < PATIENTS; i++) {
+            String identityCard = String.format("1101011980%08d", i);
+            events.add(event(MedicalBatchService.CHARGE_BUTTON_CLICK, identityCard, "2024-05-18 09:00:00"));
+            events.add(event(MedicalBatchService.CONFIRM_PAYMENT, identityCard, "2024-05-18 09:01:00"));
+        }
+        // 同一患者先后两次点击再两次确认：各确认最新的一条待确认记录，不新增记录
+        String repeated = "110101198009999999";
+        events.add(event(MedicalBatchService.CHARGE_BUTTON_CLICK, repeated, "2024-05-18 10:00:00"));
+        events.add(event(MedicalBatchService.CHARGE_BUTTON_CLICK, repeated, "2024-05-18 10:00:30"));
+        events.add(event(MedicalBatchService.CONFIRM_PAYMENT, repeated, "2024-05-18 10:01:00"));
+        events.add(event(MedicalBatchService.CONFIRM_PAYMENT, repeated, "2024-05-18 10:01:30"));
+        MedicalBatchRequest request = new MedicalBatchRequest();
+        request.setEvents(events);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        List<MedicalBatchItemResult> results = medicalBatchService.process(request);
+        long flushCount = statistics.getFlushCount();
+
+        assertThat(results).allMatch(MedicalBatchItemResult::isSuccess);
+        assertThat(chargeRecordRepository.findAll()).hasSize(PATIENTS + 2)
+                .allMatch(record -> "CONFIRMED".equals(record.getStatus()));
+        // 每 batch_size 条一次加上提交时一次，而不是每条确认前一次
+        assertThat(flushCount).isLessThan(PATIENTS / 4);
+
+        MedicalRollupSummary summary = medicalRollupService.summarize("A001", null, 20240518, 20240518);
+        assertThat(summary.getChargeCount()).isEqualTo(PATIENTS + 2);
+    }
+
+    @Test
+    void releasesKeysWhenBatchRollsBackAfterLoop() {
+        String identityCard = "110101198008888888";
+        List<MedicalBatchEvent> events = new ArrayList<>();
+        events.add(event(MedicalBatchService.CHARGE_BUTTON_CLICK, identityCard, "2024-05-18 11:00:00"));
+        events.add(event(MedicalBatchService.CONFIRM_PAYMENT, identityCard, "2024-05-18 11:01:00"));
+        MedicalBatchRequest request = new MedicalBatchRequest();
+        request.setEvents(events);
+
+        // 循环已处理完，批次结束时写发件箱失败；在事务代理内的spy上打桩
+        MqttOutboxService outbox = AopTestUtils.getTargetObject(mqttOutboxService);
+        doAnswer(invocation -> {
+            if (MedicalBatchContext.current() == null) {
+                throw new IllegalStateException("发件箱写入失败");
+            }
+            return invocation.callRealMethod();
+        }).when(outbox).enqueue(anyString(), anyString());
+        assertThatThrownBy(() -> medicalBatchService.process(request)).isInstanceOf(IllegalStateException.class);
+        assertThat(chargeRecordRepository.findAll()).isEmpty();
+
+        doCallRealMethod().when(outbox).enqueue(anyString(), anyString());
+        List<MedicalBatchItemResult> results = medicalBatchService.process(request);
+
+        assertThat(results).allMatch(result -> result.isSuccess() && result.getMessage() == null);
+        assertThat(chargeRecordRepository.findAll()).hasSize(1)
+                .allMatch(record -> "CONFIRMED".equals(record.getStatus()));
+    }
+
+    @Test
+    void skipsEventsWithRepeatedRequestId() {
+        String identityCard = "110101198007777777";
+        List<MedicalBatchEvent> events = new ArrayList<>();
+        events.add(event(MedicalBatchService.CHARGE_BUTTON_CLICK, identityCard, "2024-05-18 12:00:00"));
+        // 客户端重发时操作时间已变化，按请求id仍判为重复
+        events.add(event(MedicalBatchService.CHARGE_BUTTON_CLICK, identityCard, "2024-05-18 12:00:05"));
+        events.forEach(event -> event.setRequestId("batch-req-1"));
+        MedicalBatchRequest request = new MedicalBatchRequest();
+        request.setEvents(events);
+
+        List<MedicalBatchItemResult> results = medicalBatchService.process(request);
+
+        assertThat(results.get(0).getMessage()).isNull();
+        assertThat(results.get(1).getMessage()).isEqualTo("重复事件已忽略");
+        assertThat(chargeRecordRepository.findAll()).hasSize(1);
+    }
+
+    private static MedicalBatchEvent event(String operation, String identityCardNumber, String operateTime) {
+        MedicalBatchEvent event = new MedicalBatchEvent();
+        event.setOperation(operation);
+        event.setAddressId("A001");
+        event.setAddressName("沙河社区医院");
+        event.setWindowId("W01");
+        event.setWindowName("一号收费窗口");
+        event.setName("张三");
+        event.setAge("45");
+        event.setSex("男");
+        event.setReceivable(new BigDecimal("128.50"));
+        event.setPaidUp(new BigDecimal("150.00"));
+        event.setChange(new BigDecimal("21.50"));
+        event.setSocialSecurityNumber("SS" + identityCardNumber);
+        event.setIdentityCardNumber(identityCardNumber);
+        event.setOperator("cashier01");
+        event.setOperateTime(operateTime);
+        return event;
+    }
+}
@@ -0,0 +1,68 @@
+package com.proshine.shahecommunityhospital.service;
+
+import com.proshine.shahecommunityhospital.MedicalTestData;
+import com.proshine.shahecommunityhospital.dto.RecordPageQuery;
+import com.proshine.shahecommunityhospital.entity.ChargeRecord;
+import com.proshine.shahecommunityhospital.mapper.MedicalRecordMapper;
+import com.proshine.shahecommunityhospital.repository.ChargeRecordRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 收费/退费记录导出
+ *
+ * @author lenovo
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class MedicalQueryServiceTest {
+
+    @Autowired
+    private MedicalQueryService medicalQueryService;
+
+    @Autowired
+    private ChargeRecordRepository chargeRecordRepository;
+
+    @Autowired
+    private MedicalRecordMapper medicalRecordMapper;
+
+    @AfterEach
+    void cleanUp() {
+        chargeRecordRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void exportReadsEveryPageOutsideTransactions() {
+        List<ChargeRecord> records = new ArrayList<>();
+        for (int i = 0; i < 1203; i++) {
+            String identityCard = String.format("1101011980%08d", i);
+            ChargeRecord record = medicalRecordMapper.toChargeRecord(MedicalTestData.chargeButtonClickRequest(identityCard));
+            record.setAddressId(i % 3 == 0 ? "A002" : "A001");
+            records.add(record);
+        }
+        chargeRecordRepository.saveAll(records);
+
+        List<String> exported = new ArrayList<>();
+        List<Boolean> inTransaction = new ArrayList<>();
+        RecordPageQuery query = new RecordPageQuery();
+        query.setAddressId("A001");
+        medicalQueryService.exportChargeRecords(query, record -> {
+            exported.add(record.getId());
+            inTransaction.add(TransactionSynchronizationManager.isActualTransactionActive());
+        });
+
+        assertThat(exported).hasSize(802);
+        assertThat(new HashSet<>(exported)).hasSize(802);
+        assertThat(inTransaction).containsOnly(false);
+    }
+}
@@ -0,0 +1,117 @@
+package com.proshine.shahecommunityhospital.service;
+
+import com.proshine.shahecommunityhospital.MedicalTestData;
+import com.proshine.shahecommunityhospital.dto.ConfirmPaymentRequest;
+import com.proshine.shahecommunityhospital.dto.ConfirmRefundRequest;
+import com.proshine.shahecommunityhospital.dto.MedicalRollupSummary;
+import com.proshine.shahecommunityhospital.repository.ChargeRecordRepository;
+import com.proshine.shahecommunityhospital.repository.MedicalDailyRollupRepository;
+import com.proshine.shahecommunityhospital.repository.RefundRecordRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 按日汇总：增量累加与重建结果一致
+ *
+ * @author lenovo
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class MedicalRollupServiceTest {
+
+    @Autowired
+    private MedicalService medicalService;
+
+    @Autowired
+    private MedicalRollupService medicalRollupService;
+
+    @Autowired
+    private ChargeRecordRepository chargeRecordRepository;
+
+    @Autowired
+    private RefundRecordRepository refundRecordRepository;
+
+    @Autowired
+    private MedicalDailyRollupRepository medicalDailyRollupRepository;
+
+    @AfterEach
+    void cleanUp() {
+        chargeRecordRepository.deleteAllInBatch();
+        refundRecordRepository.deleteAllInBatch();
+        medicalDailyRollupRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void incrementalAndRebuildBucketByOperateTime() {
+        String identityCard = "110101198001010001";
+        medicalService.handleChargeButtonClick(MedicalTestData.chargeButtonClickRequest(identityCard));
+        medicalService.confirmPayment(MedicalTestData.confirmPaymentRequest(identityCard));
+        ConfirmRefundRequest refund = MedicalTestData.confirmRefundRequest(identityCard);
+        refund.setOperateTime("2024-05-19 23:59:00");
+        medicalService.confirmRefund(refund);
+
+        assertRolledUp(20240520, 1, 0);
+        assertRolledUp(20240519, 0, 1);
+
+        medicalRollupService.rebuild();
+
+        assertRolledUp(20240520, 1, 0);
+        assertRolledUp(20240519, 0, 1);
+    }
+
+    @Test
+    void rebuildKeepsConcurrentConfirms() throws Exception {
+        medicalService.confirmPayment(MedicalTestData.confirmPaymentRequest("110101198001019999"));
+        AtomicInteger confirmed = new AtomicInteger(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 3; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 30; i++) {
+                        ConfirmPaymentRequest request =
+                                MedicalTestData.confirmPaymentRequest(String.format("11010119800%d%06d", thread, i));
+                        try {
+                            medicalService.confirmPayment(request);
+                            confirmed.incrementAndGet();
+                        } catch (RuntimeException e) {
+                            // 锁等待超时等失败的确认整体回滚，不计入
+                        }
+                    }
+                }));
+            }
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 10; i++) {
+                    medicalRollupService.rebuild();
+                }
+            }));
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(chargeRecordRepository.findConfirmedChargeRecords()).hasSize(confirmed.get());
+        assertRolledUp(20240520, confirmed.get(), 0);
+    }
+
+    private void assertRolledUp(int day, long chargeCount, long refundCount) {
+        MedicalRollupSummary summary = medicalRollupService.summarize("A001", null, day, day);
+        assertThat(summary.getChargeCount()).as("收费笔数 %d", day).isEqualTo(chargeCount);
+        assertThat(summary.getRefundCount()).as("退费笔数 %d", day).isEqualTo(refundCount);
+    }
+}
@@ -0,0 +1,142 @@
+package com.proshine.shahecommunityhospital.service;
+
+import com.proshine.shahecommunityhospital.MedicalTestData;
+import com.proshine.shahecommunityhospital.dto.MedicalRollupSummary;
+import com.proshine.shahecommunityhospital.repository.ChargeRecordRepository;
+import com.proshine.shahecommunityhospital.repository.MedicalDailyRollupRepository;
+import com.proshine.shahecommunityhospital.repository.MqttOutboxRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 确认收费：并发确认同一条待确认记录只确认一次；并发确认同一窗口同一患者时，已确认记录数与按日汇总一致
+ *
+ * @author lenovo
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class MedicalServiceTest {
+
+    private static final String IDENTITY_CARD = "110101198001010001";
+
+    private static final int PENDING = 20;
+
+    private static final int THREADS = 8;
+
+    private static final int CONFIRMS_PER_THREAD = 10;
+
+    @Autowired
+    private MedicalService medicalService;
+
+    @Autowired
+    private MedicalRollupService medicalRollupService;
+
+    @Autowired
+    private ChargeRecordRepository chargeRecordRepository;
+
+    @Autowired
+    private MedicalDailyRollupRepository medicalDailyRollupRepository;
+
+    @Autowired
+    private MqttOutboxRepository mqttOutboxRepository;
+
+    @AfterEach
+    void cleanUp() {
+        chargeRecordRepository.deleteAllInBatch();
+        medicalDailyRollupRepository.deleteAllInBatch();
+        mqttOutboxRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void concurrentConfirmsOfOnePendingRecordConfirmItOnce() throws Exception {
+        medicalService.handleChargeButtonClick(MedicalTestData.chargeButtonClickRequest(IDENTITY_CARD));
+        long duplicatesBefore = medicalService.stats().getDuplicateCount();
+
+        Outcome outcome = confirmConcurrently(THREADS, 1);
+
+        assertThat(outcome.conflicted.get()).isZero();
+        assertThat(outcome.succeeded.get()).isEqualTo(THREADS);
+        assertThat(chargeRecordRepository.count()).isEqualTo(1);
+        assertThat(chargeRecordRepository.findConfirmedChargeRecords()).hasSize(1);
+        assertRolledUp(1);
+        assertThat(medicalService.stats().getDuplicateCount() - duplicatesBefore).isEqualTo(THREADS - 1);
+    }
+
+    @Test
+    void concurrentConfirmsMatchRecordsAndRollup() throws Exception {
+        for (int i = 0; i < PENDING; i++) {
+            medicalService.handleChargeButtonClick(MedicalTestData.chargeButtonClickRequest(IDENTITY_CARD));
+        }
+        long conflictsBefore = medicalService.stats().getConflictCount();
+        long duplicatesBefore = medicalService.stats().getDuplicateCount();
+
+        Outcome outcome = confirmConcurrently(THREADS, CONFIRMS_PER_THREAD);
+
+        long duplicates = medicalService.stats().getDuplicateCount() - duplicatesBefore;
+        long confirmed = outcome.succeeded.get() - duplicates;
+        assertThat(outcome.succeeded.get() + outcome.conflicted.get()).isEqualTo(THREADS * CONFIRMS_PER_THREAD);
+        assertThat(chargeRecordRepository.findConfirmedChargeRecords()).hasSize((int) confirmed);
+        assertRolledUp(confirmed);
+        // 重复确认不新建记录：新建的确认记录只在待确认记录全部确认之后出现
+        assertThat(chargeRecordRepository.count()).isEqualTo(Math.max(PENDING, confirmed));
+        assertThat(medicalService.stats().getConflictCount()).isGreaterThan(conflictsBefore);
+    }
+
+    private Outcome confirmConcurrently(int threads, int confirmsPerThread) throws Exception {
+        Outcome outcome = new Outcome();
+        CountDownLatch ready = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    ready.await();
+                    for (int i = 0; i < confirmsPerThread; i++) {
+                        try {
+                            medicalService.confirmPayment(MedicalTestData.confirmPaymentRequest(IDENTITY_CARD));
+                            outcome.succeeded.incrementAndGet();
+                        } catch (ConcurrencyFailureException e) {
+                            // 重试耗尽的确认整体回滚，不计入
+                            outcome.conflicted.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            ready.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return outcome;
+    }
+
+    private void assertRolledUp(long chargeCount) {
+        MedicalRollupSummary summary = medicalRollupService.summarize("A001", null, 20240520, 20240520);
+        assertThat(summary.getChargeCount()).isEqualTo(chargeCount);
+        assertThat(summary.getPaidUp()).isEqualByComparingTo(
+                new BigDecimal("150.00").multiply(BigDecimal.valueOf(chargeCount)));
+    }
+
+    private static final class Outcome {
+        private final AtomicInteger succeeded = new AtomicInteger();
+        private final AtomicInteger conflicted = new AtomicInteger();
+    }
+}
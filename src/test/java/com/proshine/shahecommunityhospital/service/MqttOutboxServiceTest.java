@@ -0,0 +1,79 @@
+package com.proshine.shahecommunityhospital.service;
+
+import com.proshine.shahecommunityhospital.config.mqtt.MqttNotificationDispatcher;
+import com.proshine.shahecommunityhospital.entity.MqttOutbox;
+import com.proshine.shahecommunityhospital.repository.MqttOutboxRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 发件箱：指令序号按事务提交顺序分配，未发送成功的序号写入发件箱供补发沿用
+ *
+ * @author lenovo
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class MqttOutboxServiceTest {
+
+    @Autowired
+    private MqttOutboxService mqttOutboxService;
+
+    @Autowired
+    private MqttOutboxRepository mqttOutboxRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private MqttNotificationDispatcher mqttNotificationDispatcher;
+
+    @AfterEach
+    void cleanUp() {
+        mqttOutboxRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void assignsSeqInCommitOrder() {
+        // 先入队的事务后提交
+        TransactionStatus first = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        mqttOutboxService.enqueue("W01", "CHARGE_BUTTON_CLICK");
+        DefaultTransactionDefinition requiresNew = new DefaultTransactionDefinition();
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        TransactionStatus second = transactionManager.getTransaction(requiresNew);
+        mqttOutboxService.enqueue("W01", "CONFIRM_PAYMENT");
+        transactionManager.commit(second);
+        transactionManager.commit(first);
+
+        ArgumentCaptor<String> operations = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Long> seqs = ArgumentCaptor.forClass(Long.class);
+        verify(mqttNotificationDispatcher, times(2)).dispatch(eq("W01"), operations.capture(), seqs.capture(),
+                any(Runnable.class));
+        assertThat(operations.getAllValues()).containsExactly("CONFIRM_PAYMENT", "CHARGE_BUTTON_CLICK");
+        assertThat(seqs.getAllValues().get(1)).isGreaterThan(seqs.getAllValues().get(0));
+
+        // 分发器未回调发送成功，中继把提交时分配的序号写入发件箱
+        mqttOutboxService.relay();
+        Map<String, Long> stored = mqttOutboxRepository.findAll().stream()
+                .collect(Collectors.toMap(MqttOutbox::getOperation, MqttOutbox::getSeq));
+        assertThat(stored).containsEntry("CONFIRM_PAYMENT", seqs.getAllValues().get(0))
+                .containsEntry("CHARGE_BUTTON_CLICK", seqs.getAllValues().get(1));
+    }
+}
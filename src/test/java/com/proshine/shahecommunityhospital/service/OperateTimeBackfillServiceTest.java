@@ -0,0 +1,77 @@
+package com.proshine.shahecommunityhospital.service;
+
+import com.proshine.shahecommunityhospital.MedicalTestData;
+import com.proshine.shahecommunityhospital.cache.PatientHistoryCache;
+import com.proshine.shahecommunityhospital.dto.ChargeButtonClickRequest;
+import com.proshine.shahecommunityhospital.entity.ChargeRecord;
+import com.proshine.shahecommunityhospital.repository.ChargeRecordRepository;
+import com.proshine.shahecommunityhospital.repository.MqttOutboxRepository;
+import com.proshine.shahecommunityhospital.utils.OperateTimeParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 操作时间戳回填：无法识别的操作时间按创建时间回填，回填后患者记录缓存不返回旧值
+ *
+ * @author lenovo
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class OperateTimeBackfillServiceTest {
+
+    @Autowired
+    private OperateTimeBackfillService operateTimeBackfillService;
+
+    @Autowired
+    private MedicalService medicalService;
+
+    @Autowired
+    private PatientHistoryCache patientHistoryCache;
+
+    @Autowired
+    private ChargeRecordRepository chargeRecordRepository;
+
+    @Autowired
+    private MqttOutboxRepository mqttOutboxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        chargeRecordRepository.deleteAllInBatch();
+        mqttOutboxRepository.deleteAllInBatch();
+        patientHistoryCache.invalidateAll();
+    }
+
+    @Test
+    void backfillsUnparsedRowsAndRefreshesCache() {
+        String identityCard = "110101198001010001";
+        medicalService.handleChargeButtonClick(MedicalTestData.chargeButtonClickRequest(identityCard));
+        ChargeButtonClickRequest unparsed = MedicalTestData.chargeButtonClickRequest(identityCard);
+        unparsed.setOperateTime("昨天上午");
+        medicalService.handleChargeButtonClick(unparsed);
+        // 模拟新增列之前写入的记录
+        jdbcTemplate.update("UPDATE tb_charge_record SET operate_timestamp = NULL, age_years = NULL");
+        assertThat(patientHistoryCache.getChargeRecords(identityCard))
+                .allMatch(record -> record.getOperateTimestamp() == null);
+
+        assertThat(operateTimeBackfillService.backfill()).isEqualTo(2);
+
+        List<ChargeRecord> cached = patientHistoryCache.getChargeRecords(identityCard);
+        assertThat(cached).hasSize(2).allMatch(record -> record.getAgeYears() == 45);
+        for (ChargeRecord record : cached) {
+            long expected = "昨天上午".equals(record.getOperateTime()) ? record.getCreateTime()
+                    : OperateTimeParser.parse(record.getOperateTime());
+            assertThat(record.getOperateTimestamp()).as(record.getOperateTime()).isEqualTo(expected);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.proshine.shahecommunityhospital.service;
+
+import com.proshine.shahecommunityhospital.dto.PendingFeedRecord;
+import com.proshine.shahecommunityhospital.entity.ChargeRecord;
+import com.proshine.shahecommunityhospital.event.MedicalRecordChangedEvent;
+import com.proshine.shahecommunityhospital.repository.ChargeRecordRepository;
+import com.proshine.shahecommunityhospital.repository.RefundRecordRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 待确认记录推送：推送内容脱敏，集合不因任意医院ID或遗留的待确认记录无限增长，接收过慢的订阅者被断开
+ *
+ * @author lenovo
+ */
+class PendingFeedServiceTest {
+
+    private static final long MAX_PENDING_AGE_MILLIS = 60_000L;
+
+    private static final int MAX_QUEUED_EVENTS = 4;
+
+    private final ChargeRecordRepository chargeRecordRepository = mock(ChargeRecordRepository.class);
+
+    private final RefundRecordRepository refundRecordRepository = mock(RefundRecordRepository.class);
+
+    private final PendingFeedService pendingFeedService = new PendingFeedService(chargeRecordRepository,
+            refundRecordRepository, 1_800_000L, 10, MAX_QUEUED_EVENTS, 10_000L, 1, MAX_PENDING_AGE_MILLIS);
+
+    @AfterEach
+    void stop() {
+        pendingFeedService.stop();
+    }
+
+    @Test
+    void skipsAbandonedRecordsOnStartAndEvictsThemLater() {
+        long now = System.currentTimeMillis();
+        when(chargeRecordRepository.findPendingChargeRecords()).thenReturn(Arrays.asList(
+                charge("c1", "A", "PENDING", now), charge("c2", "A", "PENDING", now - 2 * MAX_PENDING_AGE_MILLIS)));
+        when(refundRecordRepository.findPendingRefundRecords()).thenReturn(Collections.emptyList());
+        pendingFeedService.start();
+        assertThat(pendingFeedService.stats().getPendingChargeCount()).isEqualTo(1);
+
+        pendingFeedService.onRecordChanged(MedicalRecordChangedEvent.of(
+                charge("c3", "B", "PENDING", now - 2 * MAX_PENDING_AGE_MILLIS)));
+        assertThat(pendingFeedService.stats().getFeedCount()).isEqualTo(2);
+
+        pendingFeedService.evictExpired();
+
+        assertThat(pendingFeedService.stats().getPendingChargeCount()).isEqualTo(1);
+        assertThat(pendingFeedService.stats().getFeedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void doesNotKeepFeedsForUnknownAddresses() {
+        startEmpty();
+        long now = System.currentTimeMillis();
+
+        pendingFeedService.onRecordChanged(MedicalRecordChangedEvent.of(charge("c1", "unknown", "CONFIRMED", now)));
+        assertThat(pendingFeedService.stats().getFeedCount()).isZero();
+
+        pendingFeedService.onRecordChanged(MedicalRecordChangedEvent.of(charge("c2", "A", "PENDING", now)));
+        pendingFeedService.onRecordChanged(MedicalRecordChangedEvent.of(charge("c2", "A", "CONFIRMED", now)));
+        assertThat(pendingFeedService.stats().getFeedCount()).isZero();
+    }
+
+    @Test
+    void dropsSubscriberWhoseQueueIsFull() throws Exception {
+        startEmpty();
+        // 占住唯一的发送线程，模拟订阅者接收过慢
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService sender = (ExecutorService) ReflectionTestUtils.getField(pendingFeedService, "sender");
+        sender.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        pendingFeedService.subscribe("A");
+        assertThat(pendingFeedService.stats().getSubscriberCount()).isEqualTo(1);
+
+        // 快照已占一个位置
+        for (int i = 0; i < MAX_QUEUED_EVENTS; i++) {
+            pendingFeedService.heartbeat();
+        }
+
+        assertThat(pendingFeedService.stats().getSubscriberCount()).isZero();
+        assertThat(pendingFeedService.stats().getDroppedCount()).isEqualTo(1);
+        release.countDown();
+    }
+
+    @Test
+    void masksPatientIdentity() {
+        startEmpty();
+        ChargeRecord charge = charge("c1", "A", "PENDING", System.currentTimeMillis());
+
+        PendingFeedRecord record = PendingFeedRecord.of(charge);
+
+        assertThat(record.getIdentityCardNumber()).isEqualTo("110***********1234");
+        assertThat(record.getSocialSecurityNumber()).isEqualTo("******5678");
+        assertThat(record.getName()).isEqualTo("张**");
+        assertThat(record.getAmount()).isEqualByComparingTo("100.00");
+    }
+
+    private void startEmpty() {
+        when(chargeRecordRepository.findPendingChargeRecords()).thenReturn(Collections.emptyList());
+        when(refundRecordRepository.findPendingRefundRecords()).thenReturn(Collections.emptyList());
+        pendingFeedService.start();
+    }
+
+    private static ChargeRecord charge(String id, String addressId, String status, long createTime) {
+        ChargeRecord record = new ChargeRecord();
+        record.setId(id);
+        record.setAddressId(addressId);
+        record.setWindowId("W1");
+        record.setName("张三丰");
+        record.setSocialSecurityNumber("SS12345678");
+        record.setIdentityCardNumber("110101198001011234");
+        record.setReceivable(new BigDecimal("100.00"));
+        record.setPaidUp(new BigDecimal("100.00"));
+        record.setStatus(status);
+        record.setCreateTime(createTime);
+        return record;
+    }
+}
@@ -0,0 +1,123 @@
+package com.proshine.shahecommunityhospital.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 操作时间解析：各支持格式的结果与 java.time 换算一致
+ *
+ * @author lenovo
+ */
+class OperateTimeParserTest {
+
+    private static final String[] PATTERNS = {
+            "yyyy-MM-dd HH:mm:ss",
+            "yyyy/MM/dd HH:mm:ss",
+            "yyyy.MM.dd'T'HH:mm:ss",
+            "yyyy-M-d H:m:s",
+            "yyyy-MM-dd HH:mm",
+            "yyyy-MM-dd",
+            "yyyy-MM-dd HH:mm:ss.SSS",
+            "yyyyMMddHHmmss",
+            "yyyyMMddHHmm",
+            "yyyyMMdd"
+    };
+
+    private static final String[] ZONES = {"GMT+8", "UTC", "Asia/Shanghai", "America/New_York", "Asia/Kolkata"};
+
+    @AfterEach
+    void restoreZone() {
+        OperateTimeParser.setZone(ZoneId.of("GMT+8"));
+    }
+
+    @Test
+    void matchesJavaTimeForRandomDates() {
+        Random random = new Random(20240520L);
+        for (String zone : ZONES) {
+            ZoneId zoneId = ZoneId.of(zone);
+            OperateTimeParser.setZone(zoneId);
+            for (int i = 0; i < 2000; i++) {
+                // 1970-01-02 至 2199 年，跨闰年、世纪年和夏令时切换
+                long epochSecond = 86400L + (long) (random.nextDouble() * 7_000_000_000L);
+                LocalDateTime local = LocalDateTime.ofEpochSecond(epochSecond, random.nextInt(1000) * 1_000_000,
+                        ZoneOffset.UTC);
+                for (String pattern : PATTERNS) {
+                    assertMatches(local, pattern, zoneId);
+                }
+            }
+        }
+    }
+
+    @Test
+    void matchesJavaTimeAroundDaylightSavingTransitions() {
+        // 北京1986-1991年实行夏令时；纽约每年切换
+        String[] times = {"1988-04-10 01:30:00", "1988-04-10 02:30:00", "1988-09-11 01:30:00",
+                "2024-03-10 02:30:00", "2024-11-03 01:30:00", "2024-02-29 23:59:59", "2000-02-29 00:00:00"};
+        for (String zone : ZONES) {
+            ZoneId zoneId = ZoneId.of(zone);
+            OperateTimeParser.setZone(zoneId);
+            for (String time : times) {
+                LocalDateTime local = LocalDateTime.parse(time, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+                assertThat(OperateTimeParser.parse(time)).as("%s %s", zone, time)
+                        .isEqualTo(ZonedDateTime.of(local, zoneId).toInstant().toEpochMilli());
+            }
+        }
+    }
+
+    @Test
+    void parsesEpochTimestamps() {
+        assertThat(OperateTimeParser.parse("1716171330123")).isEqualTo(1716171330123L);
+        assertThat(OperateTimeParser.parse("1716171330")).isEqualTo(1716171330000L);
+        assertThat(OperateTimeParser.parse(" 2024-05-20 10:15:30 ")).isEqualTo(
+                ZonedDateTime.of(2024, 5, 20, 10, 15, 30, 0, ZoneId.of("GMT+8")).toInstant().toEpochMilli());
+    }
+
+    @Test
+    void rejectsInvalidText() {
+        String[] invalid = {null, "", "   ", "abc", "2023-02-29", "2024-13-01", "2024-04-31", "2024-05-20 24:00:00",
+                "2024-05-20 10:60", "2024-05-20 10", "1969-12-31 23:59:59", "24-05-20", "2024-05-20 10:15:30:00",
+                "2024-05-20X10:15", "20240520101", "2024--05-20", "2024-005-20"};
+        for (String text : invalid) {
+            assertThat(OperateTimeParser.parse(text)).as(text).isEqualTo(OperateTimeParser.INVALID);
+        }
+    }
+
+    @Test
+    void parsesAgeYears() {
+        assertThat(OperateTimeParser.parseAgeYears("45")).isEqualTo(45);
+        assertThat(OperateTimeParser.parseAgeYears(" 45岁")).isEqualTo(45);
+        assertThat(OperateTimeParser.parseAgeYears("3个月")).isZero();
+        assertThat(OperateTimeParser.parseAgeYears("15天")).isZero();
+        assertThat(OperateTimeParser.parseAgeYears("1234")).isEqualTo(-1);
+        assertThat(OperateTimeParser.parseAgeYears("岁")).isEqualTo(-1);
+        assertThat(OperateTimeParser.parseAgeYears(null)).isEqualTo(-1);
+    }
+
+    private static void assertMatches(LocalDateTime local, String pattern, ZoneId zoneId) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern(pattern);
+        String text = local.format(formatter);
+        // 按格式的精度截断后再换算
+        LocalDateTime truncated = truncate(local, pattern);
+        long expected = ZonedDateTime.of(truncated, zoneId).toInstant().toEpochMilli();
+        assertThat(OperateTimeParser.parse(text)).as("%s %s", zoneId, text).isEqualTo(expected);
+    }
+
+    private static LocalDateTime truncate(LocalDateTime local, String pattern) {
+        if (!pattern.contains("H")) {
+            return local.toLocalDate().atStartOfDay();
+        }
+        if (!pattern.contains("s")) {
+            return local.withSecond(0).withNano(0);
+        }
+        return pattern.contains("S") ? local : local.withNano(0);
+    }
+}